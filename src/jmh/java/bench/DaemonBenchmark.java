@@ -0,0 +1,55 @@
+package bench;
+
+import main.Compilador;
+import main.CompileResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// O que o daemon economiza por arquivo: a primeira compilação numa JVM nova (classes carregadas e
+// código interpretado, como em cada execução de 'java -jar') contra a mesma compilação numa JVM aquecida.
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DaemonBenchmark {
+    @Param({"1KB", "64KB", "1MB"})
+    public String size;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = SourceGenerator.generate(SourceGenerator.Shape.FUNCTIONS, SourceGenerator.parseSize(size), 251);
+    }
+
+    // uma medição por fork: cada uma é a primeira compilação da JVM
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public CompileResult cold() {
+        return new Compilador().compile(file);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public CompileResult warm() {
+        return new Compilador().compile(file);
+    }
+}
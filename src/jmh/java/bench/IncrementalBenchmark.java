@@ -0,0 +1,56 @@
+package bench;
+
+import main.IncrementalCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Latência de uma pequena edição no corpo de uma função (inserir e desfazer "1 + ") com a compilação
+// incremental, comparada a recompilar o texto inteiro. A edição deve custar o mesmo em qualquer tamanho.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+    @Param({"1MB", "16MB"})
+    public String size;
+
+    private String text;
+    private IncrementalCompiler compiler;
+    private int offset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = Files.readString(SourceGenerator.generate(SourceGenerator.Shape.FUNCTIONS, SourceGenerator.parseSize(size), 251));
+        compiler = new IncrementalCompiler(text);
+        // logo depois de um "print " no meio do arquivo
+        offset = text.indexOf("print ", text.length() / 2) + "print ".length();
+    }
+
+    @Benchmark
+    public IncrementalCompiler editAndUndo() {
+        compiler.edit(offset, 0, "1 + ");
+        compiler.edit(offset, 4, "");
+        return compiler;
+    }
+
+    @Benchmark
+    public IncrementalCompiler recompileAll() {
+        return new IncrementalCompiler(text);
+    }
+}
@@ -0,0 +1,40 @@
+package bench;
+
+import lexer.Source;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Arquivo de entrada gerado para o tamanho e formato do benchmark, já aberto como Source.
+// Tamanhos maiores (até 500MB) podem ser pedidos com -p size=500MB.
+@State(Scope.Benchmark)
+public class InputState {
+    @Param({"1KB", "1MB", "16MB"})
+    public String size;
+
+    @Param({"DECLARATIONS", "FUNCTIONS", "COMMENTS", "LONG_IDENTIFIERS"})
+    public String shape;
+
+    @Param({"251"})
+    public long seed;
+
+    public Path file;
+    public Source source;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        file = SourceGenerator.generate(SourceGenerator.Shape.valueOf(shape), SourceGenerator.parseSize(size), seed);
+        source = Source.open(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        source.close();
+    }
+}
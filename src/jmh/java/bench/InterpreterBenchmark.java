@@ -0,0 +1,98 @@
+package bench;
+
+import ast.Ast;
+import ast.TypeChecker;
+import jvm.ClassGenerator;
+import jvm.ProgramClassLoader;
+import lexer.Lexer;
+import lexer.Source;
+import opt.PassManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.ParserImpl;
+import symboltable.SymbolTable;
+import vm.CodeGenerator;
+import vm.Interpreter;
+import vm.Program;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Execução pelo vm.Interpreter dos programas de src/jmh/resources/programs, já traduzidos (laços de
+// inteiros, laços aninhados com chamadas, recursão e aritmética real). O contador 'instructions' sai
+// como instruções por segundo, ao lado das execuções por segundo. runClass executa os mesmos programas
+// pelo .class do jvm.ClassGenerator, para comparar com o código compilado pelo JIT. Com optimize=true,
+// a árvore passa antes pelos passes de --opt.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+    @Param({"somas", "primos", "fib", "mandelbrot"})
+    public String program;
+
+    @Param({"false", "true"})
+    public boolean optimize;
+
+    private Program compiled;
+    private Method main;
+    private PrintStream out;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            instructions = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void compile() throws IOException {
+        String text;
+        try (InputStream in = InterpreterBenchmark.class.getResourceAsStream("/programs/" + program + ".251")) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        SymbolTable symbolTable = new SymbolTable();
+        Ast ast = new Ast(symbolTable.getNames());
+        new ParserImpl(new Lexer(Source.of(text), symbolTable.getNames()), symbolTable, ast).parseFileProgram();
+        TypeChecker types = optimize ? PassManager.of(null).run(ast, symbolTable) : TypeChecker.check(ast, symbolTable);
+        compiled = CodeGenerator.generate(types);
+        byte[] bytes = ClassGenerator.generate(types);
+        main = ProgramClassLoader.findMain(new ProgramClassLoader().define(ClassGenerator.getClassName(ast), bytes));
+        out = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public Interpreter run(Counters counters) {
+        Interpreter interpreter = new Interpreter(compiled, out);
+        interpreter.run();
+        counters.instructions += interpreter.getInstructionCount();
+        return interpreter;
+    }
+
+    @Benchmark
+    public void runClass() {
+        ProgramClassLoader.run(main, out);
+    }
+}
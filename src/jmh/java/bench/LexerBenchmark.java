@@ -0,0 +1,53 @@
+package bench;
+
+import lexer.Lexer;
+import lexer.ParallelLexer;
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.TokenType;
+import lexer.NamePool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Análise léxica do arquivo inteiro por cada caminho do Lexer. Com -prof gc, a comparação
+// tokenizeList x tokenizeBuffer mostra o custo de alocação de List<Token> contra o TokenBuffer.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LexerBenchmark {
+
+    @Benchmark
+    public List<Token> tokenizeList(InputState input) {
+        return new Lexer(input.source).tokenize();
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeBuffer(InputState input) {
+        return new Lexer(input.source).tokenizeToBuffer();
+    }
+
+    @Benchmark
+    public int streamingNext(InputState input) {
+        Lexer lexer = new Lexer(input.source);
+        int count = 0;
+        while (lexer.next() != TokenType.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public TokenBuffer parallel(InputState input) {
+        return ParallelLexer.tokenize(input.source, new NamePool());
+    }
+}
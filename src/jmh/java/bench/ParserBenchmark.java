@@ -0,0 +1,104 @@
+package bench;
+
+import ast.Ast;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.ParallelParser;
+import parser.ParserImpl;
+import symboltable.SymbolTable;
+
+import java.util.concurrent.TimeUnit;
+
+// ParserImpl.parseFileProgram() sobre tokens já analisados (só o parser, também construindo a Ast e com
+// as funções em paralelo) e em fluxo (lexer + parser)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lexed {
+        TokenBuffer tokens;
+
+        @Setup(Level.Trial)
+        public void lex(InputState input) {
+            tokens = new Lexer(input.source).tokenizeToBuffer();
+        }
+    }
+
+    // uma função que devolve uma expressão com 'depth' níveis de parênteses e operadores unários
+    @State(Scope.Benchmark)
+    public static class Nested {
+        @Param({"1000", "100000"})
+        public int depth;
+
+        TokenBuffer tokens;
+
+        @Setup(Level.Trial)
+        public void lex() {
+            StringBuilder text = new StringBuilder("program P\ndeclarations\nvarType integer: n\nendDeclararions\n"
+                    + "functions\nfuncType integer: f(integer: a) {\n return ");
+            for (int i = 0; i < depth; i++) {
+                text.append(i % 2 == 0 ? "-(a + " : "(a < ");
+            }
+            text.append('a');
+            text.append(")".repeat(depth));
+            text.append(";\n} f\nendFunctions\nendProgram\n");
+            tokens = new Lexer(text.toString()).tokenizeToBuffer();
+        }
+    }
+
+    @Benchmark
+    public SymbolTable parsePreLexed(Lexed lexed) {
+        SymbolTable symbolTable = new SymbolTable(lexed.tokens.getNames());
+        new ParserImpl(lexed.tokens.cursor(), symbolTable).parseFileProgram();
+        return symbolTable;
+    }
+
+    // construindo também a árvore (-prof gc mostra o custo em bytes)
+    @Benchmark
+    public Ast parsePreLexedWithAst(Lexed lexed) {
+        SymbolTable symbolTable = new SymbolTable(lexed.tokens.getNames());
+        Ast ast = new Ast(symbolTable.getNames());
+        new ParserImpl(lexed.tokens.cursor(), symbolTable, ast).parseFileProgram();
+        return ast;
+    }
+
+    // funções analisadas em paralelo (o ganho aparece com -p shape=FUNCTIONS)
+    @Benchmark
+    public SymbolTable parsePreLexedParallel(Lexed lexed) {
+        SymbolTable symbolTable = new SymbolTable(lexed.tokens.getNames());
+        ParallelParser.parse(lexed.tokens, symbolTable);
+        return symbolTable;
+    }
+
+    // tempo linear na profundidade e sem StackOverflowError
+    @Benchmark
+    public Ast parseNestedExpression(Nested nested) {
+        SymbolTable symbolTable = new SymbolTable(nested.tokens.getNames());
+        Ast ast = new Ast(symbolTable.getNames());
+        new ParserImpl(nested.tokens.cursor(), symbolTable, ast).parseFileProgram();
+        return ast;
+    }
+
+    @Benchmark
+    public SymbolTable lexAndParse(InputState input) {
+        SymbolTable symbolTable = new SymbolTable();
+        new ParserImpl(new Lexer(input.source, symbolTable.getNames()), symbolTable).parseFileProgram();
+        return symbolTable;
+    }
+}
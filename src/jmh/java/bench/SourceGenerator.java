@@ -0,0 +1,181 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+// Gera programas .251 sintaticamente válidos, de tamanho e formato escolhidos, a partir de uma
+// semente fixa (o mesmo pedido gera sempre o mesmo arquivo). Os arquivos ficam em cache no
+// diretório temporário, porque os maiores levam alguns segundos para gerar.
+public final class SourceGenerator {
+
+    public enum Shape {
+        // quase tudo declarações de variáveis
+        DECLARATIONS(0.9),
+        // poucas variáveis e muitas funções pequenas
+        FUNCTIONS(0.1),
+        // metade do texto em comentários de linha e de bloco
+        COMMENTS(0.5),
+        // identificadores de 40 a 200 caracteres
+        LONG_IDENTIFIERS(0.5);
+
+        private final double declarationShare;
+
+        Shape(double declarationShare) {
+            this.declarationShare = declarationShare;
+        }
+    }
+
+    private final Shape shape;
+    private final Random random;
+    private final Writer out;
+    private long written = 0;
+    private int declarationLines = 0;
+
+    private SourceGenerator(Shape shape, long seed, Writer out) {
+        this.shape = shape;
+        this.random = new Random(seed);
+        this.out = out;
+    }
+
+    // Tamanhos como "1KB", "64MB" ou "1GB"
+    public static long parseSize(String size) {
+        String s = size.trim().toUpperCase(Locale.ROOT);
+        if (s.endsWith("GB")) {
+            return Long.parseLong(s.substring(0, s.length() - 2)) << 30;
+        } else if (s.endsWith("MB")) {
+            return Long.parseLong(s.substring(0, s.length() - 2)) << 20;
+        } else if (s.endsWith("KB")) {
+            return Long.parseLong(s.substring(0, s.length() - 2)) << 10;
+        }
+        return Long.parseLong(s);
+    }
+
+    public static Path generate(Shape shape, long targetBytes, long seed) {
+        Path file = Paths.get(System.getProperty("java.io.tmpdir"),
+                "cangacode-bench-" + shape.name().toLowerCase(Locale.ROOT) + "-" + targetBytes + "-" + seed + ".251");
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        try {
+            Path partial = Files.createTempFile(file.getParent(), "cangacode-bench", ".tmp");
+            try (Writer out = new BufferedWriter(Files.newBufferedWriter(partial, StandardCharsets.UTF_8), 1 << 16)) {
+                new SourceGenerator(shape, seed, out).program(targetBytes);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void program(long targetBytes) throws IOException {
+        write("program Bench\ndeclarations\n");
+        long declarationBytes = (long) (targetBytes * shape.declarationShare);
+        do {
+            declarationLine();
+        } while (written < declarationBytes);
+        write("endDeclararions\nfunctions\n");
+
+        int function = 0;
+        function(function++);
+        while (written < targetBytes) {
+            write(";\n");
+            function(function++);
+        }
+        write("\nendFunctions\nendProgram\n");
+    }
+
+    private void declarationLine() throws IOException {
+        int line = declarationLines++;
+        comment();
+        write(line % 3 == 2 ? "varType real: " : "varType integer: ");
+        int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                write(", ");
+            }
+            write(globalName(line, i));
+        }
+        write(";\n");
+    }
+
+    // Funções com nomes e parâmetros únicos, usando só variáveis inteiras já declaradas
+    private void function(int n) throws IOException {
+        String a = "a" + n;
+        String b = "b" + n;
+        comment();
+        write("funcType integer: f" + n + "(integer: " + a + ", real: " + b + ") {\n");
+        int commands = 1 + random.nextInt(4);
+        for (int i = 0; i < commands; i++) {
+            comment();
+            if (random.nextBoolean()) {
+                write("    print " + expression(a) + ";\n");
+            } else {
+                write("    print (" + expression(b) + ") * 2.5;\n");
+            }
+        }
+        write("    return " + expression(a) + ";\n} endFunction");
+    }
+
+    private String expression(String local) {
+        StringBuilder sb = new StringBuilder(local);
+        int terms = random.nextInt(4);
+        for (int i = 0; i < terms; i++) {
+            sb.append(switch (random.nextInt(4)) {
+                case 0 -> " + ";
+                case 1 -> " - ";
+                case 2 -> " * ";
+                default -> " % ";
+            });
+            sb.append(random.nextBoolean() ? String.valueOf(random.nextInt(1000)) : integerGlobal());
+        }
+        return sb.toString();
+    }
+
+    private String integerGlobal() {
+        int line = random.nextInt(declarationLines);
+        if (line % 3 == 2) {
+            line--;
+        }
+        return globalName(line, 0);
+    }
+
+    private String globalName(int line, int index) {
+        String name = "g" + line + "v" + index;
+        if (shape == Shape.LONG_IDENTIFIERS) {
+            // o mesmo sufixo para o mesmo nome, para as referências baterem com a declaração
+            int length = 40 + Math.floorMod((line * 31 + index) * 7919, 161);
+            StringBuilder sb = new StringBuilder(name);
+            while (sb.length() < length) {
+                sb.append("Comprimento");
+            }
+            name = sb.substring(0, length);
+        }
+        return name;
+    }
+
+    private void comment() throws IOException {
+        if (shape != Shape.COMMENTS) {
+            return;
+        }
+        if (random.nextBoolean()) {
+            write("// comentário de linha com texto qualquer: x := y + 1;\n");
+        } else {
+            write("/* comentário de bloco\n   que ocupa algumas linhas * e tem / soltos\n*/\n");
+        }
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text);
+        written += text.length();
+    }
+}
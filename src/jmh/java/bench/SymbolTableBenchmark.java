@@ -0,0 +1,109 @@
+package bench;
+
+import lexer.NamePool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import symboltable.SymbolTable;
+import symboltable.SymbolTable.SymbolType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// declare/lookup/exists da SymbolTable, pelos ids do NamePool e pela API de String, e a entrada/saída
+// de escopos com nomes que escondem os globais
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymbolTableBenchmark {
+    @Param({"1000", "100000"})
+    public int count;
+
+    private String[] names;
+    private NamePool pool;
+    private int[] ids;
+    private SymbolTable filled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(251);
+        names = new String[count];
+        pool = new NamePool();
+        ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "nome" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36) + i;
+            ids[i] = pool.intern(names[i]);
+        }
+        filled = new SymbolTable(pool);
+        for (int id : ids) {
+            filled.declareIfAbsent(id, "INTEGER", SymbolType.VARIABLE);
+        }
+    }
+
+    @Benchmark
+    public SymbolTable declareIds() {
+        SymbolTable table = new SymbolTable(pool);
+        for (int id : ids) {
+            table.declareIfAbsent(id, "INTEGER", SymbolType.VARIABLE);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public SymbolTable declareStrings() {
+        SymbolTable table = new SymbolTable();
+        for (String name : names) {
+            table.declare(name, "INTEGER", SymbolType.VARIABLE);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public void lookupIds(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(filled.lookup(id));
+        }
+    }
+
+    @Benchmark
+    public void lookupStrings(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(filled.lookup(name));
+        }
+    }
+
+    @Benchmark
+    public void exists(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(filled.exists(name));
+        }
+    }
+
+    // declareIds mais um escopo por nome que declara o mesmo nome de novo (escondendo o global até o exitScope)
+    @Benchmark
+    public SymbolTable declareShadowed() {
+        SymbolTable table = new SymbolTable(pool);
+        for (int id : ids) {
+            table.declareIfAbsent(id, "INTEGER", SymbolType.VARIABLE);
+        }
+        for (int id : ids) {
+            table.enterScope("f");
+            table.declareIfAbsent(id, "REAL", SymbolType.PARAMETER);
+            table.exitScope();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,249 @@
+package ast;
+
+import lexer.NamePool;
+import lexer.TokenType;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Árvore sintática em arena: um nó é um índice em arrays paralelos de int (tipo, primeiro filho,
+// próximo irmão, índice do token e um dado), alocados em blocos de tamanho fixo como no TokenBuffer.
+// Cada nó custa 5 ints, sem um objeto por nó. O dado depende do tipo (veja NodeKind).
+public class Ast {
+    public static final int NONE = -1;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final NodeKind[] KINDS = NodeKind.values();
+    // em print(), níveis além deste saem com a profundidade em vez de mais espaços (a saída continua linear)
+    private static final int MAX_INDENT = 64;
+    private static final String INDENT = "  ".repeat(MAX_INDENT);
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final NamePool names;
+    private int[][] kinds = new int[8][];
+    private int[][] firstChildren = new int[8][];
+    private int[][] nextSiblings = new int[8][];
+    private int[][] tokens = new int[8][];
+    private int[][] data = new int[8][];
+    private int size = 0;
+    private int root = NONE;
+    // texto dos literais, na ordem em que aparecem
+    private final List<String> literals = new ArrayList<>();
+
+    public Ast(NamePool names) {
+        this.names = names;
+    }
+
+    public NamePool getNames() {
+        return names;
+    }
+
+    // Novo nó sem filhos
+    public int add(NodeKind kind, int token, int value) {
+        int chunk = size >>> CHUNK_BITS;
+        int index = size & CHUNK_MASK;
+        if (index == 0) {
+            newChunk(chunk);
+        }
+        kinds[chunk][index] = kind.ordinal();
+        firstChildren[chunk][index] = NONE;
+        nextSiblings[chunk][index] = NONE;
+        tokens[chunk][index] = token;
+        data[chunk][index] = value;
+        return size++;
+    }
+
+    // Liga 'child' a 'parent' depois de 'last' (o último filho até aqui, ou NONE); devolve 'child',
+    // o novo último filho
+    public int append(int parent, int last, int child) {
+        if (last == NONE) {
+            firstChildren[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = child;
+        } else {
+            nextSiblings[last >>> CHUNK_BITS][last & CHUNK_MASK] = child;
+        }
+        return child;
+    }
+
+    // Troca o tipo e o dado de um nó e solta os filhos (os passes de otimização reescrevem a árvore no lugar)
+    public void replace(int node, NodeKind kind, int value) {
+        kinds[node >>> CHUNK_BITS][node & CHUNK_MASK] = kind.ordinal();
+        data[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+        firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK] = NONE;
+    }
+
+    // 'child' (ou NONE) passa a ser o primeiro filho de 'parent'
+    public void setFirstChild(int parent, int child) {
+        firstChildren[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = child;
+    }
+
+    // 'next' (ou NONE) passa a ser o irmão seguinte de 'node'
+    public void setNextSibling(int node, int next) {
+        nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK] = next;
+    }
+
+    // Guarda o texto de um literal e devolve o índice usado como dado do nó
+    public int addLiteral(String text) {
+        literals.add(text);
+        return literals.size() - 1;
+    }
+
+    public void setRoot(int root) {
+        this.root = root;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public NodeKind getKind(int node) {
+        return KINDS[kinds[node >>> CHUNK_BITS][node & CHUNK_MASK]];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // Índice do token que originou o nó, contado a partir do primeiro token lido pelo parser
+    public int getToken(int node) {
+        return tokens[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int getData(int node) {
+        return data[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // Nome de PROGRAM, NAME, FUNCTION, PARAM, ASSIGN, CALL e VARIABLE
+    public String getName(int node) {
+        return names.get(getData(node));
+    }
+
+    // Tipo de TYPE ou operador de BINARY e UNARY
+    public TokenType getTokenType(int node) {
+        return TOKEN_TYPES[getData(node)];
+    }
+
+    // Texto de INT_LITERAL, REAL_LITERAL, STRING_LITERAL e CHAR_LITERAL
+    public String getLiteral(int node) {
+        return literals.get(getData(node));
+    }
+
+    public int getChildCount(int node) {
+        int count = 0;
+        for (int child = getFirstChild(node); child != NONE; child = getNextSibling(child)) {
+            count++;
+        }
+        return count;
+    }
+
+    // Filho na posição 'index', ou NONE
+    public int getChild(int node, int index) {
+        int child = getFirstChild(node);
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = getNextSibling(child);
+        }
+        return child;
+    }
+
+    // Bytes ocupados pelos arrays dos nós
+    public long getMemoryBytes() {
+        long chunks = (size + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        return chunks * CHUNK_SIZE * 5L * Integer.BYTES;
+    }
+
+    // Percorre a subárvore de 'node' em profundidade sem recursão (a árvore pode ser muito funda)
+    public void walk(int node, AstVisitor visitor) {
+        int[] parents = new int[64];
+        int depth = 0;
+        int current = node;
+        while (true) {
+            int child = visitor.enter(this, current) ? getFirstChild(current) : NONE;
+            if (child != NONE) {
+                if (depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                }
+                parents[depth++] = current;
+                current = child;
+                continue;
+            }
+            visitor.exit(this, current);
+            while (current != node && getNextSibling(current) == NONE) {
+                current = parents[--depth];
+                visitor.exit(this, current);
+            }
+            if (current == node) {
+                return;
+            }
+            current = getNextSibling(current);
+        }
+    }
+
+    // Imprime a árvore indentada, um nó por linha (além de MAX_INDENT níveis, com a profundidade)
+    public void print(PrintWriter out) {
+        if (root == NONE) {
+            return;
+        }
+        walk(root, new AstVisitor() {
+            private int depth = 0;
+
+            @Override
+            public boolean enter(Ast ast, int node) {
+                out.write(INDENT, 0, 2 * Math.min(depth, MAX_INDENT));
+                if (depth > MAX_INDENT) {
+                    out.print("[" + depth + "] ");
+                }
+                out.print(getKind(node));
+                String detail = detail(node);
+                if (detail != null) {
+                    out.print(' ');
+                    out.print(detail);
+                }
+                out.println();
+                depth++;
+                return true;
+            }
+
+            @Override
+            public void exit(Ast ast, int node) {
+                depth--;
+            }
+        });
+    }
+
+    private String detail(int node) {
+        return switch (getKind(node)) {
+            case PROGRAM, NAME, FUNCTION, PARAM, ASSIGN, CALL, VARIABLE -> getName(node);
+            case TYPE, BINARY, UNARY -> getTokenType(node).getText();
+            case INT_LITERAL, REAL_LITERAL, STRING_LITERAL, CHAR_LITERAL -> getLiteral(node);
+            case BOOLEAN_LITERAL -> getData(node) != 0 ? "true" : "false";
+            case SAVE, TEMP -> "t" + getData(node);
+            default -> null;
+        };
+    }
+
+    private void newChunk(int chunk) {
+        if (chunk == kinds.length) {
+            kinds = Arrays.copyOf(kinds, chunk * 2);
+            firstChildren = Arrays.copyOf(firstChildren, chunk * 2);
+            nextSiblings = Arrays.copyOf(nextSiblings, chunk * 2);
+            tokens = Arrays.copyOf(tokens, chunk * 2);
+            data = Arrays.copyOf(data, chunk * 2);
+        }
+        kinds[chunk] = new int[CHUNK_SIZE];
+        firstChildren[chunk] = new int[CHUNK_SIZE];
+        nextSiblings[chunk] = new int[CHUNK_SIZE];
+        tokens[chunk] = new int[CHUNK_SIZE];
+        data[chunk] = new int[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,10 @@
+package ast;
+
+// Visita em profundidade de Ast.walk(): enter antes dos filhos, exit depois deles
+public interface AstVisitor {
+    // devolve false para não visitar os filhos (exit é chamado mesmo assim)
+    boolean enter(Ast ast, int node);
+
+    default void exit(Ast ast, int node) {
+    }
+}
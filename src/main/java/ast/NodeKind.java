@@ -0,0 +1,30 @@
+package ast;
+
+// Tipos de nó da Ast e o significado do dado de cada um
+public enum NodeKind {
+    PROGRAM,         // dado: id do nome do programa; filhos: VAR_DECL e FUNCTION
+    VAR_DECL,        // filhos: TYPE e um NAME por variável
+    NAME,            // nome declarado; dado: id do nome
+    TYPE,            // dado: TokenType do tipo
+    FUNCTION,        // dado: id do nome; filhos: TYPE (retorno), PARAM..., BLOCK
+    PARAM,           // dado: id do nome; filho: TYPE
+    BLOCK,           // filhos: comandos
+    ASSIGN,          // dado: id do nome; filho: expressão
+    CALL,            // dado: id do nome da função; filhos: argumentos (comando ou expressão)
+    RETURN,          // filho: expressão
+    BREAK,
+    PRINT,           // filho: expressão
+    IF,              // filhos: condição, BLOCK e, com else, outro BLOCK
+    WHILE,           // filhos: condição e BLOCK
+    BINARY,          // dado: TokenType do operador; filhos: operandos
+    UNARY,           // dado: TokenType do operador; filho: operando
+    VARIABLE,        // uso de um nome; dado: id do nome
+    INT_LITERAL,     // dado: índice do literal
+    REAL_LITERAL,    // dado: índice do literal
+    STRING_LITERAL,  // dado: índice do literal (sem as aspas)
+    CHAR_LITERAL,    // dado: índice do literal (sem as aspas)
+    BOOLEAN_LITERAL, // dado: 1 (true) ou 0 (false)
+    // criados pela eliminação de subexpressões comuns (opt), só dentro de um trecho sem desvios
+    SAVE,            // dado: número do temporário; filho: expressão, cujo valor também fica no temporário
+    TEMP             // dado: número do temporário; o valor guardado por um SAVE executado antes
+}
@@ -0,0 +1,429 @@
+package ast;
+
+import lexer.NamePool;
+import lexer.TokenType;
+import symboltable.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Tipos das expressões de uma Ast e a que variável, parâmetro ou função cada nome se refere, para as
+// etapas que geram código. Variáveis globais e funções têm os tipos da SymbolTable; parâmetros, os do
+// próprio nó. Inteiros e caracteres viram reais quando combinados com reais (e reais são truncados
+// quando atribuídos, passados ou devolvidos como inteiros); '+' com uma string concatena. As
+// expressões são percorridas com Ast.walk, sem recursão; os comandos, recursivamente (o parser já
+// limita o aninhamento deles).
+public final class TypeChecker {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final Ast ast;
+    private final SymbolTable symbolTable;
+    private final NamePool names;
+
+    // por nó: ordinal do TokenType do valor (BINARY e UNARY: dos operandos já convertidos) e, em
+    // VARIABLE e ASSIGN, a posição local (>= 0) ou global (-1 - posição); em CALL, o índice da função
+    private final byte[] types;
+    private final byte[] operandTypes;
+    private final int[] targets;
+
+    // por id de nome: posição global, índice da função e posição do parâmetro (-1 se não houver)
+    private final int[] globalSlots;
+    private final int[] functionIndexes;
+    private final int[] localSlots;
+    private final List<Integer> globalNames = new ArrayList<>();
+    private final List<TokenType> globalTypes = new ArrayList<>();
+    private final List<Integer> functionNodes = new ArrayList<>();
+    private final List<TokenType> returnTypes = new ArrayList<>();
+    private final List<TokenType[]> paramTypes = new ArrayList<>();
+    // por função: tipo de cada temporário dos nós SAVE
+    private final List<TokenType[]> tempTypes = new ArrayList<>();
+
+    // função sendo verificada, seus temporários e quantos while estão abertos
+    private String functionName;
+    private TokenType returnType;
+    private TokenType[] localTypes;
+    private TokenType[] temps;
+    private int tempCount;
+    private int loops = 0;
+
+    private TypeChecker(Ast ast, SymbolTable symbolTable) {
+        this.ast = ast;
+        this.symbolTable = symbolTable;
+        this.names = symbolTable.getNames();
+        types = new byte[ast.size()];
+        operandTypes = new byte[ast.size()];
+        targets = new int[ast.size()];
+        globalSlots = filled(names.size());
+        functionIndexes = filled(names.size());
+        localSlots = filled(names.size());
+    }
+
+    // Lança RuntimeException com a mensagem para o usuário se o programa tem erro de tipo
+    public static TypeChecker check(Ast ast, SymbolTable symbolTable) {
+        if (ast.getNames() != symbolTable.getNames()) {
+            throw new IllegalArgumentException("Ast e SymbolTable com pools de nomes diferentes");
+        }
+        TypeChecker checker = new TypeChecker(ast, symbolTable);
+        checker.check();
+        return checker;
+    }
+
+    public Ast getAst() {
+        return ast;
+    }
+
+    // Tipo do valor de uma expressão (VOID para a chamada de uma função void)
+    public TokenType getType(int node) {
+        return TYPES[types[node]];
+    }
+
+    // Tipo para o qual os operandos de BINARY e UNARY são convertidos: REAL, INTEGER, BOOLEAN ou STRING
+    public TokenType getOperandType(int node) {
+        return TYPES[operandTypes[node]];
+    }
+
+    // Tipo que o filho número 'index' de uma expressão deve ter (null: o dele mesmo)
+    public TokenType getExpectedType(int parent, int index) {
+        return switch (ast.getKind(parent)) {
+            case BINARY -> getOperandType(parent);
+            case CALL -> paramTypes.get(targets[parent])[index];
+            default -> null;
+        };
+    }
+
+    // Em VARIABLE e ASSIGN: posição do parâmetro (>= 0) ou -1 - posição da variável global
+    public int getVariable(int node) {
+        return targets[node];
+    }
+
+    // Em CALL: índice da função chamada
+    public int getFunction(int node) {
+        return targets[node];
+    }
+
+    public int getGlobalCount() {
+        return globalTypes.size();
+    }
+
+    public String getGlobalName(int slot) {
+        return names.get(globalNames.get(slot));
+    }
+
+    public TokenType getGlobalType(int slot) {
+        return globalTypes.get(slot);
+    }
+
+    public int getFunctionCount() {
+        return functionNodes.size();
+    }
+
+    public int getFunctionNode(int function) {
+        return functionNodes.get(function);
+    }
+
+    public TokenType getReturnType(int function) {
+        return returnTypes.get(function);
+    }
+
+    public TokenType[] getParamTypes(int function) {
+        return paramTypes.get(function).clone();
+    }
+
+    public int getParamCount(int function) {
+        return paramTypes.get(function).length;
+    }
+
+    // Temporários dos nós SAVE e TEMP da função (numerados a partir de 0)
+    public int getTempCount(int function) {
+        return tempTypes.get(function).length;
+    }
+
+    public TokenType getTempType(int function, int temp) {
+        return tempTypes.get(function)[temp];
+    }
+
+    // Índice da função com o nome, ou -1
+    public int findFunction(String name) {
+        int nameId = names.find(name);
+        return nameId >= 0 ? functionIndexes[nameId] : -1;
+    }
+
+    // Tipo de uma variável ou parâmetro pela posição de getVariable()
+    public TokenType getVariableType(int function, int variable) {
+        return variable >= 0 ? paramTypes.get(function)[variable] : globalTypes.get(-1 - variable);
+    }
+
+    public static boolean isInteger(TokenType type) {
+        return type == TokenType.INTEGER || type == TokenType.CHARACTER;
+    }
+
+    public static boolean isNumeric(TokenType type) {
+        return isInteger(type) || type == TokenType.REAL;
+    }
+
+    public static boolean isComparison(TokenType operator) {
+        return switch (operator) {
+            case LT, LE, GT, GE, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
+
+    private void check() {
+        for (int unit = ast.getFirstChild(ast.getRoot()); unit != Ast.NONE; unit = ast.getNextSibling(unit)) {
+            if (ast.getKind(unit) == NodeKind.VAR_DECL) {
+                for (int name = ast.getNextSibling(ast.getFirstChild(unit)); name != Ast.NONE; name = ast.getNextSibling(name)) {
+                    int nameId = ast.getData(name);
+                    globalSlots[nameId] = globalTypes.size();
+                    globalNames.add(nameId);
+                    globalTypes.add(declaredType(nameId));
+                }
+            } else {
+                int nameId = ast.getData(unit);
+                functionIndexes[nameId] = functionNodes.size();
+                functionNodes.add(unit);
+                returnTypes.add(declaredType(nameId));
+                List<TokenType> params = new ArrayList<>();
+                for (int child = ast.getFirstChild(unit); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (ast.getKind(child) == NodeKind.PARAM) {
+                        params.add(ast.getTokenType(ast.getFirstChild(child)));
+                    }
+                }
+                paramTypes.add(params.toArray(new TokenType[0]));
+            }
+        }
+        for (int f = 0; f < functionNodes.size(); f++) {
+            function(f, functionNodes.get(f));
+        }
+    }
+
+    private TokenType declaredType(int nameId) {
+        return TokenType.valueOf(symbolTable.lookup(nameId).getDataType());
+    }
+
+    private void function(int f, int node) {
+        functionName = ast.getName(node);
+        returnType = returnTypes.get(f);
+        localTypes = paramTypes.get(f);
+        temps = new TokenType[0];
+        tempCount = 0;
+        int slot = 0;
+        int body = Ast.NONE;
+        for (int child = ast.getFirstChild(node); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                localSlots[ast.getData(child)] = slot++;
+            } else if (ast.getKind(child) == NodeKind.BLOCK) {
+                body = child;
+            }
+        }
+        block(body);
+        tempTypes.add(Arrays.copyOf(temps, tempCount));
+        for (int child = ast.getFirstChild(node); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                localSlots[ast.getData(child)] = -1;
+            }
+        }
+    }
+
+    private void block(int block) {
+        for (int command = ast.getFirstChild(block); command != Ast.NONE; command = ast.getNextSibling(command)) {
+            command(command);
+        }
+    }
+
+    private void command(int node) {
+        switch (ast.getKind(node)) {
+            case ASSIGN -> {
+                int name = ast.getData(node);
+                int variable = variable(name);
+                targets[node] = variable;
+                TokenType type = variable >= 0 ? localTypes[variable] : globalTypes.get(-1 - variable);
+                convertible(expression(ast.getFirstChild(node)), type, names.get(name));
+            }
+            case CALL -> expression(node);
+            case RETURN -> convertible(expression(ast.getFirstChild(node)), returnType, "retorno de " + functionName);
+            case BREAK -> {
+                if (loops == 0) {
+                    throw new RuntimeException("break fora de um while em " + functionName);
+                }
+            }
+            case PRINT -> {
+                if (expression(ast.getFirstChild(node)) == TokenType.VOID) {
+                    throw new RuntimeException("Função sem valor usada em print em " + functionName);
+                }
+            }
+            case IF -> {
+                int condition = ast.getFirstChild(node);
+                condition(condition, "if");
+                for (int block = ast.getNextSibling(condition); block != Ast.NONE; block = ast.getNextSibling(block)) {
+                    block(block);
+                }
+            }
+            case WHILE -> {
+                int condition = ast.getFirstChild(node);
+                condition(condition, "while");
+                loops++;
+                block(ast.getNextSibling(condition));
+                loops--;
+            }
+            default -> throw new IllegalStateException("Comando inesperado: " + ast.getKind(node));
+        }
+    }
+
+    private void condition(int node, String command) {
+        TokenType type = expression(node);
+        if (type != TokenType.BOOLEAN) {
+            throw new RuntimeException("Condição do " + command + " não é booleana em " + functionName + ": " + type);
+        }
+    }
+
+    // Posição do parâmetro ou -1 - posição global
+    private int variable(int name) {
+        int slot = localSlots[name];
+        if (slot >= 0) {
+            return slot;
+        }
+        slot = globalSlots[name];
+        if (slot < 0) {
+            throw new RuntimeException("Não é uma variável: " + names.get(name));
+        }
+        return -1 - slot;
+    }
+
+    private int function(int name) {
+        int f = functionIndexes[name];
+        if (f < 0) {
+            throw new RuntimeException("Não é uma função: " + names.get(name));
+        }
+        return f;
+    }
+
+    // Se um valor do tipo 'from' pode ser usado onde se espera 'to' (em 'where')
+    private void convertible(TokenType from, TokenType to, String where) {
+        if (from == to || to == TokenType.VOID) {
+            return;
+        }
+        if (from == TokenType.VOID) {
+            throw new RuntimeException("Função sem valor usada em " + where);
+        }
+        if (!isNumeric(from) || !isNumeric(to)) {
+            throw new RuntimeException("Tipo incompatível em " + where + ": esperado " + to + ", encontrado " + from);
+        }
+    }
+
+    private TokenType expression(int node) {
+        ast.walk(node, expressions);
+        return getType(node);
+    }
+
+    private final AstVisitor expressions = new AstVisitor() {
+        @Override
+        public boolean enter(Ast ast, int node) {
+            return true;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            TokenType type = switch (ast.getKind(node)) {
+                case INT_LITERAL -> {
+                    try {
+                        Integer.parseInt(ast.getLiteral(node));
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeException("Constante inteira fora do intervalo: " + ast.getLiteral(node));
+                    }
+                    yield TokenType.INTEGER;
+                }
+                case REAL_LITERAL -> TokenType.REAL;
+                case STRING_LITERAL -> TokenType.STRING;
+                case CHAR_LITERAL -> TokenType.CHARACTER;
+                case BOOLEAN_LITERAL -> TokenType.BOOLEAN;
+                case VARIABLE -> {
+                    int variable = variable(ast.getData(node));
+                    targets[node] = variable;
+                    yield variable >= 0 ? localTypes[variable] : globalTypes.get(-1 - variable);
+                }
+                case UNARY -> unary(node);
+                case BINARY -> binary(node);
+                case CALL -> call(node);
+                case SAVE -> save(node);
+                case TEMP -> {
+                    int temp = ast.getData(node);
+                    if (temp >= tempCount || temps[temp] == null) {
+                        throw new IllegalStateException("Temporário usado antes do SAVE: t" + temp);
+                    }
+                    yield temps[temp];
+                }
+                default -> throw new IllegalStateException("Expressão inesperada: " + ast.getKind(node));
+            };
+            types[node] = (byte) type.ordinal();
+        }
+    };
+
+    private TokenType unary(int node) {
+        TokenType operator = ast.getTokenType(node);
+        TokenType operand = getType(ast.getFirstChild(node));
+        if (!isNumeric(operand)) {
+            throw new RuntimeException("Operador " + operator.getText() + " inválido para " + operand + " em " + functionName);
+        }
+        TokenType result = operand == TokenType.REAL ? TokenType.REAL : TokenType.INTEGER;
+        operandTypes[node] = (byte) result.ordinal();
+        return result;
+    }
+
+    private TokenType binary(int node) {
+        TokenType operator = ast.getTokenType(node);
+        int leftNode = ast.getFirstChild(node);
+        TokenType left = getType(leftNode);
+        TokenType right = getType(ast.getNextSibling(leftNode));
+        if (left == TokenType.VOID || right == TokenType.VOID) {
+            throw new RuntimeException("Função sem valor usada em expressão em " + functionName);
+        }
+        boolean equality = operator == TokenType.EQ || operator == TokenType.NEQ;
+        TokenType operands;
+        if (operator == TokenType.ADD && (left == TokenType.STRING || right == TokenType.STRING)) {
+            operands = TokenType.STRING;
+        } else if (equality && left == right && (left == TokenType.STRING || left == TokenType.BOOLEAN)) {
+            operands = left;
+        } else if (!isNumeric(left) || !isNumeric(right)) {
+            throw new RuntimeException("Operador " + operator.getText() + " inválido para " + left + " e " + right
+                    + " em " + functionName);
+        } else {
+            operands = left == TokenType.REAL || right == TokenType.REAL ? TokenType.REAL : TokenType.INTEGER;
+        }
+        operandTypes[node] = (byte) operands.ordinal();
+        return isComparison(operator) ? TokenType.BOOLEAN : operands;
+    }
+
+    private TokenType save(int node) {
+        int temp = ast.getData(node);
+        if (temp >= temps.length) {
+            temps = Arrays.copyOf(temps, Math.max(temp + 1, temps.length * 2));
+        }
+        tempCount = Math.max(tempCount, temp + 1);
+        temps[temp] = getType(ast.getFirstChild(node));
+        return temps[temp];
+    }
+
+    private TokenType call(int node) {
+        int f = function(ast.getData(node));
+        targets[node] = f;
+        TokenType[] params = paramTypes.get(f);
+        int count = ast.getChildCount(node);
+        if (count != params.length) {
+            throw new RuntimeException("Chamada de " + ast.getName(node) + " com " + count
+                    + " argumentos, esperados " + params.length);
+        }
+        int k = 0;
+        for (int argument = ast.getFirstChild(node); argument != Ast.NONE; argument = ast.getNextSibling(argument)) {
+            convertible(getType(argument), params[k], "argumento " + (k + 1) + " de " + ast.getName(node));
+            k++;
+        }
+        return returnTypes.get(f);
+    }
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, -1);
+        return array;
+    }
+}
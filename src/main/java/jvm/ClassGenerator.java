@@ -0,0 +1,505 @@
+package jvm;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.NodeKind;
+import ast.TypeChecker;
+import lexer.TokenType;
+
+import java.util.Arrays;
+
+// Gera um arquivo .class para o programa, com os tipos do TypeChecker: uma classe pública com o nome do
+// programa, um campo estático por variável global e um método estático por função, com inteiros,
+// caracteres e booleanos em int e reais em double (sem boxing). Se houver uma função main sem
+// parâmetros, a classe também tem o main(String[]) da JVM, que a chama. Os print escrevem no
+// PrintStream do campo OUT_FIELD (System.out, a menos que quem carrega a classe troque).
+public final class ClassGenerator {
+    public static final String MAIN = "main";
+    // nome que nenhum identificador da linguagem pode ter
+    public static final String OUT_FIELD = "$out";
+
+    private static final String STRING = "java/lang/String";
+    private static final String PRINT_STREAM = "java/io/PrintStream";
+
+    private final Ast ast;
+    private final TypeChecker types;
+    private final String className;
+    private final ClassWriter classWriter = new ClassWriter();
+
+    // método sendo gerado: índice da função, posição JVM de cada parâmetro e de cada temporário e rótulos
+    // de fim dos while abertos
+    private int function;
+    private int[] locals;
+    private int[] temps;
+    private Code code;
+    private int[] loopEnds = new int[16];
+    private int loops = 0;
+
+    private final ExpressionVisitor expressions = new ExpressionVisitor();
+
+    private ClassGenerator(TypeChecker types) {
+        this.ast = types.getAst();
+        this.types = types;
+        this.className = getClassName(ast);
+    }
+
+    // Nome da classe gerada: o do programa
+    public static String getClassName(Ast ast) {
+        return ast.getName(ast.getRoot());
+    }
+
+    // Lança RuntimeException se alguma função passa dos limites de um método da JVM
+    public static byte[] generate(TypeChecker types) {
+        return new ClassGenerator(types).generate();
+    }
+
+    private byte[] generate() {
+        for (int slot = 0; slot < types.getGlobalCount(); slot++) {
+            classWriter.addField(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, types.getGlobalName(slot),
+                    descriptor(types.getGlobalType(slot)));
+        }
+        classWriter.addField(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, OUT_FIELD, "L" + PRINT_STREAM + ";");
+        staticInitializer();
+
+        for (int f = 0; f < types.getFunctionCount(); f++) {
+            function(f);
+        }
+        int main = types.findFunction(MAIN);
+        if (main >= 0 && types.getParamCount(main) == 0) {
+            jvmMain(main);
+        }
+        return classWriter.toByteArray(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL | ClassWriter.ACC_SUPER,
+                className, "java/lang/Object");
+    }
+
+    // OUT_FIELD = System.out e as strings globais começam com ""
+    private void staticInitializer() {
+        Code init = new Code(0);
+        init.op2(Code.GETSTATIC, classWriter.fieldRef("java/lang/System", "out", "L" + PRINT_STREAM + ";"), 1);
+        init.op2(Code.PUTSTATIC, classWriter.fieldRef(className, OUT_FIELD, "L" + PRINT_STREAM + ";"), -1);
+        for (int slot = 0; slot < types.getGlobalCount(); slot++) {
+            if (types.getGlobalType(slot) == TokenType.STRING) {
+                init.ldc(classWriter.string(""), 1);
+                init.op2(Code.PUTSTATIC, global(slot), -1);
+            }
+        }
+        init.op(Code.RETURN, 0);
+        classWriter.addMethod(ClassWriter.ACC_STATIC, "<clinit>", "()V", init);
+    }
+
+    private void jvmMain(int main) {
+        Code entry = new Code(1);
+        entry.op2(Code.INVOKESTATIC, method(main), size(types.getReturnType(main)));
+        pop(entry, types.getReturnType(main));
+        entry.op(Code.RETURN, 0);
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "main", "([Ljava/lang/String;)V", entry);
+    }
+
+    private void function(int f) {
+        function = f;
+        TokenType[] params = types.getParamTypes(f);
+        locals = new int[params.length];
+        int words = 0;
+        for (int k = 0; k < params.length; k++) {
+            locals[k] = words;
+            words += size(params[k]);
+        }
+        int node = types.getFunctionNode(f);
+        String name = ast.getName(node);
+        if (words > 255) {
+            throw new RuntimeException("Parâmetros demais para um método da JVM em " + name);
+        }
+        temps = new int[types.getTempCount(f)];
+        for (int t = 0; t < temps.length; t++) {
+            temps[t] = words;
+            words += size(types.getTempType(f, t));
+        }
+        code = new Code(words);
+        loops = 0;
+        block(ast.getChild(node, ast.getChildCount(node) - 1));
+
+        // sem return no fim: devolve o valor padrão do tipo
+        TokenType returnType = types.getReturnType(f);
+        switch (returnType) {
+            case VOID -> code.returned(Code.RETURN, 0);
+            case REAL -> {
+                code.op(Code.DCONST_0, 2);
+                code.returned(Code.DRETURN, -2);
+            }
+            case STRING -> {
+                code.ldc(classWriter.string(""), 1);
+                code.returned(Code.ARETURN, -1);
+            }
+            default -> {
+                code.op(Code.ICONST_0, 1);
+                code.returned(Code.IRETURN, -1);
+            }
+        }
+        if (code.length() > Code.MAX_LENGTH) {
+            throw new RuntimeException("Função grande demais para um método da JVM: " + name);
+        }
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, name, methodDescriptor(f), code);
+    }
+
+    private void block(int block) {
+        for (int command = ast.getFirstChild(block); command != Ast.NONE; command = ast.getNextSibling(command)) {
+            command(command);
+        }
+    }
+
+    private void command(int node) {
+        switch (ast.getKind(node)) {
+            case ASSIGN -> {
+                int variable = types.getVariable(node);
+                TokenType type = types.getVariableType(function, variable);
+                expression(ast.getFirstChild(node), type);
+                if (variable >= 0) {
+                    code.local(storeOpcode(type), locals[variable], -size(type));
+                } else {
+                    code.op2(Code.PUTSTATIC, global(-1 - variable), -size(type));
+                }
+            }
+            case CALL -> {
+                expression(node, null);
+                pop(code, types.getType(node));
+            }
+            case RETURN -> {
+                int value = ast.getFirstChild(node);
+                TokenType returnType = types.getReturnType(function);
+                if (returnType == TokenType.VOID) {
+                    expression(value, null);
+                    pop(code, types.getType(value));
+                    code.returned(Code.RETURN, 0);
+                } else {
+                    expression(value, returnType);
+                    int opcode = switch (returnType) {
+                        case REAL -> Code.DRETURN;
+                        case STRING -> Code.ARETURN;
+                        default -> Code.IRETURN;
+                    };
+                    code.returned(opcode, -size(returnType));
+                }
+            }
+            case BREAK -> code.jump(Code.GOTO, loopEnds[loops - 1], 0);
+            case PRINT -> {
+                int value = ast.getFirstChild(node);
+                TokenType type = types.getType(value);
+                code.op2(Code.GETSTATIC, classWriter.fieldRef(className, OUT_FIELD, "L" + PRINT_STREAM + ";"), 1);
+                TokenType printed = type == TokenType.CHARACTER ? TokenType.STRING : type;
+                expression(value, printed);
+                code.op2(Code.INVOKEVIRTUAL, classWriter.methodRef(PRINT_STREAM, "println",
+                        "(" + descriptor(printed) + ")V"), -1 - size(printed));
+            }
+            case IF -> {
+                int condition = ast.getFirstChild(node);
+                int then = ast.getNextSibling(condition);
+                int otherwise = ast.getNextSibling(then);
+                int skip = code.newLabel();
+                condition(condition, skip);
+                block(then);
+                if (otherwise != Ast.NONE) {
+                    int end = code.newLabel();
+                    code.jump(Code.GOTO, end, 0);
+                    code.place(skip);
+                    block(otherwise);
+                    code.place(end);
+                } else {
+                    code.place(skip);
+                }
+            }
+            case WHILE -> {
+                int condition = ast.getFirstChild(node);
+                int start = code.newLabel();
+                int end = code.newLabel();
+                code.place(start);
+                condition(condition, end);
+                if (loops == loopEnds.length) {
+                    loopEnds = Arrays.copyOf(loopEnds, loops * 2);
+                }
+                loopEnds[loops++] = end;
+                block(ast.getNextSibling(condition));
+                loops--;
+                code.jump(Code.GOTO, start, 0);
+                code.place(end);
+            }
+            default -> throw new IllegalStateException("Comando inesperado: " + ast.getKind(node));
+        }
+    }
+
+    // Avalia a condição e desvia para 'otherwise' se ela é falsa; comparações viram um único desvio
+    private void condition(int node, int otherwise) {
+        if (ast.getKind(node) == NodeKind.BINARY && TypeChecker.isComparison(ast.getTokenType(node))) {
+            TokenType operands = types.getOperandType(node);
+            TokenType operator = ast.getTokenType(node);
+            int left = ast.getFirstChild(node);
+            expression(left, operands);
+            expression(ast.getNextSibling(left), operands);
+            switch (operands) {
+                case REAL -> {
+                    code.op(compareOpcode(operator), -3);
+                    code.jump(switch (operator) {
+                        case LT -> Code.IFGE;
+                        case LE -> Code.IFGT;
+                        case GT -> Code.IFLE;
+                        case GE -> Code.IFLT;
+                        case EQ -> Code.IFNE;
+                        default -> Code.IFEQ;
+                    }, otherwise, -1);
+                }
+                case STRING -> {
+                    equals();
+                    code.jump(operator == TokenType.EQ ? Code.IFEQ : Code.IFNE, otherwise, -1);
+                }
+                default -> code.jump(switch (operator) {
+                    case LT -> Code.IF_ICMPGE;
+                    case LE -> Code.IF_ICMPGT;
+                    case GT -> Code.IF_ICMPLE;
+                    case GE -> Code.IF_ICMPLT;
+                    case EQ -> Code.IF_ICMPNE;
+                    default -> Code.IF_ICMPEQ;
+                }, otherwise, -2);
+            }
+            return;
+        }
+        expression(node, null);
+        code.jump(Code.IFEQ, otherwise, -1);
+    }
+
+    // dcmpg dá 1 com NaN (< e <= falsos); dcmpl dá -1 (>, >=, == falsos e != verdadeiro)
+    private static int compareOpcode(TokenType operator) {
+        return operator == TokenType.LT || operator == TokenType.LE ? Code.DCMPG : Code.DCMPL;
+    }
+
+    // Traduz a expressão e converte o valor para 'expected' (null: fica com o próprio tipo)
+    private void expression(int node, TokenType expected) {
+        ast.walk(node, expressions);
+        convert(types.getType(node), expected);
+    }
+
+    // Converte o valor do topo (a verificação de tipos já garantiu que é possível)
+    private void convert(TokenType from, TokenType to) {
+        if (to == null || from == to || to == TokenType.VOID) {
+            return;
+        }
+        if (to == TokenType.STRING) {
+            if (from == TokenType.CHARACTER) {
+                code.op2(Code.INVOKESTATIC, classWriter.methodRef("java/lang/Character", "toString", "(I)L" + STRING + ";"), 0);
+            } else {
+                code.op2(Code.INVOKESTATIC, classWriter.methodRef(STRING, "valueOf",
+                        "(" + descriptor(from) + ")L" + STRING + ";"), 1 - size(from));
+            }
+        } else if (to == TokenType.REAL && TypeChecker.isInteger(from)) {
+            code.op(Code.I2D, 1);
+        } else if (TypeChecker.isInteger(to) && from == TokenType.REAL) {
+            code.op(Code.D2I, -1);
+        }
+    }
+
+    private void binary(int node) {
+        TokenType operator = ast.getTokenType(node);
+        TokenType operands = types.getOperandType(node);
+        if (operands == TokenType.STRING) {
+            if (operator == TokenType.ADD) {
+                code.op2(Code.INVOKEVIRTUAL, classWriter.methodRef(STRING, "concat", "(L" + STRING + ";)L" + STRING + ";"), -1);
+            } else {
+                equals();
+                if (operator == TokenType.NEQ) {
+                    code.op(Code.ICONST_1, 1);
+                    code.op(Code.IXOR, -1);
+                }
+            }
+            return;
+        }
+        boolean real = operands == TokenType.REAL;
+        if (!TypeChecker.isComparison(operator)) {
+            int opcode = switch (operator) {
+                case ADD -> real ? Code.DADD : Code.IADD;
+                case SUB -> real ? Code.DSUB : Code.ISUB;
+                case MUL -> real ? Code.DMUL : Code.IMUL;
+                case DIV -> real ? Code.DDIV : Code.IDIV;
+                default -> real ? Code.DREM : Code.IREM;
+            };
+            code.op(opcode, real ? -2 : -1);
+            return;
+        }
+
+        // a comparação dá -1, 0 ou 1, que vira 0 ou 1 sem desvios (a pilha nunca precisa de quadro
+        // no meio de uma expressão)
+        if (real) {
+            code.op(compareOpcode(operator), -3);
+        } else {
+            code.op2(Code.INVOKESTATIC, classWriter.methodRef("java/lang/Integer", "compare", "(II)I"), -1);
+        }
+        switch (operator) {
+            case LT -> signBit();
+            case GT -> {
+                code.op(Code.INEG, 0);
+                signBit();
+            }
+            case LE -> {
+                code.op(Code.ICONST_1, 1);
+                code.op(Code.ISUB, -1);
+                signBit();
+            }
+            case GE -> {
+                code.op(Code.ICONST_M1, 1);
+                code.op(Code.IXOR, -1);
+                signBit();
+            }
+            default -> {
+                code.op(Code.ICONST_1, 1);
+                code.op(Code.IAND, -1);
+                if (operator == TokenType.EQ) {
+                    code.op(Code.ICONST_1, 1);
+                    code.op(Code.IXOR, -1);
+                }
+            }
+        }
+    }
+
+    // 1 se o topo é negativo, 0 senão
+    private void signBit() {
+        code.op1(Code.BIPUSH, 31, 1);
+        code.op(Code.IUSHR, -1);
+    }
+
+    private void equals() {
+        code.op2(Code.INVOKEVIRTUAL, classWriter.methodRef(STRING, "equals", "(Ljava/lang/Object;)Z"), -1);
+    }
+
+    private int global(int slot) {
+        return classWriter.fieldRef(className, types.getGlobalName(slot), descriptor(types.getGlobalType(slot)));
+    }
+
+    private int method(int f) {
+        return classWriter.methodRef(className, ast.getName(types.getFunctionNode(f)), methodDescriptor(f));
+    }
+
+    private String methodDescriptor(int f) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (TokenType param : types.getParamTypes(f)) {
+            descriptor.append(descriptor(param));
+        }
+        return descriptor.append(')').append(descriptor(types.getReturnType(f))).toString();
+    }
+
+    private static int loadOpcode(TokenType type) {
+        return switch (type) {
+            case REAL -> Code.DLOAD;
+            case STRING -> Code.ALOAD;
+            default -> Code.ILOAD;
+        };
+    }
+
+    private static int storeOpcode(TokenType type) {
+        return switch (type) {
+            case REAL -> Code.DSTORE;
+            case STRING -> Code.ASTORE;
+            default -> Code.ISTORE;
+        };
+    }
+
+    private static String descriptor(TokenType type) {
+        return switch (type) {
+            case REAL -> "D";
+            case BOOLEAN -> "Z";
+            case STRING -> "L" + STRING + ";";
+            case VOID -> "V";
+            default -> "I";
+        };
+    }
+
+    // Palavras que um valor do tipo ocupa na pilha
+    private static int size(TokenType type) {
+        return switch (type) {
+            case REAL -> 2;
+            case VOID -> 0;
+            default -> 1;
+        };
+    }
+
+    private static void pop(Code code, TokenType type) {
+        int words = size(type);
+        if (words > 0) {
+            code.op(words == 2 ? Code.POP2 : Code.POP, -words);
+        }
+    }
+
+    // Emite cada nó ao sair dele, quando os operandos já estão na pilha, e converte o valor para o
+    // tipo que o pai espera
+    private final class ExpressionVisitor implements AstVisitor {
+        // nós abertos e, para cada um, quantos filhos já foram traduzidos
+        private int[] path = new int[16];
+        private int[] done = new int[16];
+        private int pathCount = 0;
+
+        @Override
+        public boolean enter(Ast ast, int node) {
+            if (pathCount == path.length) {
+                path = Arrays.copyOf(path, pathCount * 2);
+                done = Arrays.copyOf(done, pathCount * 2);
+            }
+            path[pathCount] = node;
+            done[pathCount] = 0;
+            pathCount++;
+            return true;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            pathCount--;
+            TokenType type = types.getType(node);
+            switch (ast.getKind(node)) {
+                case INT_LITERAL -> code.pushInt(Integer.parseInt(ast.getLiteral(node)), classWriter);
+                case CHAR_LITERAL -> {
+                    String text = ast.getLiteral(node);
+                    code.pushInt(text.isEmpty() ? 0 : text.codePointAt(0), classWriter);
+                }
+                case BOOLEAN_LITERAL -> code.pushInt(ast.getData(node), classWriter);
+                case REAL_LITERAL -> {
+                    double value = Double.parseDouble(ast.getLiteral(node));
+                    if (Double.doubleToRawLongBits(value) == 0) {
+                        code.op(Code.DCONST_0, 2);
+                    } else if (value == 1.0) {
+                        code.op(Code.DCONST_1, 2);
+                    } else {
+                        code.op2(Code.LDC2_W, classWriter.doubleConstant(value), 2);
+                    }
+                }
+                case STRING_LITERAL -> code.ldc(classWriter.string(ast.getLiteral(node)), 1);
+                case VARIABLE -> {
+                    int variable = types.getVariable(node);
+                    if (variable >= 0) {
+                        code.local(loadOpcode(type), locals[variable], size(type));
+                    } else {
+                        code.op2(Code.GETSTATIC, global(-1 - variable), size(type));
+                    }
+                }
+                case UNARY -> {
+                    if (ast.getTokenType(node) == TokenType.SUB) {
+                        code.op(type == TokenType.REAL ? Code.DNEG : Code.INEG, 0);
+                    }
+                }
+                case BINARY -> binary(node);
+                case SAVE -> {
+                    code.op(size(type) == 2 ? Code.DUP2 : Code.DUP, size(type));
+                    code.local(storeOpcode(type), temps[ast.getData(node)], -size(type));
+                }
+                case TEMP -> code.local(loadOpcode(type), temps[ast.getData(node)], size(type));
+                case CALL -> {
+                    int f = types.getFunction(node);
+                    int arguments = 0;
+                    for (TokenType param : types.getParamTypes(f)) {
+                        arguments += size(param);
+                    }
+                    code.op2(Code.INVOKESTATIC, method(f), size(types.getReturnType(f)) - arguments);
+                }
+                default -> throw new IllegalStateException("Expressão inesperada: " + ast.getKind(node));
+            }
+            if (pathCount > 0) {
+                int parent = pathCount - 1;
+                convert(type, types.getExpectedType(path[parent], done[parent]++));
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package jvm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Escritor mínimo de arquivos .class (JVMS, capítulo 4): pool de constantes, campos e métodos, estes
+// com os atributos Code e StackMapTable montados pelo Code. Só o que o ClassGenerator usa.
+final class ClassWriter {
+    // Java 8: a partir da 50 a JVM exige a StackMapTable nos métodos com desvios
+    static final int VERSION = 52;
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final Bytes pool = new Bytes();
+    private int poolCount = 1;
+    // entradas já no pool, pela tag e pelo conteúdo
+    private final Map<String, Integer> entries = new HashMap<>();
+    private final Bytes fields = new Bytes();
+    private int fieldCount = 0;
+    private final Bytes methods = new Bytes();
+    private int methodCount = 0;
+
+    int utf8(String text) {
+        return entry(CONSTANT_UTF8 + ":" + text, 1, () -> pool.u1(CONSTANT_UTF8).utf8(text));
+    }
+
+    // Nome interno da classe (com '/')
+    int classRef(String name) {
+        int nameIndex = utf8(name);
+        return entry(CONSTANT_CLASS + ":" + name, 1, () -> pool.u1(CONSTANT_CLASS).u2(nameIndex));
+    }
+
+    int string(String text) {
+        int textIndex = utf8(text);
+        return entry(CONSTANT_STRING + ":" + text, 1, () -> pool.u1(CONSTANT_STRING).u2(textIndex));
+    }
+
+    int integer(int value) {
+        return entry(CONSTANT_INTEGER + ":" + value, 1, () -> pool.u1(CONSTANT_INTEGER).u4(value));
+    }
+
+    // Ocupa duas posições do pool
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return entry(CONSTANT_DOUBLE + ":" + bits, 2,
+                () -> pool.u1(CONSTANT_DOUBLE).u4((int) (bits >>> 32)).u4((int) bits));
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int classIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return entry(tag + ":" + owner + "." + name + ":" + descriptor, 1,
+                () -> pool.u1(tag).u2(classIndex).u2(nameAndType));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return entry(CONSTANT_NAME_AND_TYPE + ":" + name + ":" + descriptor, 1,
+                () -> pool.u1(CONSTANT_NAME_AND_TYPE).u2(nameIndex).u2(descriptorIndex));
+    }
+
+    private int entry(String key, int slots, Runnable write) {
+        Integer index = entries.get(key);
+        if (index == null) {
+            if (poolCount + slots > 0xFFFF) {
+                throw new RuntimeException("Constantes demais para um arquivo .class");
+            }
+            write.run();
+            index = poolCount;
+            poolCount += slots;
+            entries.put(key, index);
+        }
+        return index;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        fields.u2(access).u2(utf8(name)).u2(utf8(descriptor)).u2(0);
+        fieldCount++;
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeName = utf8("Code");
+        int frameName = code.hasFrames() ? utf8("StackMapTable") : 0;
+        methods.u2(access).u2(nameIndex).u2(descriptorIndex).u2(1);
+        code.writeAttribute(methods, codeName, frameName);
+        methodCount++;
+        if (methodCount > 0xFFFF) {
+            throw new RuntimeException("Funções demais para um arquivo .class");
+        }
+    }
+
+    byte[] toByteArray(int access, String name, String superName) {
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+        Bytes out = new Bytes();
+        out.u4(0xCAFEBABE).u2(0).u2(VERSION);
+        out.u2(poolCount).bytes(pool);
+        out.u2(access).u2(thisClass).u2(superClass).u2(0);
+        out.u2(fieldCount).bytes(fields);
+        out.u2(methodCount).bytes(methods);
+        out.u2(0);
+        return out.toByteArray();
+    }
+
+    // Bytes em big-endian, como o formato pede
+    static final class Bytes {
+        private byte[] data = new byte[256];
+        private int length = 0;
+
+        int length() {
+            return length;
+        }
+
+        Bytes u1(int value) {
+            ensure(1);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value) {
+            ensure(2);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes u4(int value) {
+            ensure(4);
+            data[length++] = (byte) (value >>> 24);
+            data[length++] = (byte) (value >>> 16);
+            data[length++] = (byte) (value >>> 8);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes bytes(Bytes other) {
+            return bytes(other.data, 0, other.length);
+        }
+
+        Bytes bytes(byte[] source, int offset, int count) {
+            ensure(count);
+            System.arraycopy(source, offset, data, length, count);
+            length += count;
+            return this;
+        }
+
+        // Comprimento e texto em UTF-8 modificado (o 0 e cada metade de um par substituto à parte)
+        Bytes utf8(String text) {
+            int start = length;
+            u2(0);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != 0 && c < 0x80) {
+                    u1(c);
+                } else if (c < 0x800) {
+                    u1(0xC0 | (c >> 6)).u1(0x80 | (c & 0x3F));
+                } else {
+                    u1(0xE0 | (c >> 12)).u1(0x80 | ((c >> 6) & 0x3F)).u1(0x80 | (c & 0x3F));
+                }
+            }
+            int size = length - start - 2;
+            if (size > 0xFFFF) {
+                throw new RuntimeException("Constante grande demais para um arquivo .class");
+            }
+            data[start] = (byte) (size >>> 8);
+            data[start + 1] = (byte) size;
+            return this;
+        }
+
+        // Sobrescreve 2 bytes já escritos
+        void set2(int position, int value) {
+            data[position] = (byte) (value >>> 8);
+            data[position + 1] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package jvm;
+
+import java.util.Arrays;
+
+// Bytecode de um método em construção: instruções, rótulos com os desvios a corrigir, altura da pilha
+// de operandos (em palavras: double ocupa 2) e as posições que precisam de quadro na StackMapTable.
+// Os desvios só ligam comandos, onde a pilha está vazia e as variáveis locais vivas são sempre os
+// parâmetros (os temporários das subexpressões comuns não atravessam desvios), então todos os quadros
+// são iguais ao inicial do método (same_frame).
+final class Code {
+    // os desvios usam deslocamentos de 16 bits
+    static final int MAX_LENGTH = 0x7FFF;
+
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_1 = 0x04;
+    static final int DCONST_0 = 0x0E;
+    static final int DCONST_1 = 0x0F;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3A;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DUP2 = 0x5C;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6B;
+    static final int IDIV = 0x6C;
+    static final int DDIV = 0x6F;
+    static final int IREM = 0x70;
+    static final int DREM = 0x73;
+    static final int INEG = 0x74;
+    static final int DNEG = 0x77;
+    static final int IUSHR = 0x7C;
+    static final int IAND = 0x7E;
+    static final int IXOR = 0x82;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8E;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFLT = 0x9B;
+    static final int IFGE = 0x9C;
+    static final int IFGT = 0x9D;
+    static final int IFLE = 0x9E;
+    static final int IF_ICMPEQ = 0x9F;
+    static final int IF_ICMPNE = 0xA0;
+    static final int IF_ICMPLT = 0xA1;
+    static final int IF_ICMPGE = 0xA2;
+    static final int IF_ICMPGT = 0xA3;
+    static final int IF_ICMPLE = 0xA4;
+    static final int GOTO = 0xA7;
+    static final int IRETURN = 0xAC;
+    static final int DRETURN = 0xAF;
+    static final int ARETURN = 0xB0;
+    static final int RETURN = 0xB1;
+    static final int GETSTATIC = 0xB2;
+    static final int PUTSTATIC = 0xB3;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESTATIC = 0xB8;
+    static final int WIDE = 0xC4;
+
+    private final ClassWriter.Bytes code = new ClassWriter.Bytes();
+    private final int maxLocals;
+    private int stack = 0;
+    private int maxStack = 0;
+
+    // posição de cada rótulo (-1 enquanto não colocado) e desvios pendentes: início da instrução e rótulo
+    private int[] labels = new int[16];
+    private int labelCount = 0;
+    private int[] jumps = new int[32];
+    private int jumpCount = 0;
+    // posições com quadro, em ordem crescente
+    private int[] frames = new int[16];
+    private int frameCount = 0;
+
+    Code(int maxLocals) {
+        this.maxLocals = maxLocals;
+    }
+
+    int length() {
+        return code.length();
+    }
+
+    // Instrução sem operandos; 'effect' é a variação da pilha em palavras
+    void op(int opcode, int effect) {
+        code.u1(opcode);
+        adjust(effect);
+    }
+
+    void op1(int opcode, int operand, int effect) {
+        code.u1(opcode).u1(operand);
+        adjust(effect);
+    }
+
+    void op2(int opcode, int operand, int effect) {
+        code.u1(opcode).u2(operand);
+        adjust(effect);
+    }
+
+    // Load ou store de uma variável local (com WIDE a partir da posição 256)
+    void local(int opcode, int index, int effect) {
+        if (index <= 0xFF) {
+            op1(opcode, index, effect);
+        } else {
+            code.u1(WIDE);
+            op2(opcode, index, effect);
+        }
+    }
+
+    // Inteiro na pilha com a instrução mais curta
+    void pushInt(int value, ClassWriter classWriter) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op1(BIPUSH, value, 1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op2(SIPUSH, value, 1);
+        } else {
+            ldc(classWriter.integer(value), 1);
+        }
+    }
+
+    // Constante do pool de uma palavra (int ou String)
+    void ldc(int index, int effect) {
+        if (index <= 0xFF) {
+            op1(LDC, index, effect);
+        } else {
+            op2(LDC_W, index, effect);
+        }
+    }
+
+    int newLabel() {
+        if (labelCount == labels.length) {
+            labels = Arrays.copyOf(labels, labelCount * 2);
+        }
+        labels[labelCount] = -1;
+        return labelCount++;
+    }
+
+    // O rótulo passa a indicar a posição atual, que ganha um quadro
+    void place(int label) {
+        labels[label] = code.length();
+        frame();
+    }
+
+    // Desvio para um rótulo; GOTO termina o fluxo, e a instrução seguinte precisa de quadro
+    void jump(int opcode, int label, int effect) {
+        if (jumpCount == jumps.length) {
+            jumps = Arrays.copyOf(jumps, jumpCount * 2);
+        }
+        jumps[jumpCount++] = code.length();
+        jumps[jumpCount++] = label;
+        code.u1(opcode).u2(0);
+        adjust(effect);
+        if (opcode == GOTO) {
+            frame();
+        }
+    }
+
+    // Depois de um return: a instrução seguinte (se houver) precisa de quadro
+    void returned(int opcode, int effect) {
+        op(opcode, effect);
+        frame();
+    }
+
+    boolean hasFrames() {
+        return frameCount > 0 && frames[0] < code.length();
+    }
+
+    // Atributo Code, com a StackMapTable se houver quadros
+    void writeAttribute(ClassWriter.Bytes out, int codeName, int frameName) {
+        int length = code.length();
+        for (int i = 0; i < jumpCount; i += 2) {
+            int at = jumps[i];
+            code.set2(at + 1, labels[jumps[i + 1]] - at);
+        }
+        int frameEntries = 0;
+        ClassWriter.Bytes table = new ClassWriter.Bytes();
+        int previous = -1;
+        for (int i = 0; i < frameCount && frames[i] < length; i++) {
+            int delta = frames[i] - previous - 1;
+            if (delta <= 63) {
+                table.u1(delta);
+            } else {
+                table.u1(251).u2(delta);
+            }
+            previous = frames[i];
+            frameEntries++;
+        }
+
+        int attributes = frameEntries > 0 ? 1 : 0;
+        int frameAttribute = frameEntries > 0 ? 2 + 4 + 2 + table.length() : 0;
+        out.u2(codeName).u4(2 + 2 + 4 + length + 2 + 2 + frameAttribute);
+        out.u2(maxStack).u2(maxLocals).u4(length).bytes(code);
+        out.u2(0).u2(attributes);
+        if (frameEntries > 0) {
+            out.u2(frameName).u4(2 + table.length()).u2(frameEntries).bytes(table);
+        }
+    }
+
+    private void frame() {
+        int position = code.length();
+        if (frameCount > 0 && frames[frameCount - 1] == position) {
+            return;
+        }
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        frames[frameCount++] = position;
+    }
+
+    private void adjust(int effect) {
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+}
@@ -0,0 +1,58 @@
+package jvm;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// Carrega a classe gerada pelo ClassGenerator e executa a função main do programa, com os print
+// indo para 'out'. Cada execução usa um carregador novo, então o mesmo programa pode ser carregado
+// de novo (e os campos estáticos começam do zero).
+public final class ProgramClassLoader extends ClassLoader {
+    public ProgramClassLoader() {
+        super(ProgramClassLoader.class.getClassLoader());
+    }
+
+    public Class<?> define(String className, byte[] bytes) {
+        return defineClass(className, bytes, 0, bytes.length);
+    }
+
+    // Função main do programa; RuntimeException se ela não existe ou tem parâmetros
+    public static Method findMain(Class<?> program) {
+        boolean withParams = false;
+        for (Method method : program.getDeclaredMethods()) {
+            if (method.getName().equals(ClassGenerator.MAIN) && Modifier.isStatic(method.getModifiers())) {
+                if (method.getParameterCount() == 0) {
+                    return method;
+                }
+                // o main(String[]) da JVM só existe quando há um main sem parâmetros
+                withParams = true;
+            }
+        }
+        throw new RuntimeException(withParams ? "A função main não pode ter parâmetros" : "Função main não encontrada");
+    }
+
+    // Lança RuntimeException com a mensagem para o usuário em caso de erro de execução
+    public static void run(Method main, PrintStream out) {
+        try {
+            main.getDeclaringClass().getField(ClassGenerator.OUT_FIELD).set(null, out);
+            main.invoke(null);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ArithmeticException) {
+                throw new RuntimeException("Divisão por zero");
+            }
+            if (cause instanceof StackOverflowError) {
+                throw new RuntimeException("Pilha de execução estourou (recursão profunda demais)");
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        } finally {
+            out.flush();
+        }
+    }
+}
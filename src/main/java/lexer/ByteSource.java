@@ -0,0 +1,80 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Fonte sobre os bytes UTF-8 do arquivo (mapeados ou lidos), indexada por byte.
+// Trechos ASCII são lidos direto do buffer, sem decodificar nem copiar; só os
+// bytes >= 0x80 passam pela decodificação de UTF-8.
+final class ByteSource extends Source {
+    private final ByteBuffer bytes;
+    private final int length;
+
+    ByteSource(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.length = bytes.limit();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int charAt(int index) {
+        return index < length ? bytes.get(index) & 0xFF : -1;
+    }
+
+    @Override
+    public int codePointAt(int index) {
+        int b0 = bytes.get(index) & 0xFF;
+        int width = sequenceLength(index);
+        switch (width) {
+            case 2:
+                return ((b0 & 0x1F) << 6) | (bytes.get(index + 1) & 0x3F);
+            case 3:
+                return ((b0 & 0x0F) << 12) | ((bytes.get(index + 1) & 0x3F) << 6) | (bytes.get(index + 2) & 0x3F);
+            case 4:
+                return ((b0 & 0x07) << 18) | ((bytes.get(index + 1) & 0x3F) << 12)
+                        | ((bytes.get(index + 2) & 0x3F) << 6) | (bytes.get(index + 3) & 0x3F);
+            default:
+                return b0 < 0x80 ? b0 : 0xFFFD;
+        }
+    }
+
+    @Override
+    public int nextIndex(int index) {
+        return index + sequenceLength(index);
+    }
+
+    @Override
+    public String substring(int start, int end) {
+        return StandardCharsets.UTF_8.decode(bytes.slice(start, end - start)).toString();
+    }
+
+    // Tamanho da sequência UTF-8 em 'index'; sequências inválidas contam como 1 byte (U+FFFD)
+    private int sequenceLength(int index) {
+        int b0 = bytes.get(index) & 0xFF;
+        int width;
+        if (b0 < 0x80) {
+            return 1;
+        } else if (b0 >= 0xC2 && b0 <= 0xDF) {
+            width = 2;
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            width = 3;
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            width = 4;
+        } else {
+            return 1;
+        }
+        if (index + width > length) {
+            return 1;
+        }
+        for (int i = 1; i < width; i++) {
+            if ((bytes.get(index + i) & 0xC0) != 0x80) {
+                return 1;
+            }
+        }
+        return width;
+    }
+}
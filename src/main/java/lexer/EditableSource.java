@@ -0,0 +1,102 @@
+package lexer;
+
+// Texto editável em memória, em um gap buffer de chars: uma edição só move o "buraco" até
+// a posição editada, sem copiar o resto do texto. Edições próximas umas das outras custam pouco.
+final class EditableSource extends Source {
+    private char[] text;
+    private int gapStart;
+    private int gapEnd;
+
+    EditableSource(CharSequence initial) {
+        text = new char[Math.max(16, initial.length() * 5 / 4)];
+        for (int i = 0; i < initial.length(); i++) {
+            text[i] = initial.charAt(i);
+        }
+        gapStart = initial.length();
+        gapEnd = text.length;
+    }
+
+    @Override
+    public int length() {
+        return text.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public int charAt(int index) {
+        if (index < gapStart) {
+            return text[index];
+        }
+        index += gapEnd - gapStart;
+        return index < text.length ? text[index] : -1;
+    }
+
+    @Override
+    public int codePointAt(int index) {
+        char high = (char) charAt(index);
+        if (Character.isHighSurrogate(high)) {
+            int low = charAt(index + 1);
+            if (low >= 0 && Character.isLowSurrogate((char) low)) {
+                return Character.toCodePoint(high, (char) low);
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public int nextIndex(int index) {
+        return index + Character.charCount(codePointAt(index));
+    }
+
+    @Override
+    public String substring(int start, int end) {
+        StringBuilder out = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            out.append((char) charAt(i));
+        }
+        return out.toString();
+    }
+
+    // Troca 'removed' chars a partir de 'offset' pelo texto inserido
+    void replace(int offset, int removed, CharSequence inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > length()) {
+            throw new IndexOutOfBoundsException("Edição fora do texto: " + offset + "+" + removed);
+        }
+        moveGap(offset);
+        gapEnd += removed;
+        if (gapEnd - gapStart < inserted.length()) {
+            grow(inserted.length());
+        }
+        for (int i = 0; i < inserted.length(); i++) {
+            text[gapStart++] = inserted.charAt(i);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(text, 0, gapStart).append(text, gapEnd, text.length - gapEnd).toString();
+    }
+
+    private void moveGap(int position) {
+        if (position < gapStart) {
+            int count = gapStart - position;
+            System.arraycopy(text, position, text, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (position > gapStart) {
+            int count = position - gapStart;
+            System.arraycopy(text, gapEnd, text, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void grow(int needed) {
+        int after = text.length - gapEnd;
+        int capacity = Math.max(text.length * 2, length() + needed + 16);
+        char[] grown = new char[capacity];
+        System.arraycopy(text, 0, grown, 0, gapStart);
+        System.arraycopy(text, gapEnd, grown, capacity - after, after);
+        gapEnd = capacity - after;
+        text = grown;
+    }
+}
@@ -0,0 +1,280 @@
+package lexer;
+
+// Tokens de um texto editável, re-analisados de forma incremental: após uma edição, o Lexer recomeça
+// no fim de um token seguro antes dela e para assim que produz um token que começa onde começava um
+// token antigo depois da edição (dali em diante o texto e, portanto, os tokens são os mesmos).
+// Os arrays têm um buraco (gap) na última posição editada; os tokens depois dele guardam posições
+// relativas ao fim do texto, então uma edição não precisa deslocar os tokens seguintes.
+public class IncrementalTokens {
+    // o Lexer nunca examina mais que 2 unidades além do fim de um token (operadores têm até
+    // 2 caracteres; identificadores olham um code point adiante)
+    private static final int LOOKAHEAD = 2;
+
+    private final EditableSource source;
+    private final NamePool names;
+    private int[] types = new int[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+    private int[] nameIds = new int[256];
+    private int gapStart = 0;
+    private int gapEnd = 256;
+    // falso se a última análise falhou: a próxima edição re-analisa o texto inteiro
+    private boolean valid = false;
+
+    // tokens alterados pela última edição: [editStart, editStart + removed) antigos viraram
+    // [editStart, editStart + inserted)
+    private int editStart;
+    private int editRemoved;
+    private int editInserted;
+
+    // Os tokens só existem depois de tokenizeAll() ou da primeira edição
+    public IncrementalTokens(CharSequence text, NamePool names) {
+        this.source = new EditableSource(text);
+        this.names = names;
+    }
+
+    public int size() {
+        return types.length - (gapEnd - gapStart);
+    }
+
+    public TokenType getType(int i) {
+        return TokenType.ofOrdinal(types[physical(i)]);
+    }
+
+    public int getStart(int i) {
+        int p = physical(i);
+        return p < gapStart ? starts[p] : starts[p] + source.length();
+    }
+
+    public int getEnd(int i) {
+        int p = physical(i);
+        return p < gapStart ? ends[p] : ends[p] + source.length();
+    }
+
+    public int getNameId(int i) {
+        return nameIds[physical(i)];
+    }
+
+    public String getLexeme(int i) {
+        int nameId = getNameId(i);
+        return nameId >= 0 ? names.get(nameId) : source.lexeme(getType(i), getStart(i), getEnd(i));
+    }
+
+    public NamePool getNames() {
+        return names;
+    }
+
+    // Tamanho do texto em chars
+    public int length() {
+        return source.length();
+    }
+
+    public String getText() {
+        return source.toString();
+    }
+
+    public int getEditStart() {
+        return editStart;
+    }
+
+    public int getEditRemoved() {
+        return editRemoved;
+    }
+
+    public int getEditInserted() {
+        return editInserted;
+    }
+
+    // Troca 'removed' unidades a partir de 'offset' pelo texto inserido e re-analisa só o necessário
+    // (erros léxicos viram tokens ERROR, como no Lexer)
+    public void edit(int offset, int removed, CharSequence inserted) {
+        if (!valid) {
+            source.replace(offset, removed, inserted);
+            tokenizeAll();
+            return;
+        }
+
+        // último token cujo fim (mais o que o Lexer olhou adiante) fica antes da edição
+        int safe = lastEndingBefore(offset - LOOKAHEAD);
+        int restart = safe >= 0 ? getEnd(safe) : 0;
+        editStart = safe + 1;
+        editRemoved = 0;
+        editInserted = 0;
+
+        // os tokens a partir de editStart passam para depois do gap, em posições relativas ao fim,
+        // que continuam certas depois que o texto muda de tamanho
+        moveGap(editStart);
+        source.replace(offset, removed, inserted);
+        int editEnd = offset + inserted.length();
+
+        valid = false;
+        Lexer lexer = new Lexer(source, names, restart);
+        while (true) {
+            TokenType type = lexer.next();
+            int start = lexer.getStart();
+            if (start >= editEnd) {
+                // descarta os tokens antigos que começam antes; se um começa exatamente aqui, sincronizou
+                int length = source.length();
+                while (gapEnd < types.length && starts[gapEnd] + length < start) {
+                    gapEnd++;
+                    editRemoved++;
+                }
+                if (gapEnd < types.length && starts[gapEnd] + length == start) {
+                    break;
+                }
+            }
+            insert(type, start, lexer.getEnd(), lexer.getNameId());
+            editInserted++;
+            if (type == TokenType.EOF) {
+                // sem sincronizar: tudo o que restava foi substituído
+                editRemoved += types.length - gapEnd;
+                gapEnd = types.length;
+                break;
+            }
+        }
+        valid = true;
+    }
+
+    // Cursor cujo primeiro next() posiciona no token 'index'
+    public Cursor cursor(int index) {
+        return new Cursor(index - 1);
+    }
+
+    // Analisa o texto inteiro
+    public void tokenizeAll() {
+        valid = false;
+        editStart = 0;
+        editRemoved = size();
+        editInserted = 0;
+        gapStart = 0;
+        gapEnd = types.length;
+        Lexer lexer = new Lexer(source, names);
+        TokenType type;
+        do {
+            type = lexer.next();
+            insert(type, lexer.getStart(), lexer.getEnd(), lexer.getNameId());
+            editInserted++;
+        } while (type != TokenType.EOF);
+        valid = true;
+    }
+
+    // Maior índice de token com fim <= position, ou -1
+    private int lastEndingBefore(int position) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getEnd(mid) <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private int physical(int i) {
+        return i < gapStart ? i : i + (gapEnd - gapStart);
+    }
+
+    // Insere no gap um token em posições absolutas (os tokens antes do gap são absolutos)
+    private void insert(TokenType type, int start, int end, int nameId) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        types[gapStart] = type.ordinal();
+        starts[gapStart] = start;
+        ends[gapStart] = end;
+        nameIds[gapStart] = nameId;
+        gapStart++;
+    }
+
+    // Move o gap para antes do token 'index', convertendo as posições dos tokens que trocam de lado
+    private void moveGap(int index) {
+        int length = source.length();
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            types[gapEnd] = types[gapStart];
+            starts[gapEnd] = starts[gapStart] - length;
+            ends[gapEnd] = ends[gapStart] - length;
+            nameIds[gapEnd] = nameIds[gapStart];
+        }
+        while (gapStart < index) {
+            types[gapStart] = types[gapEnd];
+            starts[gapStart] = starts[gapEnd] + length;
+            ends[gapStart] = ends[gapEnd] + length;
+            nameIds[gapStart] = nameIds[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    private void grow() {
+        int after = types.length - gapEnd;
+        int capacity = types.length * 2;
+        types = grow(types, capacity, after);
+        starts = grow(starts, capacity, after);
+        ends = grow(ends, capacity, after);
+        nameIds = grow(nameIds, capacity, after);
+        gapEnd = capacity - after;
+    }
+
+    private int[] grow(int[] array, int capacity, int after) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, gapStart);
+        System.arraycopy(array, array.length - after, grown, capacity - after, after);
+        return grown;
+    }
+
+    // Cursor sobre os tokens a partir de um índice; getIndex() informa o token atual
+    public final class Cursor implements TokenCursor {
+        private int index;
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public TokenType next() {
+            if (index < size() - 1) {
+                index++;
+            }
+            return getType();
+        }
+
+        @Override
+        public TokenType getType() {
+            return index < 0 ? TokenType.EOF : IncrementalTokens.this.getType(index);
+        }
+
+        @Override
+        public int getStart() {
+            return IncrementalTokens.this.getStart(index);
+        }
+
+        @Override
+        public int getEnd() {
+            return IncrementalTokens.this.getEnd(index);
+        }
+
+        @Override
+        public String getLexeme() {
+            return IncrementalTokens.this.getLexeme(index);
+        }
+
+        @Override
+        public int getNameId() {
+            return IncrementalTokens.this.getNameId(index);
+        }
+
+        @Override
+        public NamePool getNames() {
+            return names;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package lexer;
+
+// Reconhece palavras-chave direto num trecho da fonte, sem criar String. Usa um hash perfeito
+// sobre (primeiro caractere, último caractere, tamanho), calculado na carga da classe a partir
+// das palavras-chave de TokenType; um acerto só é confirmado comparando o trecho inteiro.
+final class Keywords {
+    private static final int SIZE;
+    private static final int FIRST_FACTOR;
+    private static final int LAST_FACTOR;
+    private static final TokenType[] TYPES;
+    private static final char[][] TEXTS;
+
+    static {
+        int count = 0;
+        for (TokenType type : TokenType.values()) {
+            if (isKeyword(type)) {
+                count++;
+            }
+        }
+        char[][] keywords = new char[count][];
+        TokenType[] types = new TokenType[count];
+        int k = 0;
+        for (TokenType type : TokenType.values()) {
+            if (isKeyword(type)) {
+                types[k] = type;
+                keywords[k++] = type.getText().toCharArray();
+            }
+        }
+
+        // procura os menores fatores que não colidem, dobrando a tabela se preciso
+        int size = Integer.highestOneBit(count) * 2;
+        while (true) {
+            int[] factors = findFactors(keywords, size);
+            if (factors != null) {
+                SIZE = size;
+                FIRST_FACTOR = factors[0];
+                LAST_FACTOR = factors[1];
+                break;
+            }
+            size *= 2;
+        }
+        TYPES = new TokenType[SIZE];
+        TEXTS = new char[SIZE][];
+        for (int i = 0; i < count; i++) {
+            int slot = slot(keywords[i][0], keywords[i][keywords[i].length - 1], keywords[i].length);
+            TYPES[slot] = types[i];
+            TEXTS[slot] = keywords[i];
+        }
+    }
+
+    private Keywords() {
+    }
+
+    // Palavra-chave em [start, end) (só ASCII), ou null se o trecho é um identificador comum
+    static TokenType match(Source source, int start, int end) {
+        int length = end - start;
+        int slot = slot(source.charAt(start), source.charAt(end - 1), length);
+        char[] text = TEXTS[slot];
+        if (text == null || text.length != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != text[i]) {
+                return null;
+            }
+        }
+        return TYPES[slot];
+    }
+
+    private static int slot(int first, int last, int length) {
+        return (first * FIRST_FACTOR + last * LAST_FACTOR + length) & (SIZE - 1);
+    }
+
+    private static int[] findFactors(char[][] keywords, int size) {
+        for (int first = 1; first < size; first++) {
+            for (int last = 0; last < size; last++) {
+                boolean[] used = new boolean[size];
+                boolean collision = false;
+                for (char[] keyword : keywords) {
+                    int slot = (keyword[0] * first + keyword[keyword.length - 1] * last + keyword.length) & (size - 1);
+                    if (used[slot]) {
+                        collision = true;
+                        break;
+                    }
+                    used[slot] = true;
+                }
+                if (!collision) {
+                    return new int[] {first, last};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKeyword(TokenType type) {
+        String text = type.getText();
+        return text != null && !text.isEmpty() && Character.isLetter(text.charAt(0));
+    }
+}
@@ -1,251 +1,376 @@
 package lexer;
 
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Lexer {
-    private final String input;
+public class Lexer implements TokenCursor {
+    private final Source source;
+    private final NamePool names;
     private int position = 0;
+    private TokenListener listener;
+    // inícios de linha, criados no primeiro getLines(); só uma fonte em fluxo tem as quebras de linha
+    // anotadas pela análise ('recordLines'), as outras são percorridas sob demanda
+    private LineIndex lines;
+    private boolean recordLines;
 
-    private List<Token> tokens = null;
-    private int currentIndex = 0;
+    // token atual do cursor
+    private TokenType type;
+    private int tokenStart = 0;
+    private int tokenEnd = 0;
+    private int nameId = -1;
 
     public Lexer(String input) {
-        this.input = input;
+        this(Source.of(input));
     }
 
+    public Lexer(Reader reader) {
+        this(new ReaderSource(reader));
+    }
+
+    public Lexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    public Lexer(Source source) {
+        this(source, new NamePool());
+    }
+
+    // Os identificadores são internados em 'names' (ex.: o mesmo pool da SymbolTable)
+    public Lexer(Source source, NamePool names) {
+        this(source, names, 0);
+    }
+
+    // Começa a análise em 'start', que precisa estar fora de comentários e strings
+    Lexer(Source source, NamePool names, int start) {
+        this.source = source;
+        this.names = names;
+        this.position = start;
+        this.tokenStart = start;
+    }
+
+    // Todo token produzido é repassado ao listener, com o cursor sobre ele, antes de chegar ao chamador
+    public void setTokenListener(TokenListener listener) {
+        this.listener = listener;
+    }
+
+    // Conveniência: lê a entrada inteira e devolve todos os tokens (incluindo EOF)
     public List<Token> tokenize() {
         List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.getType() != TokenType.EOF);
+        return tokens;
+    }
 
-        while (position < input.length()) {
-            char current = peek();
+    // Lê a entrada inteira para um TokenBuffer compacto (incluindo EOF), sem criar objetos Token
+    public TokenBuffer tokenizeToBuffer() {
+        TokenBuffer tokens = new TokenBuffer(source, names);
+        do {
+            next();
+            tokens.add(type, tokenStart, tokenEnd, nameId);
+        } while (type != TokenType.EOF);
+        return tokens;
+    }
 
-            if (current == '/' && peekNext() == '/') {
-                // comentário de linha: descarta até o fim da linha
-                advance(2);
-                while (position < input.length() && peek() != '\n') {
-                    advance();
-                }
-                continue;
-            }
-            if (current == '/' && peekNext() == '*') {
-                // comentário de bloco: descarta até encontrar '*/'
-                advance(2);
-                while (position < input.length() && !(peek() == '*' && peekNext() == '/')) {
-                    advance();
-                }
-                advance(2);
-                continue;
-            }
+    // Retorna um token por vez como objeto (para quem não usa a interface de cursor)
+    public Token nextToken() {
+        next();
+        return new Token(type, getLexeme(), tokenStart);
+    }
 
-            if (Character.isWhitespace(current)) {
-                advance();
-                continue;
-            }
+    // Avança o cursor lendo apenas o necessário da entrada
+    @Override
+    public TokenType next() {
+        nameId = -1;
+        type = scan();
+        tokenEnd = position;
+        if (listener != null) {
+            listener.onToken(this);
+        }
+        return type;
+    }
 
-            if (Character.isLetter(current)) {
-                tokens.add(lexIdentifierOrKeyword());
-                continue;
+    @Override
+    public TokenType getType() {
+        return type;
+    }
+
+    @Override
+    public int getStart() {
+        return tokenStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    @Override
+    public String getLexeme() {
+        return nameId >= 0 ? names.get(nameId) : source.lexeme(type, tokenStart, tokenEnd);
+    }
+
+    @Override
+    public int getNameId() {
+        return nameId;
+    }
+
+    @Override
+    public NamePool getNames() {
+        return names;
+    }
+
+    // Inícios de linha da fonte. Numa fonte em fluxo, são os anotados até o token atual, inclusive, e este
+    // método precisa ser chamado antes da análise, já que o texto passado é descartado
+    public LineIndex getLines() {
+        if (lines == null) {
+            if (source.isRandomAccess()) {
+                lines = new LineIndex(source);
+            } else {
+                if (position > 0) {
+                    throw new IllegalStateException("Inícios de linha de uma fonte em fluxo pedidos no meio da análise");
+                }
+                lines = new LineIndex();
+                recordLines = true;
             }
+        }
+        return lines;
+    }
+
+    // Mensagem de erro de um token ERROR, pelo lexema: uma string ou constante de caractere que
+    // chega ao fim da entrada, um caractere sem o ' de fechamento ou um caractere que não começa
+    // nenhum token
+    public static String describeError(String lexeme) {
+        if (lexeme.startsWith("\"")) {
+            return "String não terminada: " + lexeme;
+        }
+        if (lexeme.startsWith("'")) {
+            return lexeme.length() == 1 ? "Constante de caractere não terminada" : "Caractere não fechado: " + lexeme;
+        }
+        return "Caractere inesperado: " + lexeme;
+    }
 
-            if (Character.isDigit(current)) {
-                tokens.add(lexNumber());
-                continue;
+    // Erros léxicos não interrompem a análise: viram tokens ERROR, e quem consome os tokens decide
+    private TokenType scan() {
+        while (true) {
+            tokenStart = position;
+            source.release(position);
+            int c = peek();
+            if (c < 0) {
+                return TokenType.EOF;
             }
 
-            switch (current) {
-                case ':':
-                    if (peekNext() == '=') {
-                        tokens.add(new Token(TokenType.ASSIGN, ":="));
-                        advance(2);
-                    } else {
-                        tokens.add(new Token(TokenType.COLON, ":"));
-                        advance();
-                    }
-                    break;
-                case ',':
-                    tokens.add(new Token(TokenType.COMMA, ","));
-                    advance();
-                    break;
-                case ';':
-                    tokens.add(new Token(TokenType.SEMICOLON, ";"));
-                    advance();
-                    break;
-                case '+':
-                    tokens.add(new Token(TokenType.ADD, "+"));
-                    advance();
-                    break;
-                case '-':
-                    tokens.add(new Token(TokenType.SUB, "-"));
-                    advance();
-                    break;
-                case '*':
-                    tokens.add(new Token(TokenType.MUL, "*"));
-                    advance();
-                    break;
-                case '/':
-                    tokens.add(new Token(TokenType.DIV, "/"));
-                    advance();
-                    break;
-                case '%':
-                    tokens.add(new Token(TokenType.MOD, "%"));
-                    advance();
-                    break;
-                case '=':
-                    if (peekNext() == '=') {
-                        tokens.add(new Token(TokenType.EQ, "=="));
-                        advance(2);
-                    }
+            switch (c < 0x80 ? ScannerTables.CLASS[c] : classifyNonAscii()) {
+                case ScannerTables.WHITESPACE:
+                    newline(c);
+                    advanceCodePoint(c);
                     break;
-                case '!':
-                    if (peekNext() == '=') {
-                        tokens.add(new Token(TokenType.NEQ, "!="));
-                        advance(2);
+                case ScannerTables.LETTER:
+                    return lexIdentifierOrKeyword();
+                case ScannerTables.DIGIT:
+                    return lexNumber();
+                case ScannerTables.QUOTE:
+                    return lexString();
+                case ScannerTables.APOSTROPHE:
+                    return lexChar();
+                case ScannerTables.OPERATOR:
+                    int accepted = lexOperator();
+                    if (accepted >= 0) {
+                        return TokenType.ofOrdinal(accepted);
                     }
-                    break;
-                case '<':
-                    if (peekNext() == '=') {
-                        tokens.add(new Token(TokenType.LE, "<="));
-                        advance(2);
+                    if (accepted == ScannerTables.LINE_COMMENT) {
+                        skipLineComment();
+                    } else if (accepted == ScannerTables.BLOCK_COMMENT) {
+                        skipBlockComment();
                     } else {
-                        tokens.add(new Token(TokenType.LT, "<"));
                         advance();
+                        return TokenType.ERROR;
                     }
                     break;
-                case '>':
-                    if (peekNext() == '=') {
-                        tokens.add(new Token(TokenType.GE, ">="));
-                        advance(2);
-                    } else {
-                        tokens.add(new Token(TokenType.GT, ">"));
-                        advance();
-                    }
-                    break;
-                case '(':
-                    tokens.add(new Token(TokenType.LPAREN, "("));
-                    advance();
-                    break;
-                case ')':
-                    tokens.add(new Token(TokenType.RPAREN, ")"));
-                    advance();
-                    break;
-                case '{':
-                    tokens.add(new Token(TokenType.LBRACE, "{"));
-                    advance();
-                    break;
-                case '}':
-                    tokens.add(new Token(TokenType.RBRACE, "}"));
-                    advance();
-                    break;
-                case '[':
-                    tokens.add(new Token(TokenType.LBRACKET, "["));
-                    advance();
-                    break;
-                case ']':
-                    tokens.add(new Token(TokenType.RBRACKET, "]"));
-                    advance();
-                    break;
-                case '"':
-                    tokens.add(lexString());
-                    break;
-                case '\'':
-                    tokens.add(lexChar());
-                    break;
                 default:
-                    throw new RuntimeException("Caractere inesperado: " + current);
+                    advanceCodePoint(peekCodePoint());
+                    return TokenType.ERROR;
             }
         }
+    }
 
-        tokens.add(new Token(TokenType.EOF, ""));
-        return tokens;
+    // Classe de um caractere não ASCII (só espaços, letras e dígitos Unicode são aceitos)
+    private byte classifyNonAscii() {
+        int c = source.codePointAt(position);
+        if (Character.isWhitespace(c)) {
+            return ScannerTables.WHITESPACE;
+        } else if (Character.isLetter(c)) {
+            return ScannerTables.LETTER;
+        } else if (Character.isDigit(c)) {
+            return ScannerTables.DIGIT;
+        }
+        return ScannerTables.INVALID;
     }
 
-    private Token lexIdentifierOrKeyword() {
-        StringBuilder sb = new StringBuilder();
+    // Roda o DFA de operadores pelo casamento mais longo; devolve o que foi aceito (ordinal do
+    // TokenType ou marcador de comentário) ou NO_TOKEN, voltando ao último estado de aceitação
+    private int lexOperator() {
+        int state = 0;
+        int accepted = ScannerTables.NO_TOKEN;
+        int acceptedEnd = position;
+        int c;
+        while ((c = peek()) >= 0 && c < 0x80) {
+            int target = ScannerTables.NEXT[state * 128 + c];
+            if (target < 0) {
+                break;
+            }
+            state = target;
+            advance();
+            if (ScannerTables.ACCEPT[state] != ScannerTables.NO_TOKEN) {
+                accepted = ScannerTables.ACCEPT[state];
+                acceptedEnd = position;
+            }
+        }
+        position = acceptedEnd;
+        return accepted;
+    }
 
-        while (Character.isLetterOrDigit(peek())) {
-            sb.append(peek());
+    private void skipLineComment() {
+        while (!atEnd() && peek() != '\n') {
             advance();
+            source.release(position);
         }
+    }
 
-        String lexeme = sb.toString();
-
-        switch (lexeme) {
-            case "program": return new Token(TokenType.PROGRAM, lexeme);
-            case "declarations": return new Token(TokenType.DECLARATIONS, lexeme);
-            case "endDeclararions": return new Token(TokenType.END_DECLARATIONS, lexeme);
-            case "functions": return new Token(TokenType.FUNCTIONS, lexeme);
-            case "endFunctions": return new Token(TokenType.END_FUNCTIONS, lexeme);
-            case "endProgram": return new Token(TokenType.END_PROGRAM, lexeme);
-            case "varType": return new Token(TokenType.VARTYPE, lexeme);
-            case "funcType": return new Token(TokenType.FUNCTYPE, lexeme);
-            case "paramType": return new Token(TokenType.PARAMTYPE, lexeme);
-            case "if": return new Token(TokenType.IF, lexeme);
-            case "else": return new Token(TokenType.ELSE, lexeme);
-            case "endIf": return new Token(TokenType.ENDIF, lexeme);
-            case "while": return new Token(TokenType.WHILE, lexeme);
-            case "endWhile": return new Token(TokenType.ENDWHILE, lexeme);
-            case "return": return new Token(TokenType.RETURN, lexeme);
-            case "break": return new Token(TokenType.BREAK, lexeme);
-            case "print": return new Token(TokenType.PRINT, lexeme);
-            case "real": return new Token(TokenType.REAL, lexeme);
-            case "integer": return new Token(TokenType.INTEGER, lexeme);
-            case "string": return new Token(TokenType.STRING, lexeme);
-            case "boolean": return new Token(TokenType.BOOLEAN, lexeme);
-            case "character": return new Token(TokenType.CHARACTER, lexeme);
-            case "void": return new Token(TokenType.VOID, lexeme);
-            case "true": return new Token(TokenType.TRUE, lexeme);
-            case "false": return new Token(TokenType.FALSE, lexeme);
-            default: return new Token(TokenType.IDENTIFIER, lexeme);
+    private void skipBlockComment() {
+        while (!atEnd() && !(peek() == '*' && peekNext() == '/')) {
+            newline(peek());
+            advance();
+            source.release(position);
         }
+        advance(2);
     }
 
-    private Token lexNumber() {
-        StringBuilder sb = new StringBuilder();
+    private TokenType lexIdentifierOrKeyword() {
+        // calcula o hash do nome enquanto varre, para internar sem criar String
+        int hash = 0;
+        boolean ascii = true;
+        int c;
+        while (isIdentifierPart(c = peek())) {
+            if (c < 0x80) {
+                hash = 31 * hash + c;
+                advance();
+            } else {
+                ascii = false;
+                advanceCodePoint(c);
+            }
+        }
 
-        while (Character.isDigit(peek())) {
-            sb.append(peek());
-            advance();
+        if (!ascii) {
+            // palavras-chave são ASCII
+            nameId = names.intern(source.substring(tokenStart, position));
+            return TokenType.IDENTIFIER;
+        }
+        TokenType keyword = Keywords.match(source, tokenStart, position);
+        if (keyword != null) {
+            return keyword;
+        }
+        nameId = names.intern(source, tokenStart, position, hash);
+        return TokenType.IDENTIFIER;
+    }
+
+    private TokenType lexNumber() {
+        int c;
+        while (isDigit(c = peek())) {
+            advanceCodePoint(c);
         }
 
         if (peek() == '.') {
-            sb.append('.');
             advance();
-            while (Character.isDigit(peek())) {
-                sb.append(peek());
-                advance();
+            while (isDigit(c = peek())) {
+                advanceCodePoint(c);
             }
-            return new Token(TokenType.REAL_CONST, sb.toString());
+            return TokenType.REAL_CONST;
         }
 
-        return new Token(TokenType.INT_CONST, sb.toString());
+        return TokenType.INT_CONST;
     }
 
-    private Token lexString() {
+    private TokenType lexString() {
         advance(); // pula o "
-        StringBuilder sb = new StringBuilder();
-        while (peek() != '"') {
-            sb.append(peek());
-            advance();
+        int c;
+        while ((c = peekCodePoint()) != '"') {
+            if (c < 0) {
+                return TokenType.ERROR;
+            }
+            newline(c);
+            advanceCodePoint(c);
         }
         advance(); // pula o "
-        return new Token(TokenType.STRING_CONST, sb.toString());
+        return TokenType.STRING_CONST;
     }
 
-    private Token lexChar() {
+    private TokenType lexChar() {
         advance(); // pula o '
-        char c = peek();
-        advance();
+        int c = peekCodePoint();
+        if (c < 0) {
+            return TokenType.ERROR;
+        }
+        newline(c);
+        advanceCodePoint(c);
+        if (peek() != '\'') {
+            // sem o ' de fechamento o erro termina no caractere: o que vem depois (uma quebra de linha, o
+            // resto de 'ab') é analisado normalmente
+            return TokenType.ERROR;
+        }
         advance(); // pula o '
-        return new Token(TokenType.CHAR_CONST, String.valueOf(c));
+        return TokenType.CHAR_CONST;
+    }
+
+    // Letra ou dígito: tabela para ASCII, Character para o resto
+    private boolean isIdentifierPart(int c) {
+        if (c < 0x80) {
+            return c >= 0 && (ScannerTables.CLASS[c] == ScannerTables.LETTER || ScannerTables.CLASS[c] == ScannerTables.DIGIT);
+        }
+        return Character.isLetterOrDigit(source.codePointAt(position));
+    }
+
+    private boolean isDigit(int c) {
+        if (c < 0x80) {
+            return c >= 0 && ScannerTables.CLASS[c] == ScannerTables.DIGIT;
+        }
+        return Character.isDigit(source.codePointAt(position));
     }
 
-    private char peek() {
-        return input.charAt(position);
+    // Anota as quebras de linha de uma fonte em fluxo, inclusive dentro de comentários, strings e caracteres
+    private void newline(int c) {
+        if (c == '\n' && recordLines) {
+            lines.add(position + 1);
+        }
+    }
+
+    private boolean atEnd() {
+        return source.charAt(position) < 0;
+    }
+
+    // Unidade atual da fonte (-1 no fim); para ASCII é o próprio caractere
+    private int peek() {
+        return source.charAt(position);
+    }
+
+    private int peekNext() {
+        return source.charAt(position + 1);
     }
 
-    private char peekNext() {
-        return position + 1 < input.length() ? input.charAt(position + 1) : '\0';
+    // Caminho rápido para ASCII; só decodifica quando a unidade não é ASCII
+    private int peekCodePoint() {
+        int c = source.charAt(position);
+        return c < 0x80 ? c : source.codePointAt(position);
+    }
+
+    private void advanceCodePoint(int codePoint) {
+        position = codePoint < 0x80 ? position + 1 : source.nextIndex(position);
     }
 
     private void advance() {
@@ -256,15 +381,4 @@ public class Lexer {
         position += steps;
     }
 
-    // Retorna um token por vez (para o Parser)
-    public Token nextToken() {
-        if (tokens == null) {
-            tokens = tokenize();
-        }
-        if (currentIndex < tokens.size()) {
-            return tokens.get(currentIndex++);
-        }
-        return new Token(TokenType.EOF, "");
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package lexer;
+
+import java.util.Arrays;
+
+// Início de cada linha da fonte (a posição logo depois de cada '\n'). Os tokens só guardam a posição;
+// linha e coluna são calculadas por busca binária quando alguém precisa delas (mensagens de erro, .lex com
+// --lex-positions). Numa fonte com acesso aleatório o índice é montado sob demanda, percorrendo a fonte só
+// até a posição pedida: sem erros nem --lex-positions, a análise não guarda nada por linha. Uma fonte em
+// fluxo (ReaderSource) já descartou o texto quando a posição é pedida, então nela o Lexer anota as quebras
+// de linha à medida que passa por elas, se o índice foi pedido antes da análise: um int por linha. As
+// colunas contam caracteres (code points) desde o início da linha; sem a fonte (fluxo, .lexb) contam as
+// unidades dela, chars ou bytes. Não é seguro entre threads.
+public final class LineIndex {
+    // fonte percorrida sob demanda; null quando as linhas são anotadas com add()
+    private final Source source;
+    private int[] starts = new int[256];
+    private int count = 1;
+    // posições da fonte já percorridas em busca de '\n'
+    private int scanned = 0;
+    // última coluna calculada, de onde a próxima continua na mesma linha: o .lex pede posições crescentes
+    private int columnPosition = -1;
+    private int column;
+
+    // Linhas anotadas com add() (fonte em fluxo, .lexb)
+    LineIndex() {
+        this(null);
+    }
+
+    // Linhas achadas em 'source', que precisa ter acesso aleatório, à medida que são pedidas
+    LineIndex(Source source) {
+        this.source = source;
+    }
+
+    // Nova linha começando em 'start'; as posições chegam em ordem crescente
+    void add(int start) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = start;
+    }
+
+    // Acha as linhas que começam até 'position', inclusive
+    private void scanTo(int position) {
+        if (source == null) {
+            return;
+        }
+        for (int c; scanned < position && (c = source.charAt(scanned)) >= 0; scanned++) {
+            if (c == '\n') {
+                add(scanned + 1);
+            }
+        }
+    }
+
+    // Linhas da fonte (com anotação, as conhecidas até aqui; pelo menos 1)
+    public int getLineCount() {
+        scanTo(Integer.MAX_VALUE);
+        return count;
+    }
+
+    // Posição onde a linha começa, a partir de 1
+    public int getLineStart(int line) {
+        if (line > count) {
+            getLineCount();
+        }
+        return starts[line - 1];
+    }
+
+    // Linha da posição, a partir de 1
+    public int getLine(int position) {
+        scanTo(position);
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    // Coluna da posição, a partir de 1
+    public int getColumn(int position) {
+        int lineStart = starts[getLine(position) - 1];
+        if (source == null) {
+            return position - lineStart + 1;
+        }
+        int i = lineStart;
+        int counted = 1;
+        if (columnPosition >= lineStart && columnPosition <= position) {
+            i = columnPosition;
+            counted = column;
+        }
+        for (; i < position; counted++) {
+            int c = source.charAt(i);
+            i = c < 0x80 ? i + 1 : source.nextIndex(i);
+        }
+        columnPosition = position;
+        column = counted;
+        return counted;
+    }
+}
@@ -0,0 +1,113 @@
+package lexer;
+
+import java.util.Arrays;
+
+// Interna identificadores em ids int densos (0, 1, 2, ...) usando uma tabela de endereçamento aberto.
+// Cada nome distinto vira String uma única vez. Não é thread-safe.
+public final class NamePool {
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+
+    // cada posição guarda id + 1 (0 = vazia)
+    private int[] slots = new int[512];
+    private int mask = slots.length - 1;
+
+    public int intern(String name) {
+        int hash = hash(name.hashCode());
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(name, hash, slot);
+    }
+
+    // Interna o trecho ASCII [start, end) da fonte; 'stringHash' é o String.hashCode() do trecho,
+    // já calculado pelo Lexer durante a varredura. Só cria a String se o nome for novo.
+    int intern(Source source, int start, int end, int stringHash) {
+        int hash = hash(stringHash);
+        int length = end - start;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], source, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(source.substring(start, end), hash, slot);
+    }
+
+    // Id do nome, ou -1 se ele nunca foi internado
+    public int find(String name) {
+        int hash = hash(name.hashCode());
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String get(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String name, Source source, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    // espalha os bits altos do hash de String, para a máscara usar todos eles
+    static int hash(int stringHash) {
+        return stringHash ^ (stringHash >>> 16);
+    }
+}
@@ -0,0 +1,171 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Análise léxica paralela de uma fonte grande. A fonte é cortada em blocos logo após quebras de
+// linha e cada bloco é analisado de forma especulativa, como se começasse fora de comentários e
+// strings. Na costura, em ordem, cada bloco só é aproveitado a partir do primeiro token que começa
+// exatamente onde o bloco anterior terminou: como o Lexer não guarda estado entre tokens, dali em
+// diante os tokens são os mesmos da análise sequencial. Se o corte caiu dentro de um comentário ou
+// string e não há esse ponto em comum, o trecho é refeito sequencialmente até reencontrar o bloco.
+// O resultado é idêntico ao de Lexer.tokenizeToBuffer(), inclusive nos ids de NamePool e nos tokens
+// ERROR (os de um bloco desalinhado são descartados com o resto dele).
+public final class ParallelLexer {
+    // abaixo disso não compensa dividir
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private ParallelLexer() {
+    }
+
+    public static TokenBuffer tokenize(Source source, NamePool names) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return tokenize(source, names, pool, pool.getParallelism() * 2, MIN_CHUNK_SIZE);
+    }
+
+    static TokenBuffer tokenize(Source source, NamePool names, ExecutorService executor, int chunkCount, int minChunkSize) {
+        int length = source.length();
+        if (!source.isRandomAccess() || length < 0) {
+            throw new IllegalArgumentException("Análise paralela requer uma fonte com acesso aleatório");
+        }
+        int[] bounds = boundaries(source, length, Math.max(1, Math.min(chunkCount, length / Math.max(1, minChunkSize))));
+        if (bounds.length == 2) {
+            return new Lexer(source, names).tokenizeToBuffer();
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            boolean last = i + 2 == bounds.length;
+            chunks.add(new Chunk(source, bounds[i], last ? Integer.MAX_VALUE : bounds[i + 1]));
+        }
+        try {
+            List<Future<Chunk>> done = executor.invokeAll(chunks);
+            for (Future<Chunk> future : done) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Análise léxica interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return stitch(source, names, chunks);
+    }
+
+    // Posições de corte: 0, o início da linha seguinte a cada fração da fonte, e o fim
+    private static int[] boundaries(Source source, int length, int chunkCount) {
+        int[] bounds = new int[chunkCount + 1];
+        int count = 1;
+        for (int i = 1; i < chunkCount; i++) {
+            int at = Math.max((int) ((long) length * i / chunkCount), bounds[count - 1] + 1);
+            while (at < length && source.charAt(at - 1) != '\n') {
+                at++;
+            }
+            if (at >= length) {
+                break;
+            }
+            bounds[count++] = at;
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static TokenBuffer stitch(Source source, NamePool names, List<Chunk> chunks) {
+        TokenBuffer out = new TokenBuffer(source, names);
+        // início do próximo token da análise sequencial
+        int expected = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            boolean last = i == chunks.size() - 1;
+            int from = i == 0 ? 0 : chunk.tokens.indexOfStart(expected);
+
+            if (from < 0) {
+                // sem ponto em comum: refaz sequencialmente até reencontrar um token do bloco
+                Lexer lexer = new Lexer(source, names, expected);
+                while (true) {
+                    TokenType type = lexer.next();
+                    int start = lexer.getStart();
+                    if (start >= chunk.limit) {
+                        expected = start;
+                        break;
+                    }
+                    from = chunk.tokens.indexOfStart(start);
+                    if (from >= 0) {
+                        break;
+                    }
+                    out.add(type, start, lexer.getEnd(), lexer.getNameId());
+                    if (type == TokenType.EOF) {
+                        return out;
+                    }
+                }
+                if (from < 0) {
+                    continue;
+                }
+            }
+
+            chunk.appendTo(out, from, names);
+            if (last) {
+                return out;
+            }
+            expected = chunk.stop;
+        }
+        return out;
+    }
+
+    private static final class Chunk implements Callable<Chunk> {
+        private final Source source;
+        private final int begin;
+        // só entram tokens que começam antes de 'limit'
+        private final int limit;
+        private final NamePool names = new NamePool();
+        private TokenBuffer tokens;
+        // início do primeiro token em 'limit' ou depois
+        private int stop;
+
+        Chunk(Source source, int begin, int limit) {
+            this.source = source;
+            this.begin = begin;
+            this.limit = limit;
+        }
+
+        @Override
+        public Chunk call() {
+            tokens = new TokenBuffer(source, names);
+            Lexer lexer = new Lexer(source, names, begin);
+            while (true) {
+                TokenType type = lexer.next();
+                if (lexer.getStart() >= limit) {
+                    stop = lexer.getStart();
+                    break;
+                }
+                tokens.add(type, lexer.getStart(), lexer.getEnd(), lexer.getNameId());
+                if (type == TokenType.EOF) {
+                    break;
+                }
+            }
+            return this;
+        }
+
+        // Copia os tokens a partir de 'from', traduzindo os ids locais para o pool global
+        void appendTo(TokenBuffer out, int from, NamePool global) {
+            int[] remap = new int[names.size()];
+            Arrays.fill(remap, -1);
+            for (int i = from; i < tokens.size(); i++) {
+                int id = tokens.getNameId(i);
+                if (id >= 0) {
+                    if (remap[id] < 0) {
+                        remap[id] = global.intern(names.get(id));
+                    }
+                    id = remap[id];
+                }
+                out.add(tokens.getType(i), tokens.getStart(i), tokens.getEnd(i), id);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+// Fonte em fluxo: mantém só uma janela limitada da entrada, recarregada do Reader sob demanda.
+// Posições anteriores à última chamada de release() podem ser descartadas.
+final class ReaderSource extends Source {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    // buffer[0] corresponde à posição bufferStart da entrada
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int bufferStart = 0;
+    private int bufferLimit = 0;
+    private int released = 0;
+    private boolean endOfInput = false;
+
+    ReaderSource(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int charAt(int index) {
+        return ensure(index) ? buffer[index - bufferStart] : -1;
+    }
+
+    @Override
+    public int codePointAt(int index) {
+        ensure(index);
+        char high = buffer[index - bufferStart];
+        if (Character.isHighSurrogate(high) && ensure(index + 1)) {
+            char low = buffer[index + 1 - bufferStart];
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public int nextIndex(int index) {
+        return index + Character.charCount(codePointAt(index));
+    }
+
+    @Override
+    public String substring(int start, int end) {
+        ensure(end - 1);
+        return new String(buffer, start - bufferStart, end - start);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void release(int index) {
+        released = index;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Garante que a posição 'index' está na janela, recarregando do Reader se preciso
+    private boolean ensure(int index) {
+        while (index >= bufferStart + bufferLimit) {
+            if (endOfInput) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    private void fill() {
+        // descarta o que já foi liberado; a janela só cresce se um único token não couber nela
+        int keep = Math.max(0, Math.min(released, bufferStart + bufferLimit) - bufferStart);
+        if (keep == 0 && bufferLimit == buffer.length) {
+            char[] larger = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, bufferLimit);
+            buffer = larger;
+        } else {
+            System.arraycopy(buffer, keep, buffer, 0, bufferLimit - keep);
+            bufferStart += keep;
+            bufferLimit -= keep;
+        }
+        try {
+            int read = reader.read(buffer, bufferLimit, buffer.length - bufferLimit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                bufferLimit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
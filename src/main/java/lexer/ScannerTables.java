@@ -0,0 +1,91 @@
+package lexer;
+
+import java.util.Arrays;
+
+// Tabelas do scanner: classe de cada caractere ASCII e o autômato (DFA) dos operadores e
+// pontuações, montado a partir dos textos fixos de TokenType.
+final class ScannerTables {
+    static final byte INVALID = 0;
+    static final byte WHITESPACE = 1;
+    static final byte LETTER = 2;
+    static final byte DIGIT = 3;
+    static final byte QUOTE = 4;
+    static final byte APOSTROPHE = 5;
+    static final byte OPERATOR = 6;
+
+    // classe de cada caractere ASCII
+    static final byte[] CLASS = new byte[128];
+
+    // aceitações especiais do DFA, além dos ordinais de TokenType
+    static final int NO_TOKEN = -1;
+    static final int LINE_COMMENT = -2;
+    static final int BLOCK_COMMENT = -3;
+
+    // transições do DFA de operadores: NEXT[estado * 128 + c] (-1 = sem transição); estado 0 é o inicial
+    static final int[] NEXT;
+    // o que cada estado reconhece: ordinal de TokenType, um dos comentários ou NO_TOKEN
+    static final int[] ACCEPT;
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) {
+                CLASS[c] = WHITESPACE;
+            } else if (Character.isLetter(c)) {
+                CLASS[c] = LETTER;
+            } else if (Character.isDigit(c)) {
+                CLASS[c] = DIGIT;
+            }
+        }
+        CLASS['"'] = QUOTE;
+        CLASS['\''] = APOSTROPHE;
+
+        // cada texto cria no máximo um estado por caractere
+        int maxStates = 1 + "//".length() + "/*".length();
+        for (TokenType type : TokenType.values()) {
+            if (isOperator(type)) {
+                maxStates += type.getText().length();
+            }
+        }
+        NEXT = new int[maxStates * 128];
+        ACCEPT = new int[maxStates];
+        Arrays.fill(NEXT, -1);
+        Arrays.fill(ACCEPT, NO_TOKEN);
+
+        int states = 1;
+        for (TokenType type : TokenType.values()) {
+            if (isOperator(type)) {
+                states = addPath(states, type.getText(), type.ordinal());
+            }
+        }
+        states = addPath(states, "//", LINE_COMMENT);
+        addPath(states, "/*", BLOCK_COMMENT);
+
+        for (int c = 0; c < 128; c++) {
+            if (NEXT[c] >= 0) {
+                CLASS[c] = OPERATOR;
+            }
+        }
+    }
+
+    private ScannerTables() {
+    }
+
+    private static boolean isOperator(TokenType type) {
+        String text = type.getText();
+        return text != null && !text.isEmpty() && !Character.isLetter(text.charAt(0));
+    }
+
+    // Cria (ou reaproveita) os estados que levam do estado inicial até 'text'; devolve o novo total de estados
+    private static int addPath(int states, String text, int accept) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i);
+            if (NEXT[state * 128 + c] < 0) {
+                NEXT[state * 128 + c] = states++;
+            }
+            state = NEXT[state * 128 + c];
+        }
+        ACCEPT[state] = accept;
+        return states;
+    }
+}
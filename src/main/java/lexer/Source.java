@@ -0,0 +1,87 @@
+package lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Entrada do Lexer, endereçada por posição em "unidades" (char ou byte, conforme a implementação).
+// Unidades abaixo de 0x80 são sempre o próprio caractere ASCII; acima disso o Lexer
+// pede o code point completo com codePointAt() e avança com nextIndex().
+public abstract class Source implements Closeable {
+
+    // arquivos menores que isso são lidos para o heap; maiores são mapeados em memória
+    static final int MAP_THRESHOLD = 256 * 1024;
+
+    // Tamanho total em unidades, ou -1 se não é conhecido de antemão (fonte em fluxo)
+    public int length() {
+        return -1;
+    }
+
+    // Unidade na posição 'index', ou -1 no fim da entrada
+    public abstract int charAt(int index);
+
+    // Code point que começa em 'index' (só é chamado quando charAt(index) >= 0x80)
+    public abstract int codePointAt(int index);
+
+    // Posição logo após o code point que começa em 'index'
+    public abstract int nextIndex(int index);
+
+    // Texto entre as posições [start, end)
+    public abstract String substring(int start, int end);
+
+    // Lexema de um token nas posições [start, end): o texto fixo do tipo, se houver; sem as aspas
+    // para constantes de string e caractere; o próprio trecho da fonte nos demais casos
+    String lexeme(TokenType type, int start, int end) {
+        String text = type.getText();
+        if (text != null) {
+            return text;
+        }
+        if (type == TokenType.STRING_CONST || type == TokenType.CHAR_CONST) {
+            return substring(start + 1, end - 1);
+        }
+        return substring(start, end);
+    }
+
+    // Se posições já lidas continuam acessíveis (falso para fontes em fluxo)
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    // Indica que o Lexer não voltará mais a posições anteriores a 'index'
+    public void release(int index) {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    public static Source of(CharSequence text) {
+        return new StringSource(text);
+    }
+
+    // Abre um arquivo-fonte em UTF-8: mapeado em memória se for grande, lido de uma vez se for pequeno
+    public static Source open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // além do alcance de um único mapeamento: lê em fluxo
+                FileChannel streaming = FileChannel.open(path, StandardOpenOption.READ);
+                return new ReaderSource(Channels.newReader(streaming, StandardCharsets.UTF_8.newDecoder(), -1));
+            }
+            if (size >= MAP_THRESHOLD) {
+                return new ByteSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // lê até preencher
+            }
+            bytes.flip();
+            return new ByteSource(bytes);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package lexer;
+
+// Fonte sobre um texto já em memória
+final class StringSource extends Source {
+    private final CharSequence text;
+
+    StringSource(CharSequence text) {
+        this.text = text;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public int charAt(int index) {
+        return index < text.length() ? text.charAt(index) : -1;
+    }
+
+    @Override
+    public int codePointAt(int index) {
+        return Character.codePointAt(text, index);
+    }
+
+    @Override
+    public int nextIndex(int index) {
+        return index + Character.charCount(codePointAt(index));
+    }
+
+    @Override
+    public String substring(int start, int end) {
+        return text.subSequence(start, end).toString();
+    }
+}
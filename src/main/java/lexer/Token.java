@@ -1,12 +1,19 @@
 package lexer;
 
+// Token como objeto: a posição é só o início na fonte; linha e coluna saem do LineIndex do Lexer
 public class Token {
     private TokenType type;
     private String lexeme;
+    private int offset;
 
     public Token(TokenType type, String lexeme) {
+        this(type, lexeme, -1);
+    }
+
+    public Token(TokenType type, String lexeme, int offset) {
         this.type = type;
         this.lexeme = lexeme;
+        this.offset = offset;
     }
 
     public TokenType getType() {
@@ -17,8 +24,13 @@ public class Token {
         return lexeme;
     }
 
+    // Início do token na fonte, ou -1 se não é conhecido
+    public int getOffset() {
+        return offset;
+    }
+
     @Override
     public String toString() {
-        return String.format("Token(%s, '%s')", type, lexeme);
+        return "Token(" + type.name() + ", '" + lexeme + "')";
     }
 }
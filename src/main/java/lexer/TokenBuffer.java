@@ -0,0 +1,173 @@
+package lexer;
+
+import java.util.Arrays;
+
+// Armazena tokens em arrays paralelos de int (tipo, início e fim na fonte, id do nome), crescendo em blocos
+// de tamanho fixo, sem copiar o que já foi gravado. Os lexemas são lidos da fonte só quando pedidos,
+// então a fonte precisa continuar acessível (não pode ser em fluxo).
+public class TokenBuffer {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Source source;
+    private final NamePool names;
+    private final LineIndex lines;
+    private int[][] types = new int[8][];
+    private int[][] starts = new int[8][];
+    private int[][] ends = new int[8][];
+    private int[][] nameIds = new int[8][];
+    private int size = 0;
+
+    public TokenBuffer(Source source, NamePool names) {
+        if (!source.isRandomAccess()) {
+            throw new IllegalArgumentException("TokenBuffer requer uma fonte com acesso aleatório");
+        }
+        this.source = source;
+        this.names = names;
+        this.lines = new LineIndex(source);
+    }
+
+    public void add(TokenType type, int start, int end, int nameId) {
+        int chunk = size >>> CHUNK_BITS;
+        int index = size & CHUNK_MASK;
+        if (index == 0) {
+            newChunk(chunk);
+        }
+        types[chunk][index] = type.ordinal();
+        starts[chunk][index] = start;
+        ends[chunk][index] = end;
+        nameIds[chunk][index] = nameId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int i) {
+        return TokenType.ofOrdinal(types[i >>> CHUNK_BITS][i & CHUNK_MASK]);
+    }
+
+    public int getStart(int i) {
+        return starts[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public int getEnd(int i) {
+        return ends[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    // Índice do token que começa em 'start', ou -1 (os inícios são crescentes)
+    int indexOfStart(int start) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midStart = getStart(mid);
+            if (midStart < start) {
+                low = mid + 1;
+            } else if (midStart > start) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getNameId(int i) {
+        return nameIds[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public String getLexeme(int i) {
+        int nameId = getNameId(i);
+        return nameId >= 0 ? names.get(nameId) : source.lexeme(getType(i), getStart(i), getEnd(i));
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public NamePool getNames() {
+        return names;
+    }
+
+    // Inícios de linha da fonte, achados sob demanda
+    public LineIndex getLines() {
+        return lines;
+    }
+
+    // Cursor que percorre o buffer do início; o primeiro next() posiciona no primeiro token
+    public TokenCursor cursor() {
+        return new Cursor(-1);
+    }
+
+    // Cursor cujo primeiro next() posiciona no token 'index'
+    public Cursor cursor(int index) {
+        return new Cursor(index - 1);
+    }
+
+    private void newChunk(int chunk) {
+        if (chunk == types.length) {
+            types = Arrays.copyOf(types, chunk * 2);
+            starts = Arrays.copyOf(starts, chunk * 2);
+            ends = Arrays.copyOf(ends, chunk * 2);
+            nameIds = Arrays.copyOf(nameIds, chunk * 2);
+        }
+        types[chunk] = new int[CHUNK_SIZE];
+        starts[chunk] = new int[CHUNK_SIZE];
+        ends[chunk] = new int[CHUNK_SIZE];
+        nameIds[chunk] = new int[CHUNK_SIZE];
+    }
+
+    // Cursor sobre o buffer; getIndex() informa o token atual
+    public final class Cursor implements TokenCursor {
+        private int index;
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public TokenType next() {
+            if (index < size - 1) {
+                index++;
+            }
+            return getType();
+        }
+
+        @Override
+        public TokenType getType() {
+            return index < 0 ? TokenType.EOF : TokenBuffer.this.getType(index);
+        }
+
+        @Override
+        public int getStart() {
+            return TokenBuffer.this.getStart(index);
+        }
+
+        @Override
+        public int getEnd() {
+            return TokenBuffer.this.getEnd(index);
+        }
+
+        @Override
+        public String getLexeme() {
+            return TokenBuffer.this.getLexeme(index);
+        }
+
+        @Override
+        public int getNameId() {
+            return TokenBuffer.this.getNameId(index);
+        }
+
+        @Override
+        public NamePool getNames() {
+            return names;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package lexer;
+
+// Leitura de tokens sem criar objetos Token: o cursor fica parado sobre o token atual.
+// O lexema só é montado quando pedido e vale até a próxima chamada de next().
+public interface TokenCursor {
+
+    // Avança para o próximo token e devolve seu tipo (EOF indefinidamente no fim)
+    TokenType next();
+
+    TokenType getType();
+
+    // Posições [start, end) do token na fonte
+    int getStart();
+
+    int getEnd();
+
+    String getLexeme();
+
+    // Id do identificador em getNames(); -1 se o token não for IDENTIFIER
+    int getNameId();
+
+    NamePool getNames();
+}
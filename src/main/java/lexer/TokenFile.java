@@ -0,0 +1,197 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Leitura de um arquivo binário de tokens (.lexb, gravado com --lex-binary), mapeado em memória. O próprio
+// TokenFile é o cursor: next() decodifica o token seguinte direto do mapeamento, sem criar objetos; cada
+// string da tabela só vira String na primeira vez que é pedida. Formato (big-endian):
+//   cabeçalho (HEADER_SIZE bytes): MAGIC, VERSION, número de tipos de token, de tokens, de nomes, de
+//       literais e de linhas (int cada); posições da tabela de strings e dos inícios de linha (long cada,
+//       a segunda 0 se o arquivo não tem as linhas)
+//   tokens: tipo (1 byte); distância do fim do token anterior até o início e comprimento (varints); se o
+//       tipo não tem lexema fixo, o id do nome (IDENTIFIER) ou do literal (varint)
+//   tabela de strings: a posição (int, relativa ao fim desse índice) de cada nome e depois de cada
+//       literal; em seguida as strings, cada uma com o comprimento em bytes (varint) e os bytes em UTF-8
+//   inícios de linha (com --lex-positions): distância de cada um ao anterior, a partir da linha 2 (varints)
+// Os varints têm 7 bits por byte, o mais alto indicando que há mais bytes.
+public final class TokenFile implements TokenCursor {
+    public static final int MAGIC = 0x4C455842; // "LEXB"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 44;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final ByteBuffer data;
+    private final int tokenCount;
+    private final int nameCount;
+    private final int literalCount;
+    private final int lineCount;
+    private final int stringIndex;
+    private final int stringData;
+    private final int linesOffset;
+
+    private final String[] strings;
+    private NamePool names;
+    private LineIndex lines;
+
+    // token atual
+    private int index = -1;
+    private int offset = HEADER_SIZE;
+    private TokenType type = TokenType.EOF;
+    private int start;
+    private int end;
+    private int id = -1;
+
+    private TokenFile(ByteBuffer data, Path path) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Não é um arquivo de tokens: " + path);
+        }
+        if (data.getInt(4) != VERSION || data.getInt(8) != TYPES.length) {
+            throw new IOException("Versão de arquivo de tokens não suportada: " + path);
+        }
+        tokenCount = data.getInt(12);
+        nameCount = data.getInt(16);
+        literalCount = data.getInt(20);
+        lineCount = data.getInt(24);
+        stringIndex = (int) data.getLong(28);
+        stringData = stringIndex + 4 * (nameCount + literalCount);
+        linesOffset = (int) data.getLong(36);
+        strings = new String[nameCount + literalCount];
+    }
+
+    public static TokenFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo de tokens grande demais: " + path);
+            }
+            return new TokenFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), path);
+        }
+    }
+
+    // Número de tokens (sem contar o EOF)
+    public int size() {
+        return tokenCount;
+    }
+
+    // Índice do token atual; -1 antes do primeiro next()
+    public int getIndex() {
+        return index;
+    }
+
+    // Volta para antes do primeiro token
+    public void rewind() {
+        index = -1;
+        offset = HEADER_SIZE;
+        type = TokenType.EOF;
+        start = 0;
+        end = 0;
+        id = -1;
+    }
+
+    @Override
+    public TokenType next() {
+        if (index + 1 >= tokenCount) {
+            index = tokenCount;
+            type = TokenType.EOF;
+            start = end;
+            id = -1;
+            return type;
+        }
+        index++;
+        type = TYPES[data.get(offset++)];
+        start = end + readVarint();
+        end = start + readVarint();
+        id = type.getText() == null ? readVarint() : -1;
+        return type;
+    }
+
+    @Override
+    public TokenType getType() {
+        return type;
+    }
+
+    @Override
+    public int getStart() {
+        return start;
+    }
+
+    @Override
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public String getLexeme() {
+        if (type.getText() != null) {
+            return type.getText();
+        }
+        return type == TokenType.IDENTIFIER ? getString(id) : getString(nameCount + id);
+    }
+
+    @Override
+    public int getNameId() {
+        return type == TokenType.IDENTIFIER ? id : -1;
+    }
+
+    // Os nomes do arquivo, internados na ordem dos ids (montado na primeira chamada)
+    @Override
+    public NamePool getNames() {
+        if (names == null) {
+            names = new NamePool();
+            for (int i = 0; i < nameCount; i++) {
+                names.intern(getString(i));
+            }
+        }
+        return names;
+    }
+
+    // Inícios de linha da fonte, ou null se o arquivo foi gravado sem --lex-positions (sem a fonte, as
+    // colunas contam bytes)
+    public LineIndex getLines() {
+        if (lines == null && linesOffset != 0) {
+            lines = new LineIndex();
+            int saved = offset;
+            offset = linesOffset;
+            int lineStart = 0;
+            for (int i = 1; i < lineCount; i++) {
+                lineStart += readVarint();
+                lines.add(lineStart);
+            }
+            offset = saved;
+        }
+        return lines;
+    }
+
+    // String 'i' da tabela: os nomes vêm antes dos literais
+    private String getString(int i) {
+        String string = strings[i];
+        if (string == null) {
+            int saved = offset;
+            offset = stringData + data.getInt(stringIndex + 4 * i);
+            byte[] bytes = new byte[readVarint()];
+            data.get(offset, bytes);
+            offset = saved;
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[i] = string;
+        }
+        return string;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        while ((b = data.get(offset++)) < 0) {
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value | (b << shift);
+    }
+}
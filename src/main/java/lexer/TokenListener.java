@@ -0,0 +1,8 @@
+package lexer;
+
+// Recebe cada token no momento em que o Lexer o produz (ex.: gravação do .lex).
+// O cursor só é válido durante a chamada.
+@FunctionalInterface
+public interface TokenListener {
+    void onToken(TokenCursor token);
+}
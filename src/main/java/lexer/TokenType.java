@@ -1,25 +1,47 @@
 package lexer;
 
 public enum TokenType {
-    PROGRAM, DECLARATIONS, END_DECLARATIONS,
-    FUNCTIONS, END_FUNCTIONS, END_PROGRAM,
-    VARTYPE, FUNCTYPE, PARAMTYPE,
-    IF, ELSE, ENDIF, WHILE, ENDWHILE,
-    RETURN, BREAK, PRINT,
+    PROGRAM("program"), DECLARATIONS("declarations"), END_DECLARATIONS("endDeclararions"),
+    FUNCTIONS("functions"), END_FUNCTIONS("endFunctions"), END_PROGRAM("endProgram"),
+    VARTYPE("varType"), FUNCTYPE("funcType"), PARAMTYPE("paramType"),
+    IF("if"), ELSE("else"), ENDIF("endIf"), WHILE("while"), ENDWHILE("endWhile"),
+    RETURN("return"), BREAK("break"), PRINT("print"),
 
     // Tipos
-    REAL, INTEGER, STRING, BOOLEAN, CHARACTER, VOID,
+    REAL("real"), INTEGER("integer"), STRING("string"), BOOLEAN("boolean"), CHARACTER("character"), VOID("void"),
 
     // Operadores
-    ASSIGN, // :=
-    ADD, SUB, MUL, DIV, MOD,
-    LT, GT, LE, GE, EQ, NEQ,
-    COMMA, SEMICOLON, COLON,
-    LBRACKET, RBRACKET, LPAREN, RPAREN, LBRACE, RBRACE,
+    ASSIGN(":="), // :=
+    ADD("+"), SUB("-"), MUL("*"), DIV("/"), MOD("%"),
+    LT("<"), GT(">"), LE("<="), GE(">="), EQ("=="), NEQ("!="),
+    COMMA(","), SEMICOLON(";"), COLON(":"),
+    LBRACKET("["), RBRACKET("]"), LPAREN("("), RPAREN(")"), LBRACE("{"), RBRACE("}"),
 
     // Identificadores e valores
-    IDENTIFIER, INT_CONST, REAL_CONST, STRING_CONST, CHAR_CONST, TRUE, FALSE,
+    IDENTIFIER, INT_CONST, REAL_CONST, STRING_CONST, CHAR_CONST, TRUE("true"), FALSE("false"),
 
     // Outros
-    EOF,
+    ERROR, // trecho da fonte que não forma token (Lexer.describeError dá a mensagem)
+    EOF("");
+
+    private static final TokenType[] VALUES = values();
+
+    private final String text;
+
+    TokenType() {
+        this(null);
+    }
+
+    TokenType(String text) {
+        this.text = text;
+    }
+
+    // Lexema fixo (palavra-chave ou pontuação); null quando o lexema depende da fonte
+    public String getText() {
+        return text;
+    }
+
+    static TokenType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
 }
@@ -1,5 +1,370 @@
 package main;
 
+import ast.Ast;
+import ast.TypeChecker;
+import jvm.ClassGenerator;
+import lexer.Lexer;
+import lexer.ParallelLexer;
+import lexer.Source;
+import lexer.TokenBuffer;
+import lexer.TokenCursor;
+import lexer.TokenType;
+import opt.PassManager;
+import parser.Diagnostics;
+import parser.ParallelParser;
+import parser.ParserImpl;
+import symboltable.SymbolInterface;
+import symboltable.SymbolTable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compila um arquivo .251: gera o .lex e o .tab ao lado dele (o .sym com --sym e o .class do programa
+// com --jvm). Cada chamada usa seus próprios Lexer, ParserImpl e SymbolTable, então várias compilações
+// podem rodar em paralelo, e um erro em um arquivo nunca afeta os outros. Os erros léxicos e sintáticos
+// são coletados numa única passada (até --max-errors); com algum, o .lex é gravado e o resto não. Com
+// --cache, um arquivo já compilado com o mesmo conteúdo e as mesmas opções tem as saídas e os erros
+// restaurados do CompileCache.
 public class Compilador {
+    private final Options options;
+    private final CompileCache cache;
+    private final List<SymbolInterface> imports;
+
+    public Compilador() {
+        this(new Options());
+    }
+
+    public Compilador(Options options) {
+        this(options, null);
+    }
+
+    // 'cache': cache de compilações (--cache), que pode ser dividido entre compilações simultâneas;
+    // null sem cache
+    public Compilador(Options options, CompileCache cache) {
+        this(options, cache, List.of());
+    }
+
+    // 'imports': interfaces de --import, já abertas (podem ser lidas por compilações simultâneas)
+    public Compilador(Options options, CompileCache cache, List<SymbolInterface> imports) {
+        this.options = options;
+        this.cache = cache;
+        this.imports = imports;
+    }
+
+    public CompileResult compile(Path sourcePath) {
+        String path = sourcePath.toString();
+        Path lexPath = Paths.get(path.replaceAll("\\.251$", options.isLexBinary() ? ".lexb" : ".lex"));
+        Path tabPath = Paths.get(path.replaceAll("\\.251$", ".tab"));
+        Path symPath = options.isSym() ? Paths.get(path.replaceAll("\\.251$", ".sym")) : null;
+        Path astPath = options.isAst() ? Paths.get(path.replaceAll("\\.251$", ".ast")) : null;
+        SymbolTable symbolTable = new SymbolTable();
+        for (SymbolInterface imported : imports) {
+            symbolTable.addImport(imported);
+        }
+        Diagnostics diagnostics = new Diagnostics(options.getMaxErrors());
+        // a árvore também é o ponto de partida da execução com --run, do .class com --jvm e das otimizações
+        Ast ast = options.isAst() || options.isRun() || options.isJvm() || options.isOptimize()
+                ? new Ast(symbolTable.getNames()) : null;
+        CompileStats stats = options.getStatsTarget() != null ? new CompileStats() : null;
+        PhaseTimer phases = new PhaseTimer(path, stats);
+        long bytes = 0;
+        long tokens = 0;
+        Path classPath = null;
+        byte[] classBytes = null;
+        TypeChecker types = null;
+        List<PassManager.PassStats> passReport = null;
+
+        FileEvent fileEvent = new FileEvent();
+        fileEvent.begin();
+        long start = System.nanoTime();
+        List<String> errors = new ArrayList<>();
+        CompileCache.Key key = null;
+        CompileCache.Entry cached = null;
+        // a compilação chegou ao fim sem erro de E/S nem exceção: o resultado pode ir para o cache
+        boolean cacheable = false;
+        StagedOutputs outputs = new StagedOutputs(cache != null);
+
+        try {
+            bytes = Files.size(options.resolve(sourcePath));
+            phases.bytes = bytes;
+
+            if (cache != null) {
+                key = cache.key(options.resolve(sourcePath));
+                cached = restore(key, sourcePath, lexPath, tabPath, symPath, astPath);
+            }
+            if (cached != null) {
+                tokens = cached.tokens;
+                errors.addAll(cached.errors);
+                if (!cached.className.isEmpty()) {
+                    classPath = sourcePath.resolveSibling(cached.className + ".class");
+                }
+            } else {
+                phases.begin();
+                try (Source source = Source.open(options.resolve(sourcePath));
+                     LexOutput lexOut = options.isLexBinary()
+                             ? new LexBinaryWriter(outputs.target(options.resolve(lexPath)))
+                             : new LexFileWriter(outputs.target(options.resolve(lexPath)))) {
+                    phases.end(CompileStats.Phase.READ, 0);
+                    if (options.isParallelLex() || options.isParallelParse()) {
+                        tokens = compileBuffered(source, lexOut, symbolTable, ast, diagnostics, phases, options);
+                    } else {
+                        tokens = compileStreaming(source, lexOut, symbolTable, ast, diagnostics, phases, options.isLexPositions());
+                    }
+                }
+
+                if (diagnostics.hasErrors()) {
+                    for (int i = 0; i < diagnostics.size(); i++) {
+                        errors.add("Erro na linha " + diagnostics.getLine(i) + ", coluna " + diagnostics.getColumn(i) + ": "
+                                + diagnostics.getMessage(i));
+                    }
+                    if (diagnostics.isFull()) {
+                        errors.add("Limite de " + diagnostics.getMaxErrors() + " erros atingido; o resto do arquivo não foi analisado");
+                    }
+                } else {
+                    phases.begin();
+                    try (PrintWriter tabOut = new PrintWriter(outputs.target(options.resolve(tabPath)).toFile())) {
+                        symbolTable.printTable(tabOut);
+                    }
+                    if (symPath != null) {
+                        SymbolInterface.write(symbolTable, outputs.target(options.resolve(symPath)));
+                    }
+                    phases.end(CompileStats.Phase.TAB_WRITE, tokens);
+
+                    // com --opt o .ast mostra a árvore já otimizada
+                    if (options.isOptimize()) {
+                        phases.begin();
+                        PassManager optimizer = PassManager.of(options.getOptPasses());
+                        types = optimizer.run(ast, symbolTable);
+                        passReport = optimizer.getReport();
+                        phases.end(CompileStats.Phase.OPT, tokens);
+                    }
+
+                    if (astPath != null) {
+                        phases.begin();
+                        try (PrintWriter astOut = new PrintWriter(outputs.target(options.resolve(astPath)).toFile())) {
+                            ast.print(astOut);
+                        }
+                        phases.end(CompileStats.Phase.AST_WRITE, tokens);
+                    }
+
+                    if (options.isJvm()) {
+                        phases.begin();
+                        if (types == null) {
+                            types = TypeChecker.check(ast, symbolTable);
+                        }
+                        classBytes = ClassGenerator.generate(types);
+                        // o .class tem o nome da classe, que é o do programa
+                        classPath = sourcePath.resolveSibling(ClassGenerator.getClassName(ast) + ".class");
+                        Files.write(outputs.target(options.resolve(classPath)), classBytes);
+                        phases.end(CompileStats.Phase.CLASS_WRITE, tokens);
+                    }
+                }
+                cacheable = true;
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            errors.add("Arquivo não encontrado: " + path);
+        } catch (UncheckedIOException e) {
+            errors.add("Erro: " + e.getCause().getMessage());
+        } catch (IOException | RuntimeException e) {
+            errors.add("Erro: " + e.getMessage());
+        } catch (StackOverflowError e) {
+            errors.add("Erro: aninhamento profundo demais");
+        }
+
+        int symbols = cached != null ? cached.symbols : symbolTable.getAllSymbols().size();
+        if (cacheable && key != null) {
+            store(key, tokens, symbols, errors, outputs, lexPath, tabPath, symPath, astPath, classPath, ast);
+        }
+        try {
+            outputs.publish();
+        } catch (IOException e) {
+            errors.add("Erro: " + e.getMessage());
+        }
+        if (stats != null) {
+            stats.finish(System.nanoTime() - start, symbols);
+        }
+        fileEvent.end();
+        if (fileEvent.shouldCommit()) {
+            fileEvent.file = path;
+            fileEvent.bytes = bytes;
+            fileEvent.tokens = tokens;
+            fileEvent.symbols = symbols;
+            fileEvent.success = errors.isEmpty();
+            fileEvent.commit();
+        }
+        if (cached != null) {
+            return new CompileResult(sourcePath, lexPath, tabPath, symPath, astPath, classPath, options.resolve(tabPath), errors,
+                    bytes, tokens, stats);
+        }
+        return new CompileResult(sourcePath, lexPath, tabPath, symPath, astPath, classPath, symbolTable, ast, types, passReport,
+                classBytes, errors, bytes, tokens, stats);
+    }
+
+    // Copia do cache os arquivos gerados para a fonte; devolve a entrada, ou null se ela não está no cache
+    private CompileCache.Entry restore(CompileCache.Key key, Path sourcePath, Path lexPath, Path tabPath, Path symPath,
+                                       Path astPath) {
+        CompileCache.Entry entry = cache.lookup(key);
+        if (entry == null) {
+            return null;
+        }
+        Path[] outputs = new Path[CompileCache.Output.values().length];
+        outputs[CompileCache.Output.LEX.ordinal()] = options.resolve(lexPath);
+        outputs[CompileCache.Output.TAB.ordinal()] = options.resolve(tabPath);
+        if (symPath != null) {
+            outputs[CompileCache.Output.SYM.ordinal()] = options.resolve(symPath);
+        }
+        if (astPath != null) {
+            outputs[CompileCache.Output.AST.ordinal()] = options.resolve(astPath);
+        }
+        if (entry.has(CompileCache.Output.CLASS)) {
+            outputs[CompileCache.Output.CLASS.ordinal()] = options.resolve(sourcePath.resolveSibling(entry.className + ".class"));
+        }
+        return cache.restore(entry, outputs) ? entry : null;
+    }
+
+    // Guarda no cache os arquivos que a compilação gerou (com erros, só o .lex)
+    private void store(CompileCache.Key key, long tokens, int symbols, List<String> errors, StagedOutputs outputs,
+                       Path lexPath, Path tabPath, Path symPath, Path astPath, Path classPath, Ast ast) {
+        Path[] files = new Path[CompileCache.Output.values().length];
+        files[CompileCache.Output.LEX.ordinal()] = outputs.current(options.resolve(lexPath));
+        String className = "";
+        if (errors.isEmpty()) {
+            files[CompileCache.Output.TAB.ordinal()] = outputs.current(options.resolve(tabPath));
+            if (symPath != null) {
+                files[CompileCache.Output.SYM.ordinal()] = outputs.current(options.resolve(symPath));
+            }
+            if (astPath != null) {
+                files[CompileCache.Output.AST.ordinal()] = outputs.current(options.resolve(astPath));
+            }
+            if (classPath != null) {
+                files[CompileCache.Output.CLASS.ordinal()] = outputs.current(options.resolve(classPath));
+                className = ClassGenerator.getClassName(ast);
+            }
+        }
+        cache.store(key, tokens, symbols, className, errors, files);
+    }
+
+    // O arquivo é lido e analisado uma única vez: cada token vai para o .lex e para o parser.
+    // Com --stats, o TimedCursor separa o tempo do lexer, do parser e da escrita do .lex.
+    private static long compileStreaming(Source source, LexOutput lexOut, SymbolTable symbolTable, Ast ast,
+                                         Diagnostics diagnostics, PhaseTimer phases, boolean positions) {
+        Lexer lexer = new Lexer(source, symbolTable.getNames());
+        diagnostics.setLines(lexer.getLines());
+        if (positions) {
+            lexOut.setLines(lexer.getLines());
+        }
+        TokenCursor cursor = lexer;
+        TimedCursor timed = null;
+        if (phases.stats != null) {
+            timed = new TimedCursor(lexer, lexOut, phases.stats);
+            lexer.setTokenListener(timed);
+            cursor = timed;
+        } else {
+            lexer.setTokenListener(lexOut);
+        }
+
+        phases.begin();
+        ParserImpl parser = new ParserImpl(cursor, symbolTable, ast, diagnostics);
+        try {
+            parser.parseFileProgram();
+        } finally {
+            // o .lex lista todos os tokens do arquivo, mesmo os que o parser não chegou a ler (com
+            // recuperação de erros ele lê até o fim, a não ser que a análise tenha sido interrompida)
+            while (cursor.next() != TokenType.EOF) {
+                // só alimenta o listener
+            }
+            phases.end(null, lexOut.getTokenCount());
+            if (timed != null) {
+                timed.finish(phases.lastNanos, phases.lastAllocated);
+            }
+        }
+        return lexOut.getTokenCount();
+    }
+
+    // Análise léxica (paralela com --parallel-lex) para um TokenBuffer; depois o .lex e o parser
+    // percorrem o buffer, com as funções analisadas em paralelo com --parallel-parse (a árvore do --ast
+    // só é construída pela análise sequencial)
+    private static long compileBuffered(Source source, LexOutput lexOut, SymbolTable symbolTable, Ast ast,
+                                        Diagnostics diagnostics, PhaseTimer phases, Options options) {
+        phases.begin();
+        TokenBuffer tokens = options.isParallelLex()
+                ? ParallelLexer.tokenize(source, symbolTable.getNames())
+                : new Lexer(source, symbolTable.getNames()).tokenizeToBuffer();
+        phases.end(CompileStats.Phase.LEX, tokens.size());
+        diagnostics.setLines(tokens.getLines());
+        if (options.isLexPositions()) {
+            lexOut.setLines(tokens.getLines());
+        }
+
+        phases.begin();
+        TokenCursor cursor = tokens.cursor();
+        while (cursor.next() != TokenType.EOF) {
+            lexOut.onToken(cursor);
+        }
+        phases.end(CompileStats.Phase.LEX_WRITE, tokens.size());
+
+        phases.begin();
+        if (options.isParallelParse() && ast == null) {
+            ParallelParser.parse(tokens, symbolTable, diagnostics);
+        } else {
+            new ParserImpl(tokens.cursor(), symbolTable, ast, diagnostics).parseFileProgram();
+        }
+        phases.end(CompileStats.Phase.PARSE, tokens.size());
+        return lexOut.getTokenCount();
+    }
+
+    // Marca o início e o fim de cada fase: emite um PhaseEvent (quando há gravação JFR)
+    // e, com --stats, soma tempo e bytes alocados na fase
+    private static final class PhaseTimer {
+        private final String file;
+        private final CompileStats stats;
+        private long bytes;
+        private PhaseEvent event;
+        private long startNanos;
+        private long startAllocated;
+        // duração e alocação da última fase encerrada
+        private long lastNanos;
+        private long lastAllocated;
+
+        PhaseTimer(String file, CompileStats stats) {
+            this.file = file;
+            this.stats = stats;
+        }
+
+        void begin() {
+            event = new PhaseEvent();
+            event.begin();
+            if (stats != null) {
+                startAllocated = CompileStats.allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+        }
 
+        // phase == null: intervalo com várias fases intercaladas (lexer + parser + .lex), repartido pelo chamador
+        void end(CompileStats.Phase phase, long tokens) {
+            if (stats != null) {
+                lastNanos = System.nanoTime() - startNanos;
+                lastAllocated = CompileStats.allocatedBytes() - startAllocated;
+                if (phase != null) {
+                    stats.add(phase, lastNanos, lastAllocated);
+                }
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file;
+                event.phase = phase != null ? phase.getKey() : "lex+parse";
+                event.bytes = bytes;
+                event.tokens = tokens;
+                event.commit();
+            }
+        }
+    }
 }
@@ -0,0 +1,475 @@
+package main;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Cache de compilações em disco (--cache DIR), endereçado pelo conteúdo: a chave é o hash do .251 junto com
+// a impressão digital do compilador e as opções que mudam a saída. Cada entrada é um único arquivo com os
+// erros, as contagens e os arquivos gerados (.lex/.lexb, .tab, .ast, .class, .sym); num acerto eles são copiados
+// de volta sem análise léxica nem sintática. A entrada é gravada num temporário e renomeada atomicamente,
+// então threads e processos podem dividir o diretório (no pior caso dois gravam a mesma entrada, com o mesmo
+// conteúdo). trim() limita o tamanho apagando as entradas usadas há mais tempo: cada acerto atualiza a data
+// de modificação da entrada.
+public final class CompileCache {
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    private static final int MAGIC = 0x43433531; // "CC51"
+    private static final int FORMAT = 2;
+    private static final String SUFFIX = ".entry";
+    // temporários mais velhos que isto são de gravações interrompidas
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+    // fontes maiores que isto são mapeadas em vez de lidas para o hash
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    // contador dos nomes de temporários de stagingPath()
+    private static final AtomicLong STAGING = new AtomicLong();
+
+    // primos do xxHash64
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    // Arquivos gerados, na ordem em que ficam na entrada
+    enum Output { LEX, TAB, AST, CLASS, SYM }
+
+    private final Path directory;
+    private final long maxBytes;
+    // versão do compilador e opções: gravada na entrada e conferida no acerto
+    private final String configuration;
+    private final long configurationHash;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CompileCache(Path directory, long maxBytes, String options) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.configuration = CompilerVersion.VALUE + " " + options;
+        this.configurationHash = hash(ByteBuffer.wrap(configuration.getBytes(StandardCharsets.UTF_8)), 0);
+    }
+
+    // Conteúdo do .251 (hash e tamanho) e o arquivo da entrada correspondente
+    static final class Key {
+        private final long size;
+        private final Path file;
+
+        private Key(long size, Path file) {
+            this.size = size;
+            this.file = file;
+        }
+    }
+
+    // Cabeçalho de uma entrada encontrada, com o arquivo já aberto para restore()
+    static final class Entry {
+        private final FileChannel channel;
+        private final long dataStart;
+        // tamanho de cada Output na entrada, -1 se a compilação não o gerou
+        private final long[] sizes = new long[Output.values().length];
+        private final Path file;
+        long tokens;
+        int symbols;
+        // nome do .class (sem extensão), ou "" sem --jvm
+        String className;
+        final List<String> errors = new ArrayList<>();
+
+        private Entry(FileChannel channel, long dataStart, Path file) {
+            this.channel = channel;
+            this.dataStart = dataStart;
+            this.file = file;
+        }
+
+        boolean has(Output output) {
+            return sizes[output.ordinal()] >= 0;
+        }
+    }
+
+    Key key(Path source) throws IOException {
+        long size;
+        long sourceHash;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer bytes;
+            if (size > MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // lê tudo
+                }
+                bytes.flip();
+            }
+            sourceHash = hash(bytes, configurationHash);
+        }
+        String name = hex(sourceHash) + hex(configurationHash);
+        return new Key(size, directory.resolve(name.substring(0, 2)).resolve(name + SUFFIX));
+    }
+
+    // Entrada da chave, ou null (falta): uma entrada de outra configuração, de outro conteúdo com o mesmo
+    // hash ou incompleta também é falta
+    Entry lookup(Key key) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(key.file, StandardOpenOption.READ);
+            ByteBuffer prefix = ByteBuffer.allocate(12);
+            readFully(channel, prefix, 0);
+            if (prefix.getInt(0) == MAGIC && prefix.getInt(4) == FORMAT
+                    && prefix.getInt(8) >= 0 && prefix.getInt(8) <= channel.size() - 12) {
+                ByteBuffer header = ByteBuffer.allocate(prefix.getInt(8));
+                readFully(channel, header, 12);
+                Entry entry = new Entry(channel, 12 + header.capacity(), key.file);
+                if (readHeader(header, entry, key)) {
+                    return entry;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // ainda não está no cache
+        } catch (IOException | RuntimeException e) {
+            // entrada ilegível: é regravada
+        }
+        close(channel);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private boolean readHeader(ByteBuffer header, Entry entry, Key key) throws IOException {
+        if (!getString(header).equals(configuration) || header.getLong() != key.size) {
+            return false;
+        }
+        entry.tokens = header.getLong();
+        entry.symbols = header.getInt();
+        entry.className = getString(header);
+        for (int i = header.getInt(); i > 0; i--) {
+            entry.errors.add(getString(header));
+        }
+        long total = entry.dataStart;
+        for (Output output : Output.values()) {
+            entry.sizes[output.ordinal()] = header.getLong();
+            total += Math.max(0, entry.sizes[output.ordinal()]);
+        }
+        return total == entry.channel.size();
+    }
+
+    // Copia para 'outputs' (indexado por Output) os arquivos que a entrada tem e fecha a entrada;
+    // false (falta) se a cópia falhou
+    boolean restore(Entry entry, Path[] outputs) {
+        try (FileChannel channel = entry.channel) {
+            long position = entry.dataStart;
+            for (Output output : Output.values()) {
+                long size = entry.sizes[output.ordinal()];
+                if (size < 0) {
+                    continue;
+                }
+                // como no Compilador com cache: temporário renomeado, para ninguém ver a saída pela metade
+                Path temp = stagingPath(outputs[output.ordinal()]);
+                try {
+                    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                        transfer(channel, position, size, out);
+                    }
+                    Files.move(temp, outputs[output.ordinal()], StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                position += size;
+            }
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(entry.file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // apagada por outro trim() enquanto era lida: o acerto vale do mesmo jeito
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    // Grava a entrada com os erros e os arquivos gerados ('outputs' indexado por Output, null para os que
+    // não foram gerados). Uma falha só deixa de gravar: o cache nunca faz a compilação falhar.
+    void store(Key key, long tokens, int symbols, String className, List<String> errors, Path[] outputs) {
+        Path temp = null;
+        try {
+            Files.createDirectories(key.file.getParent());
+            long[] sizes = new long[outputs.length];
+            for (int i = 0; i < outputs.length; i++) {
+                sizes[i] = outputs[i] != null ? Files.size(outputs[i]) : -1;
+            }
+            List<byte[]> strings = new ArrayList<>();
+            strings.add(configuration.getBytes(StandardCharsets.UTF_8));
+            strings.add(className.getBytes(StandardCharsets.UTF_8));
+            for (String error : errors) {
+                strings.add(error.getBytes(StandardCharsets.UTF_8));
+            }
+            int headerSize = 8 + 8 + 4 + 4 + 8 * sizes.length;
+            for (byte[] string : strings) {
+                headerSize += 4 + string.length;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(12 + headerSize);
+            header.putInt(MAGIC).putInt(FORMAT).putInt(headerSize);
+            putString(header, strings.get(0));
+            header.putLong(key.size).putLong(tokens).putInt(symbols);
+            putString(header, strings.get(1));
+            header.putInt(errors.size());
+            for (int i = 2; i < strings.size(); i++) {
+                putString(header, strings.get(i));
+            }
+            for (long size : sizes) {
+                header.putLong(size);
+            }
+            header.flip();
+
+            temp = Files.createTempFile(key.file.getParent(), key.file.getFileName().toString(), ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                for (int i = 0; i < outputs.length; i++) {
+                    if (outputs[i] == null) {
+                        continue;
+                    }
+                    try (FileChannel in = FileChannel.open(outputs[i], StandardOpenOption.READ)) {
+                        transfer(in, 0, sizes[i], out);
+                    }
+                }
+            }
+            Files.move(temp, key.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException | RuntimeException e) {
+            // sem entrada: a próxima compilação do arquivo tenta de novo
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // trim() apaga depois
+                }
+            }
+        }
+    }
+
+    // Apaga as entradas usadas há mais tempo até o cache caber no limite, e os temporários abandonados
+    public void trim() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException | RuntimeException e) {
+            return;
+        }
+        List<Cached> entries = new ArrayList<>();
+        long total = 0;
+        long now = System.currentTimeMillis();
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                long modified = attributes.lastModifiedTime().toMillis();
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    entries.add(new Cached(file, attributes.size(), modified));
+                    total += attributes.size();
+                } else if (name.endsWith(".tmp") && now - modified > STALE_TEMP_MILLIS) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                // apagado por outro processo
+            }
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.modified));
+        for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+            try {
+                Files.deleteIfExists(entries.get(i).file);
+            } catch (IOException e) {
+                // fica para o próximo trim()
+            }
+            total -= entries.get(i).size;
+        }
+    }
+
+    private static final class Cached {
+        final Path file;
+        final long size;
+        final long modified;
+
+        Cached(Path file, long size, long modified) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    // Nome temporário, único entre threads e processos, ao lado de 'path'
+    static Path stagingPath(Path path) {
+        return path.resolveSibling("." + path.getFileName() + "." + ProcessHandle.current().pid() + "."
+                + STAGING.incrementAndGet() + ".tmp");
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // Copia 'size' bytes de 'in' a partir de 'position'; um arquivo que encolheu no meio (outra compilação
+    // regravando a mesma saída) é erro, e não uma cópia que nunca termina
+    private static void transfer(FileChannel in, long position, long size, FileChannel out) throws IOException {
+        for (long done = 0; done < size; ) {
+            long count = in.transferTo(position + done, size - done, out);
+            if (count <= 0 && position + done >= in.size()) {
+                throw new IOException("Arquivo alterado durante a cópia");
+            }
+            done += count;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Entrada incompleta");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void close(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // só leitura
+            }
+        }
+    }
+
+    // Hash do conteúdo de um arquivo de que a saída depende além do .251 (uma interface importada), para a
+    // configuração: mudar o arquivo invalida as entradas
+    static String fingerprint(Path file) throws IOException {
+        return hex(hash(ByteBuffer.wrap(Files.readAllBytes(file)), 0));
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    // xxHash64 dos bytes de 'bytes' entre position e limit: lê 8 bytes por vez em quatro acumuladores
+    static long hash(ByteBuffer bytes, long seed) {
+        ByteBuffer in = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int i = in.position();
+        int end = in.limit();
+        long length = end - i;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            for (; i <= end - 32; i += 32) {
+                v1 = round(v1, in.getLong(i));
+                v2 = round(v2, in.getLong(i + 8));
+                v3 = round(v3, in.getLong(i + 16));
+                v4 = round(v4, in.getLong(i + 24));
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+        h += length;
+        for (; i <= end - 8; i += 8) {
+            h ^= round(0, in.getLong(i));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (i <= end - 4) {
+            h ^= (in.getInt(i) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h ^= (in.get(i) & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long h, long value) {
+        return (h ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    // Impressão digital do próprio compilador, calculada uma vez: o hash do .jar, ou das classes quando
+    // roda de um diretório. Um compilador recompilado com outro código não aproveita entradas antigas.
+    private static final class CompilerVersion {
+        static final String VALUE = compute();
+
+        private static String compute() {
+            try {
+                CodeSource code = CompileCache.class.getProtectionDomain().getCodeSource();
+                Path location = Paths.get(code.getLocation().toURI());
+                long h = 0;
+                if (Files.isDirectory(location)) {
+                    List<Path> classes;
+                    try (Stream<Path> walk = Files.walk(location)) {
+                        classes = walk.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+                    }
+                    for (Path file : classes) {
+                        h = hash(ByteBuffer.wrap(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8)), h);
+                        h = hash(ByteBuffer.wrap(Files.readAllBytes(file)), h);
+                    }
+                } else {
+                    h = hash(ByteBuffer.wrap(Files.readAllBytes(location)), 0);
+                }
+                return hex(h);
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                // sem como identificar o compilador: as entradas valem só para a versão declarada
+                String version = CompileCache.class.getPackage().getImplementationVersion();
+                return version != null ? version : "dev";
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package main;
+
+import ast.Ast;
+import ast.TypeChecker;
+import opt.PassManager;
+import symboltable.SymbolTable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Resultado da compilação de um arquivo: sucesso ou a mensagem de erro, e as contagens do resumo
+public class CompileResult {
+    private final Path source;
+    private final Path lexPath;
+    private final Path tabPath;
+    private final Path symPath;
+    private final Path astPath;
+    private final Path classPath;
+    private final SymbolTable symbolTable;
+    private final Ast ast;
+    private final TypeChecker types;
+    private final List<PassManager.PassStats> passReport;
+    private final byte[] classBytes;
+    private final List<String> errors;
+    private final long bytes;
+    private final long tokens;
+    private final CompileStats stats;
+    // .tab restaurado, quando o resultado veio do cache (sem tabela de símbolos)
+    private final Path restoredTab;
+
+    CompileResult(Path source, Path lexPath, Path tabPath, Path symPath, Path astPath, Path classPath, SymbolTable symbolTable,
+                  Ast ast, TypeChecker types, List<PassManager.PassStats> passReport, byte[] classBytes, List<String> errors, long bytes,
+                  long tokens, CompileStats stats) {
+        this.source = source;
+        this.lexPath = lexPath;
+        this.tabPath = tabPath;
+        this.symPath = symPath;
+        this.astPath = astPath;
+        this.classPath = classPath;
+        this.symbolTable = symbolTable;
+        this.ast = ast;
+        this.types = types;
+        this.passReport = passReport;
+        this.classBytes = classBytes;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.tokens = tokens;
+        this.stats = stats;
+        this.restoredTab = null;
+    }
+
+    // Resultado restaurado do cache: os arquivos gerados e os erros, sem tabela de símbolos nem árvore
+    CompileResult(Path source, Path lexPath, Path tabPath, Path symPath, Path astPath, Path classPath, Path restoredTab,
+                  List<String> errors, long bytes, long tokens, CompileStats stats) {
+        this.source = source;
+        this.lexPath = lexPath;
+        this.tabPath = tabPath;
+        this.symPath = symPath;
+        this.astPath = astPath;
+        this.classPath = classPath;
+        this.symbolTable = null;
+        this.ast = null;
+        this.types = null;
+        this.passReport = null;
+        this.classBytes = null;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.tokens = tokens;
+        this.stats = stats;
+        this.restoredTab = restoredTab;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public Path getLexPath() {
+        return lexPath;
+    }
+
+    public Path getTabPath() {
+        return tabPath;
+    }
+
+    // .sym gerado com --sym, ou null
+    public Path getSymPath() {
+        return symPath;
+    }
+
+    // .ast gerado com --ast, ou null
+    public Path getAstPath() {
+        return astPath;
+    }
+
+    // .class gerado com --jvm, ou null
+    public Path getClassPath() {
+        return classPath;
+    }
+
+    // null quando o resultado veio do cache
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // Se os arquivos gerados foram restaurados do cache (--cache) em vez de compilados
+    public boolean isCached() {
+        return symbolTable == null;
+    }
+
+    // A tabela de símbolos como no .tab
+    public void printTable(PrintWriter out) {
+        if (symbolTable != null) {
+            symbolTable.printTable(out);
+        } else {
+            try {
+                // o .tab é gravado no charset padrão, como o PrintWriter do Compilador
+                out.print(Files.readString(restoredTab, Charset.defaultCharset()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        out.flush();
+    }
+
+    // Árvore do programa, construída só com --ast, --run, --jvm ou --opt
+    public Ast getAst() {
+        return ast;
+    }
+
+    // Tipos da árvore, verificados na compilação só com --jvm ou --opt; null nos outros casos
+    public TypeChecker getTypes() {
+        return types;
+    }
+
+    // Mudanças, nós e tempo de cada passe de --opt, ou null
+    public List<PassManager.PassStats> getPassReport() {
+        return passReport;
+    }
+
+    // Conteúdo do .class gerado com --jvm, ou null
+    public byte[] getClassBytes() {
+        return classBytes;
+    }
+
+    // Primeira mensagem de erro já formatada para o usuário, ou null em caso de sucesso
+    public String getError() {
+        return errors.isEmpty() ? null : errors.get(0);
+    }
+
+    // Todas as mensagens de erro, na ordem do fonte (vazia em caso de sucesso)
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    // Tempos e alocação por fase; null se a compilação não foi feita com --stats
+    public CompileStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,147 @@
+package main;
+
+import opt.PassManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+// Tempo e memória alocada por fase de uma compilação; só é coletado com --stats
+public class CompileStats {
+
+    public enum Phase {
+        READ("read"),
+        LEX("lex"),
+        LEX_WRITE("lexWrite"),
+        PARSE("parse"),
+        TAB_WRITE("tabWrite"),
+        OPT("opt"),
+        AST_WRITE("astWrite"),
+        CLASS_WRITE("classWrite");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] allocated = new long[Phase.values().length];
+    private long totalNanos;
+    private int symbols;
+
+    public void add(Phase phase, long phaseNanos, long allocatedBytes) {
+        nanos[phase.ordinal()] += phaseNanos;
+        allocated[phase.ordinal()] += allocatedBytes;
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getAllocated(Phase phase) {
+        return allocated[phase.ordinal()];
+    }
+
+    void finish(long totalNanos, int symbols) {
+        this.totalNanos = totalNanos;
+        this.symbols = symbols;
+    }
+
+    // Bytes já alocados pela thread atual (0 se a JVM não oferece a medição)
+    static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // Soma dos picos de uso das áreas de heap desde o início da JVM
+    static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    void appendJson(StringBuilder json, CompileResult result) {
+        json.append("{\"file\":");
+        appendString(json, result.getSource().toString());
+        json.append(",\"ok\":").append(result.isSuccess())
+                .append(",\"cached\":").append(result.isCached())
+                .append(",\"errors\":").append(result.getErrors().size())
+                .append(",\"bytes\":").append(result.getBytes())
+                .append(",\"tokens\":").append(result.getTokens())
+                .append(",\"symbols\":").append(symbols)
+                .append(",\"nanos\":").append(totalNanos)
+                .append(",\"bytesPerSec\":").append(perSecond(result.getBytes(), totalNanos))
+                .append(",\"tokensPerSec\":").append(perSecond(result.getTokens(), totalNanos))
+                .append(",\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(phase.getKey()).append("\":{\"nanos\":").append(nanos[phase.ordinal()])
+                    .append(",\"allocatedBytes\":").append(allocated[phase.ordinal()]).append('}');
+        }
+        json.append('}');
+        if (result.getPassReport() != null) {
+            json.append(",\"passes\":[");
+            for (int i = 0; i < result.getPassReport().size(); i++) {
+                PassManager.PassStats pass = result.getPassReport().get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"name\":\"").append(pass.getName()).append("\",\"changes\":").append(pass.getChanges())
+                        .append(",\"nodesBefore\":").append(pass.getNodesBefore())
+                        .append(",\"nodesAfter\":").append(pass.getNodesAfter())
+                        .append(",\"nanos\":").append(pass.getNanos()).append('}');
+            }
+            json.append(']');
+        }
+        json.append('}');
+    }
+
+    static long perSecond(long amount, long nanos) {
+        return nanos > 0 ? (long) (amount * 1e9 / nanos) : 0;
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+}
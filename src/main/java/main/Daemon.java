@@ -0,0 +1,217 @@
+package main;
+
+import lexer.Lexer;
+import lexer.Source;
+import parser.ParserImpl;
+import symboltable.SymbolTable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Compilador residente: a JVM, as classes carregadas e o código já otimizado pelo JIT ficam vivos
+// entre compilações. Cada pedido (ver DaemonProtocol) roda Main.compile com seus próprios Compilador,
+// SymbolTable e saídas, então um erro num pedido não afeta os outros nem derruba o daemon.
+public class Daemon {
+    // tempo gasto compilando um programa de exemplo na partida, para o JIT já otimizar lexer e parser
+    private static final long WARM_UP_MILLIS = 500;
+
+    private final PrintStream log;
+    private final ExecutorService workers;
+    private volatile ServerSocketChannel server;
+
+    private Daemon(PrintStream log) {
+        this.log = log;
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "daemon-pedido");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static int serve(Options options, PrintStream out, PrintStream err) {
+        Daemon daemon = new Daemon(err);
+        try {
+            if (options.isStdio()) {
+                daemon.warmUp();
+                daemon.serveConnection(System.in, out);
+                return 0;
+            }
+            return daemon.serveSocket(options.getSocket());
+        } catch (IOException e) {
+            err.println("Erro: " + e.getMessage());
+            return 1;
+        } finally {
+            daemon.workers.shutdown();
+        }
+    }
+
+    private int serveSocket(Path socket) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket)) {
+            try {
+                SocketChannel.open(address).close();
+                log.println("Erro: já há um daemon em " + socket);
+                return 1;
+            } catch (IOException e) {
+                // sobrou de um daemon que terminou sem apagar o arquivo
+                Files.delete(socket);
+            }
+        }
+
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(address);
+            server = channel;
+            try {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // sistema de arquivos sem permissões POSIX
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteSocket(socket)));
+            log.println("Daemon aguardando pedidos em " + socket);
+            Thread warmUp = new Thread(this::warmUp, "daemon-aquecimento");
+            warmUp.setDaemon(true);
+            warmUp.start();
+
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (AsynchronousCloseException e) {
+                    // pedido de shutdown
+                    break;
+                }
+                workers.execute(() -> {
+                    try (client) {
+                        serveConnection(Channels.newInputStream(client), Channels.newOutputStream(client));
+                    } catch (IOException e) {
+                        // o cliente desistiu no meio do pedido
+                    }
+                });
+            }
+        } finally {
+            deleteSocket(socket);
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    // Atende os pedidos de uma conexão (ou da entrada padrão) em sequência, até o fim da entrada
+    private void serveConnection(InputStream input, OutputStream output) throws IOException {
+        BufferedReader requests = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer response = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String line;
+        while ((line = requests.readLine()) != null) {
+            boolean keepGoing = handle(DaemonProtocol.decode(line), response);
+            response.flush();
+            if (!keepGoing) {
+                return;
+            }
+        }
+    }
+
+    // Responde a um pedido; devolve false depois de um pedido de shutdown
+    private boolean handle(List<String> request, Writer response) throws IOException {
+        PrintStream out = DaemonProtocol.lineStream(response, DaemonProtocol.OUT);
+        PrintStream err = DaemonProtocol.lineStream(response, DaemonProtocol.ERR);
+        int code;
+        boolean keepGoing = true;
+        switch (request.get(0)) {
+            case DaemonProtocol.COMPILE -> code = compile(request, out, err);
+            case DaemonProtocol.SHUTDOWN -> {
+                code = 0;
+                keepGoing = false;
+                ServerSocketChannel channel = server;
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            default -> {
+                err.println("Erro: pedido desconhecido: " + request.get(0));
+                code = 1;
+            }
+        }
+        out.close();
+        err.close();
+        response.write(DaemonProtocol.EXIT + code + "\n");
+        return keepGoing;
+    }
+
+    private int compile(List<String> request, PrintStream out, PrintStream err) {
+        if (request.size() < 2 || !Paths.get(request.get(1)).isAbsolute()) {
+            err.println("Erro: pedido sem diretório de trabalho absoluto");
+            return 1;
+        }
+        String[] args = request.subList(2, request.size()).toArray(new String[0]);
+        try {
+            Options options = Options.parse(args, Paths.get(request.get(1)));
+            if (options.isDaemon() || options.isClient()) {
+                err.println("Erro: --daemon e --client não valem num pedido ao daemon");
+                return 1;
+            }
+            return Main.compile(options, out, err);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (RuntimeException | Error e) {
+            // o daemon continua atendendo os próximos pedidos
+            err.println("Erro interno: " + e);
+            return 1;
+        }
+    }
+
+    // Compila em memória um programa de exemplo por algum tempo, sem tocar em arquivos
+    private void warmUp() {
+        StringBuilder program = new StringBuilder("program Aquecimento\ndeclarations\n");
+        for (int i = 0; i < 200; i++) {
+            program.append("varType integer: a").append(i).append(", b").append(i).append(";\n");
+            program.append("varType real: c").append(i).append("; // comentário\n");
+        }
+        program.append("endDeclararions\nfunctions\n");
+        for (int i = 0; i < 100; i++) {
+            program.append(i > 0 ? ";\n" : "").append("funcType integer: f").append(i).append("(integer: p").append(i)
+                    .append(", real: q").append(i).append(") {\n    print (a").append(i).append(" + 2) * 3.5;\n} f").append(i);
+        }
+        String text = program.append("\nendFunctions\nendProgram\n").toString();
+
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARM_UP_MILLIS);
+        while (System.nanoTime() < end) {
+            SymbolTable symbolTable = new SymbolTable();
+            new ParserImpl(new Lexer(Source.of(text), symbolTable.getNames()), symbolTable).parseFileProgram();
+        }
+    }
+
+    private static void deleteSocket(Path socket) {
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            // nada a fazer
+        }
+    }
+}
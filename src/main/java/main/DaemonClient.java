@@ -0,0 +1,66 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cliente fino do daemon: repassa os argumentos e o diretório atual, e reproduz a saída e o código
+// de saída como se a compilação tivesse rodado neste processo. Sem daemon, compila aqui mesmo.
+final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    static int run(Options options, PrintStream out, PrintStream err) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(options.getSocket()));
+        } catch (IOException e) {
+            if (options.isShutdown()) {
+                err.println("Erro: nenhum daemon em " + options.getSocket());
+                return 1;
+            }
+            return Main.compile(options, out, err);
+        }
+
+        List<String> request = new ArrayList<>();
+        if (options.isShutdown()) {
+            request.add(DaemonProtocol.SHUTDOWN);
+        } else {
+            request.add(DaemonProtocol.COMPILE);
+            request.add(Paths.get("").toAbsolutePath().toString());
+            request.addAll(options.getForwardedArguments());
+        }
+
+        try (channel) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            writer.write(DaemonProtocol.encode(request) + "\n");
+            writer.flush();
+            BufferedReader response = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = response.readLine()) != null) {
+                if (line.startsWith(DaemonProtocol.OUT)) {
+                    out.println(line.substring(DaemonProtocol.OUT.length()));
+                } else if (line.startsWith(DaemonProtocol.ERR)) {
+                    err.println(line.substring(DaemonProtocol.ERR.length()));
+                } else if (line.startsWith(DaemonProtocol.EXIT)) {
+                    return Integer.parseInt(line.substring(DaemonProtocol.EXIT.length()).trim());
+                }
+            }
+        } catch (IOException e) {
+            err.println("Erro: " + e.getMessage());
+            return 1;
+        }
+        err.println("Erro: o daemon encerrou a conexão sem responder");
+        return 1;
+    }
+}
@@ -0,0 +1,119 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Protocolo de linhas (UTF-8) entre o cliente e o daemon, simples o bastante para ser usado com nc -U.
+// Pedido: uma linha com campos separados por tab ("\t", "\n" e "\\" escapados):
+//   compile <diretório de trabalho absoluto> <argumento>...
+//   shutdown
+// Resposta: linhas "out <texto>" e "err <texto>" (saída e erro da compilação, na ordem em que
+// foram produzidas), terminando com "exit <código>".
+final class DaemonProtocol {
+    static final String COMPILE = "compile";
+    static final String SHUTDOWN = "shutdown";
+    static final String OUT = "out ";
+    static final String ERR = "err ";
+    static final String EXIT = "exit ";
+
+    private DaemonProtocol() {
+    }
+
+    static String encode(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append('\t');
+            }
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                switch (c) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    default -> line.append(c);
+                }
+            }
+        }
+        return line.toString();
+    }
+
+    static String encode(String... fields) {
+        return encode(Arrays.asList(fields));
+    }
+
+    static List<String> decode(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // PrintStream que envia cada linha escrita como "<prefixo><linha>" para 'response'
+    static PrintStream lineStream(Writer response, String prefix) {
+        return new PrintStream(new LineOutput(response, prefix), false, StandardCharsets.UTF_8);
+    }
+
+    private static final class LineOutput extends OutputStream {
+        private final Writer response;
+        private final String prefix;
+        private byte[] line = new byte[256];
+        private int length = 0;
+
+        LineOutput(Writer response, String prefix) {
+            this.response = response;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                emit();
+                return;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = (byte) b;
+        }
+
+        // o que sobrou sem quebra de linha também vira uma linha
+        @Override
+        public void close() throws IOException {
+            if (length > 0) {
+                emit();
+            }
+        }
+
+        // se o cliente desistiu, a IOException é engolida pelo PrintStream e a compilação segue
+        private void emit() throws IOException {
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            String text = new String(line, 0, end, StandardCharsets.UTF_8);
+            length = 0;
+            // out e err escrevem na mesma resposta
+            synchronized (response) {
+                response.write(prefix);
+                response.write(text);
+                response.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Evento JFR da compilação inteira de um arquivo
+@Name("cangacode.CompileFile")
+@Label("Compilação de arquivo")
+@Category("CangaCode")
+@Description("Compilação completa de um arquivo .251")
+class FileEvent extends Event {
+    @Label("Arquivo")
+    String file;
+
+    @Label("Bytes da fonte")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Símbolos")
+    int symbols;
+
+    @Label("Sucesso")
+    boolean success;
+}
@@ -0,0 +1,347 @@
+package main;
+
+import lexer.IncrementalTokens;
+import lexer.Lexer;
+import lexer.NamePool;
+import lexer.TokenType;
+import parser.ParserImpl;
+import parser.UnitListener;
+import symboltable.SymbolTable;
+
+import java.util.Arrays;
+
+// Compilação incremental de um texto em memória (editores, hooks de pre-commit). Após uma edição,
+// só os tokens afetados são re-analisados, o parser roda de novo só nas declarações e funções que
+// os contêm e a SymbolTable é corrigida no lugar. Um erro dentro delas é o mesmo da compilação normal,
+// que analisaria igual tudo o que vem antes. Só se a edição sai das unidades (cabeçalho, seções, o
+// varType/funcType que abre uma unidade, o token que fecha a lista), remove ou duplica um global, ou o
+// estado anterior tinha erro, o programa é re-analisado inteiro a partir dos tokens; getFullReparse()
+// diz o motivo.
+public class IncrementalCompiler {
+    // Por que a última compilação re-analisou o programa inteiro
+    public enum FullReparse {
+        NONE,           // só as unidades alteradas
+        INITIAL,        // texto inicial
+        PREVIOUS_ERROR, // o estado anterior tinha erro
+        OUTSIDE_UNITS,  // a edição começa fora das declarações e funções (cabeçalho, início das seções)
+        SECTION_END,    // a edição alterou o token que abre a unidade, o que fecha a lista ou o que vem depois
+        GLOBALS         // um global sumiu (pode ser usado em outra unidade) ou colide com um declarado depois
+    }
+
+    private final NamePool names = new NamePool();
+    private final IncrementalTokens tokens;
+    private SymbolTable symbolTable;
+    private String error;
+
+    // unidades (declarações e funções) em ordem de fonte: índice do primeiro token, tipo dele
+    // (VARTYPE ou FUNCTYPE) e posição do primeiro símbolo declarado na ordem da SymbolTable
+    private int[] unitStarts = new int[64];
+    private TokenType[] unitKinds = new TokenType[64];
+    private int[] unitSymbols = new int[64];
+    private int unitCount = 0;
+    // os deslocamentos das edições só são somados às unidades a partir de shiftFrom quando uma edição
+    // posterior passa por elas (como o gap dos tokens): editar sempre no mesmo lugar não percorre o resto
+    private int shiftFrom = 0;
+    private int pendingTokenShift = 0;
+    private int pendingSymbolShift = 0;
+
+    // trabalho feito pela última compilação
+    private int reparsedTokens;
+    private FullReparse fullReparse;
+
+    public IncrementalCompiler(String text) {
+        tokens = new IncrementalTokens(text, names);
+        tokens.tokenizeAll();
+        parseAll(FullReparse.INITIAL);
+    }
+
+    // Troca 'removedLength' caracteres a partir de 'offset' pelo texto inserido e recompila
+    public void edit(int offset, int removedLength, String inserted) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > tokens.length()) {
+            throw new IndexOutOfBoundsException("Edição fora do texto: " + offset + "+" + removedLength);
+        }
+        boolean wasSuccess = error == null;
+        tokens.edit(offset, removedLength, inserted);
+        FullReparse reason = wasSuccess ? reparseEdited() : FullReparse.PREVIOUS_ERROR;
+        if (reason != FullReparse.NONE) {
+            parseAll(reason);
+        }
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    // Mesma mensagem que a compilação do arquivo daria, ou null
+    public String getError() {
+        return error;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public IncrementalTokens getTokens() {
+        return tokens;
+    }
+
+    public String getText() {
+        return tokens.getText();
+    }
+
+    // Tokens re-analisados pelo lexer na última edição
+    public int getRelexedTokens() {
+        return tokens.getEditInserted();
+    }
+
+    // Tokens percorridos pelo parser na última compilação
+    public int getReparsedTokens() {
+        return reparsedTokens;
+    }
+
+    // Se a última compilação re-analisou o programa inteiro
+    public boolean isFullReparse() {
+        return fullReparse != FullReparse.NONE;
+    }
+
+    // Motivo da análise completa na última compilação, ou NONE
+    public FullReparse getFullReparse() {
+        return fullReparse;
+    }
+
+    private void parseAll(FullReparse reason) {
+        fullReparse = reason;
+        reparsedTokens = tokens.size();
+        symbolTable = new SymbolTable(names);
+        unitCount = 0;
+        shiftFrom = 0;
+        pendingTokenShift = 0;
+        pendingSymbolShift = 0;
+        IncrementalTokens.Cursor cursor = tokens.cursor(0);
+        try {
+            ParserImpl parser = new ParserImpl(cursor, symbolTable);
+            parser.setUnitListener(first -> {
+                addUnit(cursor.getIndex(), first, symbolTable.size());
+                return true;
+            });
+            parser.parseFileProgram();
+            checkTrailing(cursor);
+            error = null;
+        } catch (RuntimeException e) {
+            fail(e.getMessage());
+        } catch (StackOverflowError e) {
+            error = "Erro: aninhamento profundo demais";
+        }
+    }
+
+    // Erros léxicos depois do endProgram, que o parser não lê (a compilação do arquivo os registra)
+    private static void checkTrailing(IncrementalTokens.Cursor cursor) {
+        TokenType type;
+        while ((type = cursor.next()) != TokenType.EOF) {
+            if (type == TokenType.ERROR) {
+                throw new RuntimeException(Lexer.describeError(cursor.getLexeme()));
+            }
+        }
+    }
+
+    // Re-analisa só as unidades que contêm os tokens alterados; devolve NONE, ou o motivo de isso não bastar
+    private FullReparse reparseEdited() {
+        fullReparse = FullReparse.NONE;
+        reparsedTokens = 0;
+        int editStart = tokens.getEditStart();
+        if (tokens.getEditRemoved() == 0 && tokens.getEditInserted() == 0) {
+            // só mudaram espaços ou comentários
+            return FullReparse.NONE;
+        }
+        int first = unitAt(editStart);
+        if (first < 0) {
+            return FullReparse.OUTSIDE_UNITS;
+        }
+        if (tokens.getType(unitStart(first)) != unitKinds[first]) {
+            // a unidade perdeu o varType/funcType: na análise completa a lista termina no ';' antes dela
+            return FullReparse.SECTION_END;
+        }
+
+        // a região enxerga, como na análise sequencial, os globais declarados antes dela (declarações e
+        // funções anteriores), e não os antigos dela mesma nem os seguintes
+        symbolTable.freeze();
+        Region region = new Region(first, symbolTable.localView());
+        try {
+            region.symbols.beginUnit(unitSymbol(first));
+            ParserImpl parser = new ParserImpl(region.cursor, region.symbols);
+            parser.setUnitListener(region);
+            if (region.kind == TokenType.VARTYPE) {
+                parser.parseDeclarationList();
+            } else {
+                parser.parseFunctionList();
+            }
+        } catch (RuntimeException e) {
+            // o que vem antes da região não mudou e estava certo: a análise completa pararia no mesmo erro.
+            // A tabela e as unidades ficam as de antes; a próxima edição re-analisa tudo.
+            fail(e.getMessage());
+            return FullReparse.NONE;
+        } catch (StackOverflowError e) {
+            error = "Erro: aninhamento profundo demais";
+            return FullReparse.NONE;
+        } finally {
+            symbolTable.unfreeze();
+            reparsedTokens = region.cursor.getIndex() - unitStart(first);
+        }
+
+        int last = region.stopUnit;
+        if (last < 0) {
+            // a lista terminou: o token que fecha a seção não pode ter sido alterado
+            TokenType closing = region.kind == TokenType.VARTYPE ? TokenType.END_DECLARATIONS : TokenType.END_FUNCTIONS;
+            if (region.cursor.getType() != closing || region.cursor.getIndex() < region.editEnd) {
+                return FullReparse.SECTION_END;
+            }
+            last = first;
+            while (last < unitCount && unitKinds[last] == region.kind) {
+                last++;
+            }
+        }
+
+        int symbolFrom = unitSymbol(first);
+        int symbolTo = last < unitCount ? unitSymbol(last) : symbolTable.size();
+        // um nome global que sumiu pode ser usado em outra unidade: isso só a análise completa verifica
+        // (parâmetros e locais só são vistos dentro da própria função, que foi re-analisada)
+        for (int i = symbolFrom; i < symbolTo; i++) {
+            SymbolTable.Symbol old = symbolTable.getDeclared(i);
+            if (old.getDepth() == 0 && region.symbols.lookup(names.find(old.getName())) == null) {
+                return FullReparse.GLOBALS;
+            }
+        }
+        if (!symbolTable.replaceDeclared(symbolFrom, symbolTo, region.symbols)) {
+            return FullReparse.GLOBALS;
+        }
+
+        replaceUnits(first, last, region, region.symbols.size() - (symbolTo - symbolFrom));
+        return FullReparse.NONE;
+    }
+
+    // Troca as unidades antigas [first, last) pelas da região; as seguintes ficam com o deslocamento pendente
+    private void replaceUnits(int first, int last, Region region, int symbolShift) {
+        moveShift(last);
+        int symbolFrom = unitSymbols[first];
+        int newLast = first + region.count;
+        if (newLast != last) {
+            int tail = unitCount - last;
+            ensureUnitCapacity(newLast + tail);
+            System.arraycopy(unitStarts, last, unitStarts, newLast, tail);
+            System.arraycopy(unitKinds, last, unitKinds, newLast, tail);
+            System.arraycopy(unitSymbols, last, unitSymbols, newLast, tail);
+            unitCount = newLast + tail;
+            shiftFrom = newLast;
+        }
+        for (int i = 0; i < region.count; i++) {
+            unitStarts[first + i] = region.starts[i];
+            unitKinds[first + i] = region.kind;
+            unitSymbols[first + i] = symbolFrom + region.firstSymbols[i];
+        }
+        pendingTokenShift += region.shift;
+        pendingSymbolShift += symbolShift;
+    }
+
+    // Aplica o deslocamento pendente às unidades antes de 'unit' e o tira das seguintes
+    private void moveShift(int unit) {
+        while (shiftFrom < unit) {
+            unitStarts[shiftFrom] += pendingTokenShift;
+            unitSymbols[shiftFrom] += pendingSymbolShift;
+            shiftFrom++;
+        }
+        while (shiftFrom > unit) {
+            shiftFrom--;
+            unitStarts[shiftFrom] -= pendingTokenShift;
+            unitSymbols[shiftFrom] -= pendingSymbolShift;
+        }
+    }
+
+    private int unitStart(int unit) {
+        return unit < shiftFrom ? unitStarts[unit] : unitStarts[unit] + pendingTokenShift;
+    }
+
+    private int unitSymbol(int unit) {
+        return unit < shiftFrom ? unitSymbols[unit] : unitSymbols[unit] + pendingSymbolShift;
+    }
+
+    // Última unidade que começa em ou antes do token 'index', ou -1
+    private int unitAt(int index) {
+        int low = 0;
+        int high = unitCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (unitStart(mid) <= index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    // Só usado na análise completa, sem deslocamento pendente
+    private void addUnit(int start, TokenType kind, int firstSymbol) {
+        ensureUnitCapacity(unitCount + 1);
+        unitStarts[unitCount] = start;
+        unitKinds[unitCount] = kind;
+        unitSymbols[unitCount] = firstSymbol;
+        unitCount++;
+    }
+
+    private void ensureUnitCapacity(int capacity) {
+        if (capacity > unitStarts.length) {
+            int grown = Math.max(unitStarts.length * 2, capacity);
+            unitStarts = Arrays.copyOf(unitStarts, grown);
+            unitKinds = Arrays.copyOf(unitKinds, grown);
+            unitSymbols = Arrays.copyOf(unitSymbols, grown);
+        }
+    }
+
+    private void fail(String message) {
+        error = "Erro: " + message;
+    }
+
+    // Re-análise de parte de uma lista, a partir da unidade 'first', numa visão local da tabela. Para na
+    // primeira unidade antiga que começa depois dos tokens alterados (dali em diante nada mudou).
+    private final class Region implements UnitListener {
+        final TokenType kind;
+        final IncrementalTokens.Cursor cursor;
+        final SymbolTable symbols;
+        // fim dos tokens alterados e deslocamento dos índices dos tokens seguintes
+        final int editEnd = tokens.getEditStart() + tokens.getEditInserted();
+        final int shift = tokens.getEditInserted() - tokens.getEditRemoved();
+        final int first;
+        // unidades novas: primeiro token e posição do primeiro símbolo em 'symbols'
+        int[] starts = new int[8];
+        int[] firstSymbols = new int[8];
+        int count = 0;
+        int stopUnit = -1;
+
+        Region(int first, SymbolTable symbols) {
+            this.first = first;
+            this.symbols = symbols;
+            this.kind = unitKinds[first];
+            this.cursor = tokens.cursor(unitStart(first));
+        }
+
+        @Override
+        public boolean onUnit(TokenType type) {
+            int index = cursor.getIndex();
+            if (index >= editEnd) {
+                int old = unitAt(index - shift);
+                if (old >= first && unitStart(old) == index - shift && unitKinds[old] == kind) {
+                    stopUnit = old;
+                    return false;
+                }
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                firstSymbols = Arrays.copyOf(firstSymbols, count * 2);
+            }
+            starts[count] = index;
+            firstSymbols[count] = symbols.size();
+            count++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package main;
+
+import lexer.LineIndex;
+import lexer.TokenCursor;
+import lexer.TokenFile;
+import lexer.TokenType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Grava o .lexb (formato descrito em lexer.TokenFile) à medida que o Lexer produz os tokens. Os tokens vão
+// para um buffer direto grande e dele para o FileChannel; as strings (nomes e literais, cada uma uma única
+// vez) e o cabeçalho, que depende das contagens, só são gravados no close().
+public class LexBinaryWriter implements LexOutput {
+    private static final int BUFFER_SIZE = 1 << 20;
+    // tipo e três varints
+    private static final int MAX_TOKEN_SIZE = 1 + 3 * 5;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // bytes já gravados no arquivo, contando o cabeçalho ainda vazio
+    private long written = TokenFile.HEADER_SIZE;
+    private int tokenCount = 0;
+    private int previousEnd = 0;
+
+    // id no arquivo de cada id de nome da fonte (-1: nome ainda não visto), na ordem em que aparecem
+    private int[] nameIds = new int[0];
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> literalIds = new HashMap<>();
+    private final List<String> literals = new ArrayList<>();
+    // inícios de linha da fonte; null sem --lex-positions
+    private LineIndex lines;
+
+    public LexBinaryWriter(Path path) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(TokenFile.HEADER_SIZE);
+    }
+
+    @Override
+    public void onToken(TokenCursor token) {
+        TokenType type = token.getType();
+        if (type == TokenType.EOF) {
+            return;
+        }
+        tokenCount++;
+        try {
+            if (buffer.remaining() < MAX_TOKEN_SIZE) {
+                flush();
+            }
+            int start = token.getStart();
+            int end = token.getEnd();
+            buffer.put((byte) type.ordinal());
+            putVarint(start - previousEnd);
+            putVarint(end - start);
+            previousEnd = end;
+            if (type == TokenType.IDENTIFIER) {
+                putVarint(nameId(token));
+            } else if (type.getText() == null) {
+                putVarint(literalId(token.getLexeme()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int nameId(TokenCursor token) {
+        int sourceId = token.getNameId();
+        if (sourceId >= nameIds.length) {
+            int length = nameIds.length;
+            nameIds = Arrays.copyOf(nameIds, Math.max(sourceId + 1, length * 2));
+            Arrays.fill(nameIds, length, nameIds.length, -1);
+        }
+        int id = nameIds[sourceId];
+        if (id < 0) {
+            id = names.size();
+            names.add(token.getNames().get(sourceId));
+            nameIds[sourceId] = id;
+        }
+        return id;
+    }
+
+    private int literalId(String lexeme) {
+        Integer id = literalIds.get(lexeme);
+        if (id == null) {
+            id = literals.size();
+            literals.add(lexeme);
+            literalIds.put(lexeme, id);
+        }
+        return id;
+    }
+
+    @Override
+    public void setLines(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long stringIndex = written + buffer.position();
+            writeStrings();
+            long linesOffset = 0;
+            int lineCount = 0;
+            if (lines != null) {
+                linesOffset = written + buffer.position();
+                lineCount = lines.getLineCount();
+                for (int line = 2; line <= lineCount; line++) {
+                    if (buffer.remaining() < 5) {
+                        flush();
+                    }
+                    putVarint(lines.getLineStart(line) - lines.getLineStart(line - 1));
+                }
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(TokenFile.HEADER_SIZE);
+            header.putInt(TokenFile.MAGIC).putInt(TokenFile.VERSION).putInt(TokenType.values().length)
+                    .putInt(tokenCount).putInt(names.size()).putInt(literals.size()).putInt(lineCount)
+                    .putLong(stringIndex).putLong(linesOffset);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    // O índice de posições e, depois dele, os nomes e os literais
+    private void writeStrings() throws IOException {
+        int count = names.size() + literals.size();
+        byte[][] encoded = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            String string = i < names.size() ? names.get(i) : literals.get(i - names.size());
+            encoded[i] = string.getBytes(StandardCharsets.UTF_8);
+        }
+        int position = 0;
+        for (byte[] bytes : encoded) {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(position);
+            position += varintSize(bytes.length) + bytes.length;
+        }
+        for (byte[] bytes : encoded) {
+            if (buffer.remaining() < 5) {
+                flush();
+            }
+            putVarint(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,141 @@
+package main;
+
+import lexer.LineIndex;
+import lexer.TokenCursor;
+import lexer.TokenType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Grava o arquivo .lex à medida que o Lexer produz os tokens, um por linha (com --lex-positions, seguidos
+// de um tab e linha:coluna). Monta os bytes direto num buffer direto grande, sem String.format nem
+// Writer: o "Token(TIPO, '" de cada tipo já está pronto em bytes e o lexema é codificado em UTF-8 à mão.
+public class LexFileWriter implements LexOutput {
+    private static final int BUFFER_SIZE = 1 << 20;
+    // espaço para o maior prefixo, um caractere codificado, "')" e a posição
+    private static final int MARGIN = 64;
+
+    private static final byte[][] PREFIXES = new byte[TokenType.values().length][];
+    private static final byte[] SUFFIX = "')".getBytes(StandardCharsets.UTF_8);
+
+    static {
+        for (TokenType type : TokenType.values()) {
+            PREFIXES[type.ordinal()] = ("Token(" + type.name() + ", '").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private final byte[] digits = new byte[10];
+    private long tokenCount = 0;
+    // inícios de linha da fonte; null sem --lex-positions
+    private LineIndex lines;
+
+    public LexFileWriter(Path path) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void onToken(TokenCursor token) {
+        TokenType type = token.getType();
+        if (type == TokenType.EOF) {
+            return;
+        }
+        tokenCount++;
+        try {
+            // mesmo formato de Token.toString(), sem criar o Token
+            if (buffer.remaining() < MARGIN) {
+                flush();
+            }
+            buffer.put(PREFIXES[type.ordinal()]);
+            putString(token.getLexeme());
+            buffer.put(SUFFIX);
+            if (lines != null) {
+                int start = token.getStart();
+                int line = lines.getLine(start);
+                buffer.put((byte) '\t');
+                putInt(line);
+                buffer.put((byte) ':');
+                putInt(lines.getColumn(start));
+            }
+            buffer.put(lineSeparator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Codifica em UTF-8 (os substitutos sem par viram '?', como em String.getBytes)
+    private void putString(String s) throws IOException {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < MARGIN) {
+                flush();
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buffer.put((byte) (0xF0 | (cp >> 18)));
+                    buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // Inteiro não negativo em decimal
+    private void putInt(int value) {
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, i, digits.length - i);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void setLines(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package main;
+
+import lexer.LineIndex;
+import lexer.TokenListener;
+
+import java.io.Closeable;
+
+// Destino dos tokens de uma compilação: o .lex em texto (LexFileWriter) ou o .lexb binário
+// (LexBinaryWriter, com --lex-binary)
+interface LexOutput extends TokenListener, Closeable {
+
+    // Passa a gravar as posições; 'lines' precisa já conter a linha de cada token recebido
+    void setLines(LineIndex lines);
+
+    long getTokenCount();
+}
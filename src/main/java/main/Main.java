@@ -1,56 +1,290 @@
 package main;
 
-import lexer.Lexer;
-import lexer.Token;
-import lexer.TokenType;
-import parser.ParserImpl;
-import symboltable.SymbolTable;
-
-import java.io.File;
-import java.io.FileNotFoundException;
+import jvm.ClassGenerator;
+import jvm.ProgramClassLoader;
+import opt.PassManager;
+import symboltable.SymbolInterface;
+import vm.CodeGenerator;
+import vm.Interpreter;
+import vm.Program;
+
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Main {
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Uso: java -jar compilador.jar <arquivo>.251");
-            System.exit(1);
+        System.exit(run(args, System.out, System.err));
+    }
+
+    // Executa o compilador com os argumentos dados e devolve o código de saída
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+        if (options.isDaemon()) {
+            return Daemon.serve(options, out, err);
+        }
+        if (options.isClient()) {
+            return DaemonClient.run(options, out, err);
+        }
+        return compile(options, out, err);
+    }
+
+    // Compila os arquivos pedidos, na linha de comando ou num pedido ao daemon
+    static int compile(Options options, PrintStream out, PrintStream err) {
+        List<Path> files;
+        // interfaces abertas uma vez e lidas por todas as compilações; com cache, o conteúdo delas entra na chave
+        List<SymbolInterface> imports = new ArrayList<>();
+        String signature = options.getOutputSignature();
+        try {
+            files = expandInputs(options);
+            for (Path imported : options.getImports()) {
+                Path file = options.resolve(imported);
+                if (!Files.isRegularFile(file)) {
+                    err.println("Arquivo não encontrado: " + imported);
+                    return 1;
+                }
+                imports.add(SymbolInterface.open(file));
+                if (options.getCacheDirectory() != null) {
+                    signature += " import=" + CompileCache.fingerprint(file);
+                }
+            }
+        } catch (IOException e) {
+            err.println("Erro: " + e.getMessage());
+            return 1;
         }
 
-        String sourcePath = args[0];
-        String lexPath = sourcePath.replaceAll("\\.251$", ".lex");
-        String tabPath = sourcePath.replaceAll("\\.251$", ".tab");
+        // um único arquivo mantém a saída detalhada de sempre; vários viram um lote com resumo
+        // --run precisa da árvore em memória, que o cache não guarda
+        CompileCache cache = options.getCacheDirectory() != null && !options.isRun()
+                ? new CompileCache(options.resolve(options.getCacheDirectory()), options.getCacheMaxBytes(), signature)
+                : null;
+        Path first = Paths.get(options.getInputs().get(0));
+        int status;
+        if (files.size() == 1 && options.getJobs() == 0 && !Files.isDirectory(options.resolve(first))) {
+            status = compileSingle(files.get(0), options, cache, imports, out, err);
+        } else {
+            status = compileBatch(files, options, cache, imports, out, err);
+        }
+        if (cache != null) {
+            cache.trim();
+            out.printf("Cache: %d acertos, %d faltas%n", cache.getHits(), cache.getMisses());
+        }
+        return status;
+    }
 
+    private static int compileSingle(Path file, Options options, CompileCache cache, List<SymbolInterface> imports,
+                                     PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        CompileResult result = new Compilador(options, cache, imports).compile(file);
+        long elapsed = System.nanoTime() - start;
+        if (!result.isSuccess()) {
+            for (String error : result.getErrors()) {
+                err.println(error);
+            }
+            if (options.getStatsTarget() != null) {
+                writeStats(List.of(result), elapsed, options, cache, out, err);
+            }
+            return 1;
+        }
+        out.println("Programa sintaticamente correto!");
+        // a tabela passa pelo próprio 'out', com o charset dele (no daemon, UTF-8 até o cliente)
+        StringWriter table = new StringWriter();
+        result.printTable(new PrintWriter(table));
+        out.println();
+        out.print(table);
+        out.println("Arquivos gerados: " + result.getLexPath() + ", " + result.getTabPath()
+                + (result.getSymPath() != null ? ", " + result.getSymPath() : "")
+                + (result.getAstPath() != null ? ", " + result.getAstPath() : "")
+                + (result.getClassPath() != null ? ", " + result.getClassPath() : ""));
+        if (result.getPassReport() != null) {
+            for (PassManager.PassStats pass : result.getPassReport()) {
+                out.printf("Passe %s: %d mudanças, %d -> %d nós, %d µs%n", pass.getName(), pass.getChanges(),
+                        pass.getNodesBefore(), pass.getNodesAfter(), pass.getNanos() / 1000);
+            }
+        }
+        if (options.getStatsTarget() != null && !writeStats(List.of(result), elapsed, options, cache, out, err)) {
+            return 1;
+        }
+        if (!options.isRun()) {
+            return 0;
+        }
+        return options.isJvm() ? executeClass(result, out, err) : execute(result, out, err);
+    }
+
+    // --run: traduz a árvore para a máquina de pilha e executa a função main, com a saída em 'out'
+    private static int execute(CompileResult result, PrintStream out, PrintStream err) {
+        Program program;
         try {
-            Lexer lexer = new Lexer(new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(sourcePath))));
-            SymbolTable symbolTable = new SymbolTable();
+            program = result.getTypes() != null
+                    ? CodeGenerator.generate(result.getTypes())
+                    : CodeGenerator.generate(result.getAst(), result.getSymbolTable());
+        } catch (RuntimeException e) {
+            err.println("Erro: " + e.getMessage());
+            return 1;
+        }
+        out.println();
+        try {
+            new Interpreter(program, out).run();
+        } catch (RuntimeException e) {
+            err.println("Erro de execução: " + e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    // --run --jvm: carrega o .class gerado e executa a função main nesta JVM
+    private static int executeClass(CompileResult result, PrintStream out, PrintStream err) {
+        Method main;
+        try {
+            Class<?> program = new ProgramClassLoader().define(ClassGenerator.getClassName(result.getAst()),
+                    result.getClassBytes());
+            main = ProgramClassLoader.findMain(program);
+        } catch (RuntimeException | LinkageError e) {
+            err.println("Erro: " + e.getMessage());
+            return 1;
+        }
+        out.println();
+        try {
+            ProgramClassLoader.run(main, out);
+        } catch (RuntimeException e) {
+            err.println("Erro de execução: " + e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int compileBatch(List<Path> files, Options options, CompileCache cache, List<SymbolInterface> imports,
+                                    PrintStream out, PrintStream err) {
+        if (options.isRun()) {
+            err.println("--run só executa um único arquivo");
+            return 1;
+        }
+        int jobs = options.getJobs() > 0 ? options.getJobs() : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+
+        // trabalho puramente de CPU: um pool limitado ao número de tarefas pedidas
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(jobs, Math.max(1, files.size())));
+        Compilador compilador = new Compilador(options, cache, imports);
+        List<Future<CompileResult>> pending = new ArrayList<>(files.size());
+        for (Path file : files) {
+            pending.add(executor.submit(() -> compilador.compile(file)));
+        }
 
-            try (PrintWriter lexOut = new PrintWriter(new File(lexPath))) {
-                Token token;
-                // Gera arquivo .lex
-                while ((token = lexer.nextToken()).getType() != TokenType.EOF) {
-                    lexOut.println(token);
-                    // para tabela de símbolos, coletamos tokens via parser
+        int failed = 0;
+        long tokens = 0;
+        long bytes = 0;
+        List<CompileResult> results = new ArrayList<>(files.size());
+        try {
+            for (Future<CompileResult> future : pending) {
+                CompileResult result = future.get();
+                results.add(result);
+                tokens += result.getTokens();
+                bytes += result.getBytes();
+                if (!result.isSuccess()) {
+                    failed++;
+                    for (String error : result.getErrors()) {
+                        err.println(result.getSource() + ": " + error);
+                    }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Erro: compilação interrompida");
+            return 1;
+        } catch (ExecutionException e) {
+            err.println("Erro: " + e.getCause());
+            return 1;
+        } finally {
+            executor.shutdownNow();
+        }
 
-            // para análise sintática e tabela
-            lexer = new Lexer(new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(sourcePath))));
-            ParserImpl parser = new ParserImpl(lexer, symbolTable);
-            parser.parseFileProgram();
+        long elapsed = System.nanoTime() - start;
+        if (options.getStatsTarget() != null && !writeStats(results, elapsed, options, cache, out, err)) {
+            return 1;
+        }
+        long millis = elapsed / 1_000_000;
+        out.printf("Resumo: %d arquivos, %d compilados, %d com erro, %d tokens, %d bytes, %d ms (%d tarefas)%n",
+                files.size(), files.size() - failed, failed, tokens, bytes, millis, jobs);
+        return failed == 0 ? 0 : 1;
+    }
 
-            try (PrintWriter tabOut = new PrintWriter(new File(tabPath))) {
-                symbolTable.printTable(tabOut);
+    // Relatório de --stats em JSON: fases de cada arquivo, totais e pico de heap da JVM
+    private static boolean writeStats(List<CompileResult> results, long wallNanos, Options options, CompileCache cache,
+                                      PrintStream out, PrintStream err) {
+        StringBuilder json = new StringBuilder("{\"files\":[");
+        long bytes = 0;
+        long tokens = 0;
+        for (int i = 0; i < results.size(); i++) {
+            CompileResult result = results.get(i);
+            if (i > 0) {
+                json.append(',');
             }
+            result.getStats().appendJson(json, result);
+            bytes += result.getBytes();
+            tokens += result.getTokens();
+        }
+        json.append("],\"total\":{\"files\":").append(results.size())
+                .append(",\"bytes\":").append(bytes)
+                .append(",\"tokens\":").append(tokens)
+                .append(",\"wallNanos\":").append(wallNanos)
+                .append(",\"bytesPerSec\":").append(CompileStats.perSecond(bytes, wallNanos))
+                .append(",\"tokensPerSec\":").append(CompileStats.perSecond(tokens, wallNanos))
+                .append(",\"peakHeapBytes\":").append(CompileStats.peakHeapBytes());
+        if (cache != null) {
+            json.append(",\"cacheHits\":").append(cache.getHits())
+                    .append(",\"cacheMisses\":").append(cache.getMisses());
+        }
+        json.append("}}");
 
-            System.out.println("Arquivos gerados: " + lexPath + ", " + tabPath);
+        if (Options.STATS_STDOUT.equals(options.getStatsTarget())) {
+            out.println(json);
+            return true;
+        }
+        try {
+            Files.writeString(options.resolve(Paths.get(options.getStatsTarget())), json.append(System.lineSeparator()));
+            return true;
+        } catch (IOException e) {
+            err.println("Erro ao gravar " + options.getStatsTarget() + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-        } catch (FileNotFoundException e) {
-            System.err.println("Arquivo não encontrado: " + sourcePath);
-            System.exit(1);
-        } catch (Exception e) {
-            System.err.println("Erro: " + e.getMessage());
-            System.exit(1);
+    // Arquivos a compilar: os informados, e os .251 encontrados dentro de diretórios
+    private static List<Path> expandInputs(Options options) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : options.getInputs()) {
+            Path path = Paths.get(input);
+            Path directory = options.resolve(path);
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> walk = Files.walk(directory)) {
+                    files.addAll(walk.filter(p -> p.toString().endsWith(".251") && Files.isRegularFile(p))
+                            .map(p -> path.resolve(directory.relativize(p)))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
         }
+        return files;
     }
 }
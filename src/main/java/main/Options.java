@@ -0,0 +1,297 @@
+package main;
+
+import opt.PassManager;
+import parser.Diagnostics;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Opções da linha de comando
+public class Options {
+    static final String USAGE = "Uso: java -jar compilador.jar [--client [--socket ARQ]] [--jobs N] [--parallel-lex] [--parallel-parse] [--lex-positions] [--lex-binary] [--sym] [--import ARQ.sym ...] [--ast] [--run] [--jvm] [--opt[=passe,...]] [--max-errors N] [--cache DIR [--cache-size MB]] [--stats[=arquivo.json]] <arquivo>.251|<diretório> ...\n"
+            + "     java -jar compilador.jar --daemon [--socket ARQ | --stdio]\n"
+            + "     java -jar compilador.jar --client [--socket ARQ] --shutdown";
+
+    // valor de getStatsTarget() quando o relatório vai para a saída padrão
+    static final String STATS_STDOUT = "-";
+
+    private final List<String> inputs = new ArrayList<>();
+    private int jobs = 0;
+    private boolean parallelLex = false;
+    private boolean parallelParse = false;
+    private boolean lexPositions = false;
+    private boolean lexBinary = false;
+    private boolean sym = false;
+    private final List<Path> imports = new ArrayList<>();
+    private boolean ast = false;
+    private boolean run = false;
+    private boolean jvm = false;
+    private boolean optimize = false;
+    private List<String> optPasses = null;
+    private int maxErrors = Diagnostics.DEFAULT_MAX_ERRORS;
+    private Path cacheDirectory = null;
+    private long cacheMaxBytes = CompileCache.DEFAULT_MAX_BYTES;
+    private String statsTarget = null;
+    private boolean daemon = false;
+    private boolean stdio = false;
+    private boolean client = false;
+    private boolean shutdown = false;
+    private Path socket = null;
+    // argumentos que o cliente repassa ao daemon (todos menos os do próprio cliente)
+    private final List<String> forwarded = new ArrayList<>();
+    // diretório contra o qual caminhos relativos são resolvidos (o do cliente, num pedido ao daemon)
+    private Path workingDirectory = Paths.get("");
+
+    // Lança IllegalArgumentException com a mensagem a mostrar ao usuário se os argumentos forem inválidos
+    public static Options parse(String[] args) {
+        return parse(args, Paths.get(""));
+    }
+
+    public static Options parse(String[] args, Path workingDirectory) {
+        Options options = new Options();
+        options.workingDirectory = workingDirectory;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int first = i;
+            switch (arg) {
+                case "--daemon" -> options.daemon = true;
+                case "--stdio" -> options.stdio = true;
+                case "--client" -> options.client = true;
+                case "--shutdown" -> options.shutdown = true;
+                case "--socket" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o arquivo após " + arg);
+                    }
+                    options.socket = Paths.get(args[++i]);
+                }
+                case "-j", "--jobs" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o número de tarefas após " + arg);
+                    }
+                    options.jobs = parsePositive(arg, args[++i]);
+                }
+                case "--parallel-lex" -> options.parallelLex = true;
+                case "--parallel-parse" -> options.parallelParse = true;
+                case "--lex-positions" -> options.lexPositions = true;
+                case "--lex-binary" -> options.lexBinary = true;
+                case "--sym" -> options.sym = true;
+                case "--import" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o arquivo após " + arg);
+                    }
+                    options.imports.add(Paths.get(args[++i]));
+                }
+                case "--ast" -> options.ast = true;
+                case "--run" -> options.run = true;
+                case "--jvm" -> options.jvm = true;
+                case "--opt" -> options.optimize = true;
+                case "--max-errors" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o número de erros após " + arg);
+                    }
+                    options.maxErrors = parsePositive(arg, args[++i]);
+                }
+                case "--cache" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o diretório após " + arg);
+                    }
+                    options.cacheDirectory = Paths.get(args[++i]);
+                }
+                case "--cache-size" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Falta o tamanho em MB após " + arg);
+                    }
+                    options.cacheMaxBytes = parsePositive(arg, args[++i]) * (1L << 20);
+                }
+                case "--stats" -> options.statsTarget = STATS_STDOUT;
+                default -> {
+                    if (arg.startsWith("--stats=")) {
+                        options.statsTarget = arg.substring("--stats=".length());
+                        if (options.statsTarget.isEmpty()) {
+                            throw new IllegalArgumentException("Falta o arquivo após --stats=");
+                        }
+                    } else if (arg.startsWith("--opt=")) {
+                        options.optimize = true;
+                        options.optPasses = Arrays.asList(arg.substring("--opt=".length()).split(","));
+                        for (String pass : options.optPasses) {
+                            if (!PassManager.isKnown(pass)) {
+                                throw new IllegalArgumentException("Passe de otimização desconhecido: " + pass
+                                        + " (passes: " + String.join(",", PassManager.STANDARD) + ")");
+                            }
+                        }
+                    } else if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("Opção desconhecida: " + arg);
+                    } else {
+                        options.inputs.add(arg);
+                    }
+                }
+            }
+            if (!isDaemonOption(arg)) {
+                for (int j = first; j <= i; j++) {
+                    options.forwarded.add(args[j]);
+                }
+            }
+        }
+        if (options.daemon && options.client) {
+            throw new IllegalArgumentException("Use --daemon ou --client, não os dois");
+        }
+        if ((options.stdio && !options.daemon) || (options.shutdown && !options.client)) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        if (!options.imports.isEmpty() && (options.run || options.jvm || options.optimize)) {
+            throw new IllegalArgumentException("--import não pode ser usado com --run, --jvm ou --opt: "
+                    + "as declarações importadas não têm código");
+        }
+        if (options.inputs.isEmpty() && !options.daemon && !options.shutdown) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        return options;
+    }
+
+    private static boolean isDaemonOption(String arg) {
+        return switch (arg) {
+            case "--daemon", "--stdio", "--client", "--shutdown", "--socket" -> true;
+            default -> false;
+        };
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // tratado abaixo
+        }
+        throw new IllegalArgumentException("Valor inválido para " + option + ": " + value);
+    }
+
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    // Número de compilações simultâneas; 0 = um por processador
+    public int getJobs() {
+        return jobs;
+    }
+
+    // Divide a análise léxica de cada arquivo entre os processadores (útil para arquivos enormes)
+    public boolean isParallelLex() {
+        return parallelLex;
+    }
+
+    public boolean isParallelParse() {
+        return parallelParse;
+    }
+
+    // Acrescenta linha:coluna a cada token do .lex
+    public boolean isLexPositions() {
+        return lexPositions;
+    }
+
+    // Grava os tokens no .lexb binário (lexer.TokenFile) em vez do .lex em texto
+    public boolean isLexBinary() {
+        return lexBinary;
+    }
+
+    // Gera também o .sym, a interface binária da tabela de símbolos (symboltable.SymbolInterface)
+    public boolean isSym() {
+        return sym;
+    }
+
+    // Interfaces (.sym) cujos símbolos globais o programa pode usar sem declarar, na ordem de --import
+    public List<Path> getImports() {
+        return imports;
+    }
+
+    // Gera também o .ast com a árvore sintática
+    public boolean isAst() {
+        return ast;
+    }
+
+    // Executa o programa (função main) depois de compilá-lo; só com um único arquivo
+    public boolean isRun() {
+        return run;
+    }
+
+    // Gera também o .class do programa; com --run, a execução é feita pela JVM
+    public boolean isJvm() {
+        return jvm;
+    }
+
+    // Otimiza a árvore antes de gerar código ou executar
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    // Passes pedidos em --opt=..., na ordem; null para os de PassManager.STANDARD
+    public List<String> getOptPasses() {
+        return optPasses;
+    }
+
+    // Erros registrados por arquivo antes de a análise parar
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    // Diretório do cache de compilações (--cache), ou null
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    // Opções que mudam os arquivos gerados ou os erros: entram na chave do cache (--parallel-*, --jobs e
+    // --stats não mudam o resultado; o conteúdo das interfaces importadas é acrescentado pelo Main)
+    String getOutputSignature() {
+        return "lexBinary=" + lexBinary + " lexPositions=" + lexPositions + " sym=" + sym + " ast=" + ast + " jvm=" + jvm
+                + " opt=" + (optimize ? (optPasses != null ? String.join(",", optPasses) : "standard") : "none")
+                + " maxErrors=" + maxErrors;
+    }
+
+    // Destino do relatório de --stats (STATS_STDOUT ou um caminho); null sem --stats
+    public String getStatsTarget() {
+        return statsTarget;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    // Daemon atendendo pedidos pela entrada e saída padrão em vez de um socket
+    public boolean isStdio() {
+        return stdio;
+    }
+
+    public boolean isClient() {
+        return client;
+    }
+
+    // Cliente pedindo que o daemon termine
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    // Socket Unix do daemon: o informado em --socket ou um por usuário no diretório temporário
+    public Path getSocket() {
+        if (socket != null) {
+            return socket;
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "compilador-" + System.getProperty("user.name") + ".sock");
+    }
+
+    public List<String> getForwardedArguments() {
+        return forwarded;
+    }
+
+    // Caminho de arquivo como o sistema deve abri-lo; o caminho informado continua sendo o exibido
+    public Path resolve(Path path) {
+        return workingDirectory.resolve(path);
+    }
+}
@@ -0,0 +1,28 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Evento JFR de uma fase da compilação de um arquivo. Sem gravação JFR ativa, custa praticamente nada.
+@Name("cangacode.CompilePhase")
+@Label("Fase da compilação")
+@Category("CangaCode")
+@Description("Duração de uma fase (leitura, análise, gravação) da compilação de um arquivo")
+class PhaseEvent extends Event {
+    @Label("Arquivo")
+    String file;
+
+    @Label("Fase")
+    String phase;
+
+    @Label("Bytes da fonte")
+    @DataAmount
+    long bytes;
+
+    @Label("Tokens")
+    long tokens;
+}
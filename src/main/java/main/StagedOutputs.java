@@ -0,0 +1,46 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Arquivos gerados por uma compilação. Com cache, cada um é gravado num temporário ao lado
+// (CompileCache.stagingPath()) e só é renomeado para o nome final em publish(), depois de guardado no
+// cache: assim nenhuma outra compilação do mesmo arquivo, em outro processo, vê ou guarda no cache uma
+// saída pela metade. Sem cache, as saídas são gravadas direto.
+final class StagedOutputs {
+    private final boolean staged;
+    // nome final -> temporário, na ordem em que foram gravados
+    private final Map<Path, Path> temps = new LinkedHashMap<>();
+
+    StagedOutputs(boolean staged) {
+        this.staged = staged;
+    }
+
+    // Onde gravar a saída 'path'
+    Path target(Path path) {
+        if (!staged) {
+            return path;
+        }
+        Path temp = CompileCache.stagingPath(path);
+        temps.put(path, temp);
+        return temp;
+    }
+
+    // Onde está o conteúdo gravado para 'path' até publish()
+    Path current(Path path) {
+        return temps.getOrDefault(path, path);
+    }
+
+    // Dá os nomes finais aos temporários (mesmo depois de um erro, como as saídas gravadas direto)
+    void publish() throws IOException {
+        for (Map.Entry<Path, Path> temp : temps.entrySet()) {
+            if (Files.exists(temp.getValue())) {
+                Files.move(temp.getValue(), temp.getKey(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package main;
+
+import lexer.NamePool;
+import lexer.TokenCursor;
+import lexer.TokenListener;
+import lexer.TokenType;
+
+// Com --stats, mede o tempo e a alocação dentro do Lexer (next) e da gravação do .lex (listener),
+// para separar lexer, parser e escrita numa análise que acontece intercalada
+final class TimedCursor implements TokenCursor, TokenListener {
+    private final TokenCursor cursor;
+    private final TokenListener listener;
+    private final CompileStats stats;
+
+    // tempo e alocação dentro de next(), incluindo o listener
+    private long nextNanos;
+    private long nextAllocated;
+
+    TimedCursor(TokenCursor cursor, TokenListener listener, CompileStats stats) {
+        this.cursor = cursor;
+        this.listener = listener;
+        this.stats = stats;
+    }
+
+    @Override
+    public TokenType next() {
+        long allocated = CompileStats.allocatedBytes();
+        long start = System.nanoTime();
+        TokenType type = cursor.next();
+        nextNanos += System.nanoTime() - start;
+        nextAllocated += CompileStats.allocatedBytes() - allocated;
+        return type;
+    }
+
+    @Override
+    public void onToken(TokenCursor token) {
+        long allocated = CompileStats.allocatedBytes();
+        long start = System.nanoTime();
+        listener.onToken(token);
+        stats.add(CompileStats.Phase.LEX_WRITE, System.nanoTime() - start, CompileStats.allocatedBytes() - allocated);
+    }
+
+    // Reparte o intervalo total da análise entre lexer e parser (a escrita já foi contada)
+    void finish(long totalNanos, long totalAllocated) {
+        long lexNanos = nextNanos - stats.getNanos(CompileStats.Phase.LEX_WRITE);
+        long lexAllocated = nextAllocated - stats.getAllocated(CompileStats.Phase.LEX_WRITE);
+        stats.add(CompileStats.Phase.LEX, lexNanos, lexAllocated);
+        stats.add(CompileStats.Phase.PARSE, totalNanos - nextNanos, totalAllocated - nextAllocated);
+    }
+
+    @Override
+    public TokenType getType() {
+        return cursor.getType();
+    }
+
+    @Override
+    public int getStart() {
+        return cursor.getStart();
+    }
+
+    @Override
+    public int getEnd() {
+        return cursor.getEnd();
+    }
+
+    @Override
+    public String getLexeme() {
+        return cursor.getLexeme();
+    }
+
+    @Override
+    public int getNameId() {
+        return cursor.getNameId();
+    }
+
+    @Override
+    public NamePool getNames() {
+        return cursor.getNames();
+    }
+}
@@ -0,0 +1,195 @@
+package opt;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.NodeKind;
+import ast.TypeChecker;
+import lexer.TokenType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Eliminação de subexpressões comuns dentro de cada trecho sem desvios: os comandos seguidos de um
+// bloco até o próximo if ou while (a condição do if entra no trecho; a do while, não, porque é
+// reavaliada a cada volta). Uma operação que se repete com os mesmos operandos vira TEMP, e a primeira
+// ocorrência vira SAVE, que guarda o valor num temporário da função. Os operandos são identificados
+// por numeração de valores: cada variável tem uma versão, trocada a cada atribuição, e as globais
+// também mudam a cada chamada (a função chamada pode atribuí-las). Como só se reaproveita dentro do
+// mesmo trecho, a ordem do texto é a da execução. Expressões com chamada nunca são reaproveitadas.
+// Conta as ocorrências trocadas por TEMP.
+final class CommonSubexpressions implements Pass {
+    private Ast ast;
+    private int changes;
+
+    // número do valor de cada nó da expressão sendo tratada (-1: não reaproveitável)
+    private int[] values;
+    // chave (tipo, dado e valores dos filhos) -> número do valor, na função inteira
+    private final Map<String, Integer> numbers = new HashMap<>();
+    // por número de valor: primeira ocorrência no trecho atual e seu temporário (-1 se ainda não é SAVE)
+    private final Map<Integer, int[]> available = new HashMap<>();
+    // por id de nome: versão da variável e se é parâmetro da função atual; chamadas feitas até aqui
+    private int[] versions;
+    private boolean[] params;
+    private int calls;
+    private int temps;
+
+    private final AstVisitor numbering = new AstVisitor() {
+        @Override
+        public boolean enter(Ast ast, int node) {
+            return true;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            values[node] = number(node);
+            if (ast.getKind(node) == NodeKind.CALL) {
+                calls++;
+            }
+        }
+    };
+
+    private final AstVisitor replacing = new AstVisitor() {
+        @Override
+        public boolean enter(Ast ast, int node) {
+            int[] first = isCandidate(node) ? available.get(values[node]) : null;
+            if (first == null) {
+                return true;
+            }
+            if (first[1] < 0) {
+                first[1] = temps++;
+                save(first[0], first[1]);
+            }
+            ast.replace(node, NodeKind.TEMP, first[1]);
+            changes++;
+            return false;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            if (isCandidate(node)) {
+                available.putIfAbsent(values[node], new int[]{node, -1});
+            }
+        }
+    };
+
+    @Override
+    public String getName() {
+        return "cse";
+    }
+
+    @Override
+    public int run(Ast ast, TypeChecker types) {
+        this.ast = ast;
+        changes = 0;
+        values = new int[ast.size()];
+        versions = new int[ast.getNames().size()];
+        params = new boolean[ast.getNames().size()];
+        for (int unit = ast.getFirstChild(ast.getRoot()); unit != Ast.NONE; unit = ast.getNextSibling(unit)) {
+            if (ast.getKind(unit) == NodeKind.FUNCTION) {
+                function(unit);
+            }
+        }
+        return changes;
+    }
+
+    private void function(int function) {
+        numbers.clear();
+        available.clear();
+        temps = 0;
+        for (int child = ast.getFirstChild(function); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                params[ast.getData(child)] = true;
+            }
+        }
+        block(ast.getChild(function, ast.getChildCount(function) - 1));
+        for (int child = ast.getFirstChild(function); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                params[ast.getData(child)] = false;
+            }
+        }
+    }
+
+    private void block(int block) {
+        available.clear();
+        for (int command = ast.getFirstChild(block); command != Ast.NONE; command = ast.getNextSibling(command)) {
+            switch (ast.getKind(command)) {
+                case ASSIGN -> {
+                    expression(ast.getFirstChild(command));
+                    versions[ast.getData(command)]++;
+                }
+                case CALL -> expression(command);
+                case RETURN, PRINT -> expression(ast.getFirstChild(command));
+                case IF -> {
+                    int condition = ast.getFirstChild(command);
+                    expression(condition);
+                    for (int branch = ast.getNextSibling(condition); branch != Ast.NONE; branch = ast.getNextSibling(branch)) {
+                        block(branch);
+                    }
+                    available.clear();
+                }
+                case WHILE -> {
+                    available.clear();
+                    int condition = ast.getFirstChild(command);
+                    expression(condition);
+                    block(ast.getNextSibling(condition));
+                    available.clear();
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    // Numera a expressão e troca por TEMP as ocorrências repetidas, da maior para a menor
+    private void expression(int node) {
+        ast.walk(node, numbering);
+        ast.walk(node, replacing);
+    }
+
+    // Operação que vale a pena guardar (variáveis e literais já custam uma instrução, e o + unário nada)
+    private boolean isCandidate(int node) {
+        NodeKind kind = ast.getKind(node);
+        return values[node] >= 0
+                && (kind == NodeKind.BINARY || (kind == NodeKind.UNARY && ast.getTokenType(node) == TokenType.SUB));
+    }
+
+    private int number(int node) {
+        NodeKind kind = ast.getKind(node);
+        String key = switch (kind) {
+            case INT_LITERAL, REAL_LITERAL, STRING_LITERAL, CHAR_LITERAL -> kind.ordinal() + ":" + ast.getLiteral(node);
+            case BOOLEAN_LITERAL -> kind.ordinal() + ":" + ast.getData(node);
+            case VARIABLE -> {
+                int name = ast.getData(node);
+                yield kind.ordinal() + ":" + name + "@" + versions[name] + (params[name] ? "" : "/" + calls);
+            }
+            case BINARY, UNARY -> {
+                StringBuilder operation = new StringBuilder().append(kind.ordinal()).append(':').append(ast.getData(node));
+                for (int child = ast.getFirstChild(node); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (values[child] < 0) {
+                        yield null;
+                    }
+                    operation.append(',').append(values[child]);
+                }
+                yield operation.toString();
+            }
+            default -> null;
+        };
+        if (key == null) {
+            return -1;
+        }
+        Integer number = numbers.get(key);
+        if (number == null) {
+            number = numbers.size();
+            numbers.put(key, number);
+        }
+        return number;
+    }
+
+    // A primeira ocorrência vira SAVE, com uma cópia dela como filho
+    private void save(int node, int temp) {
+        int copy = ast.add(ast.getKind(node), ast.getToken(node), ast.getData(node));
+        ast.setFirstChild(copy, ast.getFirstChild(node));
+        ast.replace(node, NodeKind.SAVE, temp);
+        ast.setFirstChild(node, copy);
+    }
+}
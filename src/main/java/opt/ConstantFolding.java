@@ -0,0 +1,158 @@
+package opt;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.NodeKind;
+import ast.TypeChecker;
+import lexer.TokenType;
+
+// Troca operações sobre literais pelo literal do resultado, de baixo para cima (então 2 * 3 + 1 vira 7),
+// com a mesma aritmética da execução: inteiros de 32 bits com estouro, reais em double, conversões para
+// string como no print. Divisão e resto inteiros por zero ficam para dar o erro na execução.
+final class ConstantFolding implements Pass {
+    @Override
+    public String getName() {
+        return "fold";
+    }
+
+    @Override
+    public int run(Ast ast, TypeChecker types) {
+        int[] folded = new int[1];
+        ast.walk(ast.getRoot(), new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                return true;
+            }
+
+            @Override
+            public void exit(Ast ast, int node) {
+                NodeKind kind = ast.getKind(node);
+                if ((kind == NodeKind.BINARY || kind == NodeKind.UNARY) && fold(ast, types, node)) {
+                    folded[0]++;
+                }
+            }
+        });
+        return folded[0];
+    }
+
+    private static boolean fold(Ast ast, TypeChecker types, int node) {
+        for (int child = ast.getFirstChild(node); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (!isLiteral(ast.getKind(child))) {
+                return false;
+            }
+        }
+        TokenType operator = ast.getTokenType(node);
+        TokenType operands = types.getOperandType(node);
+        int left = ast.getFirstChild(node);
+        if (ast.getKind(node) == NodeKind.UNARY) {
+            boolean negate = operator == TokenType.SUB;
+            if (operands == TokenType.REAL) {
+                double value = real(ast, left);
+                realLiteral(ast, node, negate ? -value : value);
+            } else {
+                int value = integer(ast, left);
+                intLiteral(ast, node, negate ? -value : value);
+            }
+            return true;
+        }
+
+        int right = ast.getNextSibling(left);
+        switch (operands) {
+            case STRING -> {
+                String a = text(ast, left);
+                String b = text(ast, right);
+                switch (operator) {
+                    case ADD -> ast.replace(node, NodeKind.STRING_LITERAL, ast.addLiteral(a.concat(b)));
+                    case EQ -> booleanLiteral(ast, node, a.equals(b));
+                    default -> booleanLiteral(ast, node, !a.equals(b));
+                }
+            }
+            case BOOLEAN -> {
+                boolean equal = ast.getData(left) == ast.getData(right);
+                booleanLiteral(ast, node, operator == TokenType.EQ ? equal : !equal);
+            }
+            case REAL -> {
+                double a = real(ast, left);
+                double b = real(ast, right);
+                switch (operator) {
+                    case ADD -> realLiteral(ast, node, a + b);
+                    case SUB -> realLiteral(ast, node, a - b);
+                    case MUL -> realLiteral(ast, node, a * b);
+                    case DIV -> realLiteral(ast, node, a / b);
+                    case MOD -> realLiteral(ast, node, a % b);
+                    case LT -> booleanLiteral(ast, node, a < b);
+                    case LE -> booleanLiteral(ast, node, a <= b);
+                    case GT -> booleanLiteral(ast, node, a > b);
+                    case GE -> booleanLiteral(ast, node, a >= b);
+                    case EQ -> booleanLiteral(ast, node, a == b);
+                    default -> booleanLiteral(ast, node, a != b);
+                }
+            }
+            default -> {
+                int a = integer(ast, left);
+                int b = integer(ast, right);
+                if ((operator == TokenType.DIV || operator == TokenType.MOD) && b == 0) {
+                    return false;
+                }
+                switch (operator) {
+                    case ADD -> intLiteral(ast, node, a + b);
+                    case SUB -> intLiteral(ast, node, a - b);
+                    case MUL -> intLiteral(ast, node, a * b);
+                    case DIV -> intLiteral(ast, node, a / b);
+                    case MOD -> intLiteral(ast, node, a % b);
+                    case LT -> booleanLiteral(ast, node, a < b);
+                    case LE -> booleanLiteral(ast, node, a <= b);
+                    case GT -> booleanLiteral(ast, node, a > b);
+                    case GE -> booleanLiteral(ast, node, a >= b);
+                    case EQ -> booleanLiteral(ast, node, a == b);
+                    default -> booleanLiteral(ast, node, a != b);
+                }
+            }
+        }
+        return true;
+    }
+
+    static boolean isLiteral(NodeKind kind) {
+        return switch (kind) {
+            case INT_LITERAL, REAL_LITERAL, STRING_LITERAL, CHAR_LITERAL, BOOLEAN_LITERAL -> true;
+            default -> false;
+        };
+    }
+
+    // Valor de um literal inteiro ou caractere (o código do caractere; 0 se vazio)
+    private static int integer(Ast ast, int node) {
+        String text = ast.getLiteral(node);
+        if (ast.getKind(node) == NodeKind.INT_LITERAL) {
+            return Integer.parseInt(text);
+        }
+        return text.isEmpty() ? 0 : text.codePointAt(0);
+    }
+
+    private static double real(Ast ast, int node) {
+        return ast.getKind(node) == NodeKind.REAL_LITERAL ? Double.parseDouble(ast.getLiteral(node)) : integer(ast, node);
+    }
+
+    // Texto do literal como na concatenação da execução
+    private static String text(Ast ast, int node) {
+        return switch (ast.getKind(node)) {
+            case STRING_LITERAL -> ast.getLiteral(node);
+            case REAL_LITERAL -> Double.toString(real(ast, node));
+            case BOOLEAN_LITERAL -> ast.getData(node) != 0 ? "true" : "false";
+            case CHAR_LITERAL -> Character.toString(integer(ast, node));
+            default -> Integer.toString(integer(ast, node));
+        };
+    }
+
+    private static void intLiteral(Ast ast, int node, int value) {
+        ast.replace(node, NodeKind.INT_LITERAL, ast.addLiteral(Integer.toString(value)));
+    }
+
+    // Double.toString volta ao mesmo double com Double.parseDouble (inclusive NaN e infinitos)
+    private static void realLiteral(Ast ast, int node, double value) {
+        ast.replace(node, NodeKind.REAL_LITERAL, ast.addLiteral(Double.toString(value)));
+    }
+
+    private static void booleanLiteral(Ast ast, int node, boolean value) {
+        ast.replace(node, NodeKind.BOOLEAN_LITERAL, value ? 1 : 0);
+    }
+}
@@ -0,0 +1,88 @@
+package opt;
+
+import ast.Ast;
+import ast.NodeKind;
+import ast.TypeChecker;
+
+// Resolve if e while com condição literal (o if vira os comandos do bloco escolhido; while (false)
+// some) e tira os comandos que vêm depois de um return ou break no mesmo bloco, que nunca executam.
+// Conta cada comando removido ou resolvido. Os comandos são percorridos recursivamente, como no
+// TypeChecker.
+final class DeadBranches implements Pass {
+    private int changes;
+
+    @Override
+    public String getName() {
+        return "dead";
+    }
+
+    @Override
+    public int run(Ast ast, TypeChecker types) {
+        changes = 0;
+        for (int unit = ast.getFirstChild(ast.getRoot()); unit != Ast.NONE; unit = ast.getNextSibling(unit)) {
+            if (ast.getKind(unit) == NodeKind.FUNCTION) {
+                block(ast, ast.getChild(unit, ast.getChildCount(unit) - 1));
+            }
+        }
+        return changes;
+    }
+
+    // Religa os comandos que ficam no bloco, na ordem
+    private void block(Ast ast, int block) {
+        int last = Ast.NONE;
+        boolean ended = false;
+        int command = ast.getFirstChild(block);
+        while (command != Ast.NONE) {
+            int next = ast.getNextSibling(command);
+            if (ended) {
+                changes++;
+            } else if (isLiteralCondition(ast, command)) {
+                changes++;
+                int condition = ast.getFirstChild(command);
+                int chosen = Ast.NONE;
+                if (ast.getKind(command) == NodeKind.IF) {
+                    int then = ast.getNextSibling(condition);
+                    chosen = ast.getData(condition) != 0 ? then : ast.getNextSibling(then);
+                }
+                if (chosen != Ast.NONE) {
+                    block(ast, chosen);
+                    for (int inner = ast.getFirstChild(chosen); inner != Ast.NONE && !ended; ) {
+                        int innerNext = ast.getNextSibling(inner);
+                        last = ast.append(block, last, inner);
+                        ended = isJump(ast, inner);
+                        inner = innerNext;
+                    }
+                }
+            } else {
+                for (int child = ast.getFirstChild(command); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (ast.getKind(child) == NodeKind.BLOCK) {
+                        block(ast, child);
+                    }
+                }
+                last = ast.append(block, last, command);
+                ended = isJump(ast, command);
+            }
+            command = next;
+        }
+        if (last == Ast.NONE) {
+            ast.setFirstChild(block, Ast.NONE);
+        } else {
+            ast.setNextSibling(last, Ast.NONE);
+        }
+    }
+
+    // if com condição literal, ou while (false); while (true) fica, já que só sai por break
+    private static boolean isLiteralCondition(Ast ast, int command) {
+        NodeKind kind = ast.getKind(command);
+        if (kind != NodeKind.IF && kind != NodeKind.WHILE) {
+            return false;
+        }
+        int condition = ast.getFirstChild(command);
+        return ast.getKind(condition) == NodeKind.BOOLEAN_LITERAL && (kind == NodeKind.IF || ast.getData(condition) == 0);
+    }
+
+    private static boolean isJump(Ast ast, int command) {
+        NodeKind kind = ast.getKind(command);
+        return kind == NodeKind.RETURN || kind == NodeKind.BREAK;
+    }
+}
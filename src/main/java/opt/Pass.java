@@ -0,0 +1,14 @@
+package opt;
+
+import ast.Ast;
+import ast.TypeChecker;
+
+// Passe de otimização sobre a árvore tipada. O PassManager refaz a verificação de tipos depois de cada
+// passe que mudou a árvore, então todo passe recebe tipos em dia.
+public interface Pass {
+    // nome usado em --opt=... e no relatório
+    String getName();
+
+    // Reescreve a árvore no lugar e devolve quantas mudanças fez (0: nada mudou)
+    int run(Ast ast, TypeChecker types);
+}
@@ -0,0 +1,122 @@
+package opt;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.TypeChecker;
+import symboltable.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Roda uma sequência de passes sobre a Ast tipada (a representação intermediária entre o parser e a
+// geração de código) e mede cada um: mudanças, nós alcançáveis antes e depois e tempo, incluindo a
+// verificação de tipos refeita depois dele.
+public final class PassManager {
+    // passes de --opt, na ordem em que rodam
+    public static final List<String> STANDARD = List.of("fold", "dead", "prune", "cse");
+
+    private final List<Pass> passes = new ArrayList<>();
+    private final List<PassStats> report = new ArrayList<>();
+
+    // Gerenciador com os passes nomeados (null: os de STANDARD), na ordem dada
+    public static PassManager of(List<String> names) {
+        PassManager manager = new PassManager();
+        for (String name : names != null ? names : STANDARD) {
+            manager.add(create(name));
+        }
+        return manager;
+    }
+
+    public static boolean isKnown(String name) {
+        return STANDARD.contains(name);
+    }
+
+    private static Pass create(String name) {
+        return switch (name) {
+            case "fold" -> new ConstantFolding();
+            case "dead" -> new DeadBranches();
+            case "prune" -> new UnusedDeclarations();
+            case "cse" -> new CommonSubexpressions();
+            default -> throw new IllegalArgumentException("Passe de otimização desconhecido: " + name);
+        };
+    }
+
+    public PassManager add(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    // Verifica os tipos, roda os passes e devolve os tipos da árvore final; lança RuntimeException com a
+    // mensagem para o usuário se o programa tem erro de tipo
+    public TypeChecker run(Ast ast, SymbolTable symbolTable) {
+        report.clear();
+        TypeChecker types = TypeChecker.check(ast, symbolTable);
+        int nodes = countNodes(ast);
+        for (Pass pass : passes) {
+            long start = System.nanoTime();
+            int changes = pass.run(ast, types);
+            if (changes > 0) {
+                types = TypeChecker.check(ast, symbolTable);
+            }
+            long nanos = System.nanoTime() - start;
+            int after = changes > 0 ? countNodes(ast) : nodes;
+            report.add(new PassStats(pass.getName(), changes, nodes, after, nanos));
+            nodes = after;
+        }
+        return types;
+    }
+
+    // Medidas de cada passe da última chamada de run()
+    public List<PassStats> getReport() {
+        return report;
+    }
+
+    // Nós alcançáveis a partir da raiz (os que os passes desligam continuam na arena)
+    static int countNodes(Ast ast) {
+        int[] count = new int[1];
+        ast.walk(ast.getRoot(), new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                count[0]++;
+                return true;
+            }
+        });
+        return count[0];
+    }
+
+    public static final class PassStats {
+        private final String name;
+        private final int changes;
+        private final int nodesBefore;
+        private final int nodesAfter;
+        private final long nanos;
+
+        PassStats(String name, int changes, int nodesBefore, int nodesAfter, long nanos) {
+            this.name = name;
+            this.changes = changes;
+            this.nodesBefore = nodesBefore;
+            this.nodesAfter = nodesAfter;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getChanges() {
+            return changes;
+        }
+
+        public int getNodesBefore() {
+            return nodesBefore;
+        }
+
+        public int getNodesAfter() {
+            return nodesAfter;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package opt;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.NodeKind;
+import ast.TypeChecker;
+import lexer.TokenType;
+
+import java.util.Arrays;
+
+// Remove declarações sem uso, pelas contagens de usos e definições de cada nome (indexadas pelo id do
+// nome, como na SymbolTable):
+// - funções que a main não alcança por chamadas (se não há main, todas ficam: a classe do --jvm pode
+//   ser usada como biblioteca);
+// - atribuições a variáveis globais que nunca são lidas, quando a expressão não tem efeito (sem
+//   chamadas nem divisão inteira que possa dar erro); se a expressão é só uma chamada, fica a chamada;
+// - variáveis globais sem nenhum uso nem definição restante (e o varType que ficar vazio).
+// Repete até nada mudar, já que cada remoção pode deixar outros nomes sem uso. Conta declarações e
+// atribuições removidas.
+final class UnusedDeclarations implements Pass {
+    private Ast ast;
+    private TypeChecker types;
+    private int changes;
+
+    // por id de nome: leituras e atribuições de variáveis globais, chamadas vindas de funções alcançáveis
+    private int[] reads;
+    private int[] writes;
+    private boolean[] reachable;
+    // por id de nome: se é parâmetro da função sendo percorrida
+    private boolean[] params;
+    // funções alcançadas ainda não percorridas
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    @Override
+    public String getName() {
+        return "prune";
+    }
+
+    @Override
+    public int run(Ast ast, TypeChecker types) {
+        this.ast = ast;
+        this.types = types;
+        changes = 0;
+        int nameCount = ast.getNames().size();
+        params = new boolean[nameCount];
+        reachable = new boolean[nameCount];
+        markReachable();
+
+        boolean changed = true;
+        while (changed) {
+            reads = new int[nameCount];
+            writes = new int[nameCount];
+            for (int unit = ast.getFirstChild(ast.getRoot()); unit != Ast.NONE; unit = ast.getNextSibling(unit)) {
+                if (ast.getKind(unit) == NodeKind.FUNCTION && reachable[ast.getData(unit)]) {
+                    count(unit);
+                }
+            }
+            changed = removeAssignments() | removeUnits();
+        }
+        return changes;
+    }
+
+    // Funções alcançáveis a partir da main, por uma lista de trabalho (a recursão entre funções é comum)
+    private void markReachable() {
+        int main = types.findFunction("main");
+        pendingCount = 0;
+        for (int f = 0; f < types.getFunctionCount(); f++) {
+            if (main < 0 || f == main) {
+                reach(types.getFunctionNode(f));
+            }
+        }
+        AstVisitor calls = new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                if (ast.getKind(node) == NodeKind.CALL && !reachable[ast.getData(node)]) {
+                    reach(types.getFunctionNode(types.getFunction(node)));
+                }
+                return true;
+            }
+        };
+        while (pendingCount > 0) {
+            ast.walk(pending[--pendingCount], calls);
+        }
+    }
+
+    private void reach(int function) {
+        reachable[ast.getData(function)] = true;
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = function;
+    }
+
+    // Leituras e atribuições de globais numa função (os parâmetros escondem globais de mesmo nome)
+    private void count(int function) {
+        for (int child = ast.getFirstChild(function); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                params[ast.getData(child)] = true;
+            }
+        }
+        ast.walk(function, new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                NodeKind kind = ast.getKind(node);
+                if ((kind == NodeKind.VARIABLE || kind == NodeKind.ASSIGN) && !params[ast.getData(node)]) {
+                    (kind == NodeKind.VARIABLE ? reads : writes)[ast.getData(node)]++;
+                }
+                return true;
+            }
+        });
+        for (int child = ast.getFirstChild(function); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.PARAM) {
+                params[ast.getData(child)] = false;
+            }
+        }
+    }
+
+    private boolean removeAssignments() {
+        boolean changed = false;
+        for (int unit = ast.getFirstChild(ast.getRoot()); unit != Ast.NONE; unit = ast.getNextSibling(unit)) {
+            if (ast.getKind(unit) == NodeKind.FUNCTION && reachable[ast.getData(unit)]) {
+                for (int child = ast.getFirstChild(unit); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (ast.getKind(child) == NodeKind.PARAM) {
+                        params[ast.getData(child)] = true;
+                    }
+                }
+                changed |= removeAssignments(ast.getChild(unit, ast.getChildCount(unit) - 1));
+                for (int child = ast.getFirstChild(unit); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (ast.getKind(child) == NodeKind.PARAM) {
+                        params[ast.getData(child)] = false;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Tira do bloco (e dos blocos dentro dele) as atribuições a globais nunca lidas
+    private boolean removeAssignments(int block) {
+        boolean changed = false;
+        int last = Ast.NONE;
+        for (int command = ast.getFirstChild(block); command != Ast.NONE; ) {
+            int next = ast.getNextSibling(command);
+            int kept = command;
+            if (ast.getKind(command) == NodeKind.ASSIGN && !params[ast.getData(command)] && reads[ast.getData(command)] == 0) {
+                int value = ast.getFirstChild(command);
+                if (ast.getKind(value) == NodeKind.CALL) {
+                    kept = value;
+                    changes++;
+                    changed = true;
+                } else if (isPure(value)) {
+                    kept = Ast.NONE;
+                    changes++;
+                    changed = true;
+                }
+            } else {
+                for (int child = ast.getFirstChild(command); child != Ast.NONE; child = ast.getNextSibling(child)) {
+                    if (ast.getKind(child) == NodeKind.BLOCK) {
+                        changed |= removeAssignments(child);
+                    }
+                }
+            }
+            if (kept != Ast.NONE) {
+                last = ast.append(block, last, kept);
+            }
+            command = next;
+        }
+        if (last == Ast.NONE) {
+            ast.setFirstChild(block, Ast.NONE);
+        } else {
+            ast.setNextSibling(last, Ast.NONE);
+        }
+        return changed;
+    }
+
+    // Sem chamadas e sem divisão ou resto inteiros que possam ser por zero: avaliar ou não dá no mesmo
+    private boolean isPure(int expression) {
+        boolean[] pure = {true};
+        ast.walk(expression, new AstVisitor() {
+            @Override
+            public boolean enter(Ast ast, int node) {
+                NodeKind kind = ast.getKind(node);
+                if (kind == NodeKind.CALL) {
+                    pure[0] = false;
+                } else if (kind == NodeKind.BINARY && TypeChecker.isInteger(types.getOperandType(node))) {
+                    TokenType operator = ast.getTokenType(node);
+                    int divisor = ast.getNextSibling(ast.getFirstChild(node));
+                    if ((operator == TokenType.DIV || operator == TokenType.MOD)
+                            && !(ast.getKind(divisor) == NodeKind.INT_LITERAL && Integer.parseInt(ast.getLiteral(divisor)) != 0)) {
+                        pure[0] = false;
+                    }
+                }
+                return pure[0];
+            }
+        });
+        return pure[0];
+    }
+
+    // Tira funções inalcançáveis e globais sem uso nem definição
+    private boolean removeUnits() {
+        int before = changes;
+        int program = ast.getRoot();
+        int last = Ast.NONE;
+        for (int unit = ast.getFirstChild(program); unit != Ast.NONE; ) {
+            int next = ast.getNextSibling(unit);
+            boolean keep;
+            if (ast.getKind(unit) == NodeKind.FUNCTION) {
+                keep = reachable[ast.getData(unit)];
+                if (!keep) {
+                    changes++;
+                }
+            } else {
+                keep = removeVariables(unit);
+            }
+            if (keep) {
+                last = ast.append(program, last, unit);
+            }
+            unit = next;
+        }
+        if (last == Ast.NONE) {
+            ast.setFirstChild(program, Ast.NONE);
+        } else {
+            ast.setNextSibling(last, Ast.NONE);
+        }
+        return changes > before;
+    }
+
+    // Tira do varType os nomes sem uso; devolve se sobrou algum (filhos: TYPE e os NAME)
+    private boolean removeVariables(int declaration) {
+        int type = ast.getFirstChild(declaration);
+        int last = type;
+        for (int name = ast.getNextSibling(type); name != Ast.NONE; ) {
+            int next = ast.getNextSibling(name);
+            if (reads[ast.getData(name)] > 0 || writes[ast.getData(name)] > 0) {
+                last = ast.append(declaration, last, name);
+            } else {
+                changes++;
+            }
+            name = next;
+        }
+        ast.setNextSibling(last, Ast.NONE);
+        return last != type;
+    }
+}
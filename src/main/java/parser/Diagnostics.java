@@ -0,0 +1,96 @@
+package parser;
+
+import lexer.LineIndex;
+
+import java.util.Arrays;
+
+// Erros de uma compilação, na ordem em que foram encontrados: posições [start, end) na fonte e mensagem,
+// em arrays paralelos que crescem até o limite dado (--max-errors). Depois do limite, report() não
+// registra mais nada e o parser deixa de analisar o resto do arquivo. Linha e coluna só são calculadas
+// quando pedidas, pelo LineIndex do Lexer.
+public final class Diagnostics {
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    private final int maxErrors;
+    private int[] starts;
+    private int[] ends;
+    private String[] messages;
+    private int count = 0;
+    private LineIndex lines;
+
+    public Diagnostics() {
+        this(DEFAULT_MAX_ERRORS);
+    }
+
+    public Diagnostics(int maxErrors) {
+        if (maxErrors <= 0) {
+            throw new IllegalArgumentException("Limite de erros inválido: " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+        int capacity = Math.min(maxErrors, 16);
+        starts = new int[capacity];
+        ends = new int[capacity];
+        messages = new String[capacity];
+    }
+
+    // Registra um erro; devolve false (sem registrar) se o limite já foi atingido
+    public boolean report(int start, int end, String message) {
+        if (count == maxErrors) {
+            return false;
+        }
+        if (count == starts.length) {
+            int capacity = (int) Math.min(maxErrors, count * 2L);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        messages[count] = message;
+        count++;
+        return true;
+    }
+
+    public boolean hasErrors() {
+        return count > 0;
+    }
+
+    // Se o limite foi atingido (o que vem depois no arquivo não foi analisado)
+    public boolean isFull() {
+        return count == maxErrors;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    public String getMessage(int i) {
+        return messages[i];
+    }
+
+    // Inícios de linha da fonte analisada, para getLine e getColumn
+    public void setLines(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    // Linha do erro, a partir de 1; 0 se não há LineIndex
+    public int getLine(int i) {
+        return lines != null ? lines.getLine(starts[i]) : 0;
+    }
+
+    public int getColumn(int i) {
+        return lines != null ? lines.getColumn(starts[i]) : 0;
+    }
+}
@@ -0,0 +1,242 @@
+package parser;
+
+import lexer.TokenBuffer;
+import lexer.TokenType;
+import symboltable.SymbolTable;
+import symboltable.SymbolTable.SymbolType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Análise sintática paralela das funções de um programa já em um TokenBuffer. O cabeçalho e as
+// declarações são analisados primeiro; uma varredura dos tokens acha as funções (funcType tipo : nome
+// ... { ... } nome), cujos nomes são declarados, e a tabela global é congelada. Cada grupo de funções
+// é então analisado numa tarefa do ForkJoinPool, cada função numa visão local da tabela que só
+// enxerga as declarações e as funções até ela, como na análise sequencial. Os parâmetros e locais
+// são juntados na ordem do fonte. Se a varredura não reconhece a lista, um nome se repete ou alguma
+// função tem erro, a seção de funções é refeita sequencialmente: o erro relatado é sempre o primeiro
+// do fonte, com a mesma mensagem da análise sequencial.
+public final class ParallelParser {
+    // abaixo disso (tokens por tarefa) não compensa dividir
+    static final int MIN_TASK_TOKENS = 1 << 14;
+
+    private ParallelParser() {
+    }
+
+    public static void parse(TokenBuffer tokens, SymbolTable symbolTable) {
+        parse(tokens, symbolTable, null);
+    }
+
+    // Com Diagnostics, os erros são registrados como na análise sequencial com recuperação: as funções
+    // em paralelo param no primeiro erro, e a seção com erro é refeita sequencialmente com recuperação
+    public static void parse(TokenBuffer tokens, SymbolTable symbolTable, Diagnostics diagnostics) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parse(tokens, symbolTable, diagnostics, pool, pool.getParallelism() * 4, MIN_TASK_TOKENS);
+    }
+
+    static void parse(TokenBuffer tokens, SymbolTable symbolTable, Diagnostics diagnostics, ExecutorService executor,
+                      int taskCount, int minTaskTokens) {
+        TokenBuffer.Cursor cursor = tokens.cursor(0);
+        ParserImpl parser = new ParserImpl(cursor, symbolTable, null, diagnostics);
+        parser.parseProgramHeader();
+
+        Units units = null;
+        if (cursor.getType() == TokenType.FUNCTIONS && tokens.getNames() == symbolTable.getNames()
+                && (diagnostics == null || !diagnostics.hasErrors())) {
+            units = scan(tokens, cursor.getIndex() + 1);
+        }
+        if (units == null || !parseUnits(tokens, symbolTable, units, executor, taskCount, minTaskTokens)) {
+            parser.parseProgramRest();
+        } else {
+            parser = new ParserImpl(tokens.cursor(units.end), symbolTable, null, diagnostics);
+            parser.parseProgramEnd();
+        }
+        if (diagnostics != null) {
+            parser.parseTrailing();
+        }
+    }
+
+    // Funções da lista que começa no token 'first': [starts[k], ends[k]) e o token depois da lista.
+    // Devolve null se a lista não tem a forma esperada (a análise sequencial dá o erro).
+    private static Units scan(TokenBuffer tokens, int first) {
+        Units units = new Units();
+        int last = tokens.size() - 1;
+        int i = first;
+        while (true) {
+            if (i + 3 > last || tokens.getType(i) != TokenType.FUNCTYPE || !isType(tokens.getType(i + 1))
+                    || tokens.getType(i + 2) != TokenType.COLON || tokens.getType(i + 3) != TokenType.IDENTIFIER) {
+                return null;
+            }
+            int start = i;
+            i += 4;
+            while (i < last && tokens.getType(i) != TokenType.LBRACE) {
+                i++;
+            }
+            if (tokens.getType(i) != TokenType.LBRACE) {
+                return null;
+            }
+            int depth = 0;
+            do {
+                TokenType type = tokens.getType(i);
+                if (type == TokenType.LBRACE) {
+                    depth++;
+                } else if (type == TokenType.RBRACE) {
+                    depth--;
+                }
+                i++;
+            } while (depth > 0 && i < last);
+            if (depth > 0 || tokens.getType(i) != TokenType.IDENTIFIER) {
+                return null;
+            }
+            i++;
+            units.add(start, i);
+            if (tokens.getType(i) != TokenType.SEMICOLON) {
+                break;
+            }
+            i++;
+            if (tokens.getType(i) != TokenType.FUNCTYPE) {
+                break;
+            }
+        }
+        units.end = i;
+        return units;
+    }
+
+    private static boolean isType(TokenType type) {
+        return switch (type) {
+            case REAL, INTEGER, STRING, BOOLEAN, CHARACTER, VOID -> true;
+            default -> false;
+        };
+    }
+
+    // Analisa as funções em paralelo; devolve false, com a tabela como estava, se for preciso refazer
+    // a seção sequencialmente
+    private static boolean parseUnits(TokenBuffer tokens, SymbolTable symbolTable, Units units,
+                                      ExecutorService executor, int taskCount, int minTaskTokens) {
+        int[] groups = groups(units, taskCount, minTaskTokens);
+        if (groups.length <= 2) {
+            return false;
+        }
+
+        int from = symbolTable.size();
+        for (int k = 0; k < units.count; k++) {
+            TokenType returnType = tokens.getType(units.starts[k] + 1);
+            int name = tokens.getNameId(units.starts[k] + 3);
+            if (!symbolTable.declareIfAbsent(name, returnType.name(), SymbolType.FUNCTION)) {
+                symbolTable.truncate(from);
+                return false;
+            }
+        }
+
+        symbolTable.freeze();
+        List<Group> tasks = new ArrayList<>();
+        for (int g = 0; g + 1 < groups.length; g++) {
+            tasks.add(new Group(tokens, symbolTable, units, from, groups[g], groups[g + 1]));
+        }
+        List<SymbolTable> locals = new ArrayList<>(tasks.size());
+        try {
+            for (Future<SymbolTable> future : executor.invokeAll(tasks)) {
+                SymbolTable view = future.get();
+                if (view == null) {
+                    locals = null;
+                    break;
+                }
+                locals.add(view);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Análise sintática interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            symbolTable.unfreeze();
+        }
+
+        if (locals == null) {
+            symbolTable.truncate(from);
+            return false;
+        }
+        symbolTable.mergeLocals(from, locals);
+        return true;
+    }
+
+    // Limites dos grupos de funções vizinhas, cada um com pelo menos minTaskTokens tokens
+    private static int[] groups(Units units, int taskCount, int minTaskTokens) {
+        long total = units.ends[units.count - 1] - units.starts[0];
+        long target = Math.max(minTaskTokens, total / Math.max(1, taskCount));
+        int[] bounds = new int[units.count + 1];
+        int count = 1;
+        int groupStart = units.starts[0];
+        for (int k = 0; k < units.count; k++) {
+            if (units.ends[k] - groupStart >= target) {
+                bounds[count++] = k + 1;
+                groupStart = k + 1 < units.count ? units.starts[k + 1] : units.ends[k];
+            }
+        }
+        if (bounds[count - 1] != units.count) {
+            bounds[count++] = units.count;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static final class Units {
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int count = 0;
+        int end;
+
+        void add(int start, int unitEnd) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = unitEnd;
+            count++;
+        }
+    }
+
+    // Funções [first, last) numa visão local, ou null se alguma não fecha onde a varredura previu
+    private static final class Group implements Callable<SymbolTable> {
+        private final TokenBuffer tokens;
+        private final SymbolTable globals;
+        private final Units units;
+        private final int from;
+        private final int first;
+        private final int last;
+
+        Group(TokenBuffer tokens, SymbolTable globals, Units units, int from, int first, int last) {
+            this.tokens = tokens;
+            this.globals = globals;
+            this.units = units;
+            this.from = from;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public SymbolTable call() {
+            SymbolTable view = globals.localView();
+            for (int k = first; k < last; k++) {
+                // enxerga as declarações e as funções até esta, inclusive
+                view.beginUnit(from + k + 1);
+                TokenBuffer.Cursor cursor = tokens.cursor(units.starts[k]);
+                try {
+                    new ParserImpl(cursor, view).parseFunctionUnit();
+                } catch (RuntimeException | StackOverflowError e) {
+                    return null;
+                }
+                if (cursor.getIndex() != units.ends[k]) {
+                    return null;
+                }
+            }
+            return view;
+        }
+    }
+}
@@ -1,73 +1,314 @@
 package parser;
 
+import ast.Ast;
+import ast.NodeKind;
 import lexer.Lexer;
-import lexer.Token;
+import lexer.NamePool;
+import lexer.TokenCursor;
 import lexer.TokenType;
 import symboltable.Symbol;
 import symboltable.SymbolTable;
 import symboltable.SymbolTable.SymbolType;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 
 public class ParserImpl {
 
-    private final Lexer lexer;
-    private Token currentToken;
+    // cursor sobre o token atual (um Lexer em fluxo ou um TokenBuffer já preenchido)
+    private final TokenCursor currentToken;
     private final SymbolTable symbolTable;
+    private final NamePool names;
+    // se o Lexer já interna os nomes no mesmo pool da tabela, os ids dos tokens valem direto
+    private final boolean sharedNames;
+    private UnitListener unitListener;
+    // análise paralela: os nomes das funções já foram declarados na tabela global congelada
+    private boolean predeclaredFunctions = false;
+    // árvore sendo construída (null: só verifica) e índice do token atual, a partir do primeiro lido
+    private final Ast ast;
+    private int tokenIndex = 0;
+    // erros com recuperação (null: o primeiro erro lança RuntimeException); em pânico, depois de um erro
+    // de sintaxe, os tokens são descartados até um ponto de sincronização e os erros seguintes, que
+    // costumam ser consequência do primeiro, não são registrados
+    private final Diagnostics diagnostics;
+    private boolean panic = false;
+    // posições do último IDENTIFIER consumido, para os erros de declaração e de uso
+    private int identifierStart;
+    private int identifierEnd;
+    // nó PROGRAM e sua última declaração ou função, onde as listas penduram as novas
+    private int program = Ast.NONE;
+    private int lastUnit = Ast.NONE;
+
+    // Tokens onde a análise em pânico volta a sincronizar: fins de comando e de bloco e inícios e fins de
+    // seções e unidades
+    private static final boolean[] SYNC = new boolean[TokenType.values().length];
+
+    static {
+        for (TokenType type : new TokenType[]{TokenType.SEMICOLON, TokenType.LBRACE, TokenType.RBRACE, TokenType.ELSE,
+                TokenType.ENDIF, TokenType.ENDWHILE, TokenType.VARTYPE, TokenType.END_DECLARATIONS, TokenType.FUNCTIONS,
+                TokenType.FUNCTYPE, TokenType.END_FUNCTIONS, TokenType.END_PROGRAM, TokenType.EOF}) {
+            SYNC[type.ordinal()] = true;
+        }
+    }
+
+    // Precedência de cada operador binário por TokenType (0: não é binário); todos associam à
+    // esquerda, e os prefixos + e - ligam mais forte que qualquer um deles
+    private static final int[] PRECEDENCE = new int[TokenType.values().length];
+
+    static {
+        for (TokenType type : new TokenType[]{TokenType.EQ, TokenType.NEQ}) {
+            PRECEDENCE[type.ordinal()] = 1;
+        }
+        for (TokenType type : new TokenType[]{TokenType.LT, TokenType.GT, TokenType.LE, TokenType.GE}) {
+            PRECEDENCE[type.ordinal()] = 2;
+        }
+        for (TokenType type : new TokenType[]{TokenType.ADD, TokenType.SUB}) {
+            PRECEDENCE[type.ordinal()] = 3;
+        }
+        for (TokenType type : new TokenType[]{TokenType.MUL, TokenType.DIV, TokenType.MOD}) {
+            PRECEDENCE[type.ordinal()] = 4;
+        }
+    }
 
-    public ParserImpl(Lexer lexer, SymbolTable symbolTable) {
-        this.lexer = lexer;
+    // entradas da pilha de operadores: binário, prefixo, parêntese aberto e chamada aberta (com o nó
+    // CALL e o último argumento)
+    private static final int OP_BINARY = 0;
+    private static final int OP_UNARY = 1;
+    private static final int OP_PAREN = 2;
+    private static final int OP_CALL = 3;
+
+    private int[] operands = new int[16];
+    private int operandCount = 0;
+    private int[] opKinds = new int[16];
+    private int[] opTypes = new int[16];
+    private int[] opTokens = new int[16];
+    private int[] opNodes = new int[16];
+    private int[] opLast = new int[16];
+    private int opCount = 0;
+
+    public ParserImpl(TokenCursor tokens, SymbolTable symbolTable) {
+        this(tokens, symbolTable, null);
+    }
+
+    // Com uma Ast, a análise também constrói a árvore do programa nela
+    public ParserImpl(TokenCursor tokens, SymbolTable symbolTable, Ast ast) {
+        this(tokens, symbolTable, ast, null);
+    }
+
+    // Com Diagnostics, os erros são registrados nele e a análise continua até o fim do arquivo (ou até
+    // o limite de erros); a tabela e a árvore só valem se não houve erro
+    public ParserImpl(TokenCursor tokens, SymbolTable symbolTable, Ast ast, Diagnostics diagnostics) {
+        this.currentToken = tokens;
         this.symbolTable = symbolTable;
-        this.currentToken = lexer.nextToken();
+        this.names = symbolTable.getNames();
+        this.sharedNames = tokens.getNames() == names;
+        this.ast = ast;
+        this.diagnostics = diagnostics;
+        tokens.next();
+        skipErrors();
+    }
+
+    public void setUnitListener(UnitListener unitListener) {
+        this.unitListener = unitListener;
+    }
+
+    private boolean unitStart() {
+        return unitListener == null || unitListener.onUnit(currentToken.getType());
     }
 
+    private void advance() {
+        currentToken.next();
+        tokenIndex++;
+        skipErrors();
+    }
+
+    // Os tokens ERROR do lexer são erros por si só: registrados e pulados, sem pânico
+    private void skipErrors() {
+        while (currentToken.getType() == TokenType.ERROR) {
+            error(currentToken.getStart(), currentToken.getEnd(), Lexer.describeError(currentToken.getLexeme()));
+            currentToken.next();
+            tokenIndex++;
+        }
+    }
+
+    // Registra um erro nas posições dadas (sem Diagnostics, lança). Atingido o limite, o resto do
+    // arquivo é pulado em pânico: todos os laços do parser terminam no EOF.
+    private void error(int start, int end, String message) {
+        if (diagnostics == null) {
+            throw new RuntimeException(message);
+        }
+        if (!diagnostics.report(start, end, message) || diagnostics.isFull()) {
+            panic = true;
+            while (currentToken.next() != TokenType.EOF) {
+                tokenIndex++;
+            }
+        }
+    }
+
+    // Erro de sintaxe no token atual: entra em pânico, e só é registrado se não estava em pânico
+    private void syntaxError(String message) {
+        if (!panic) {
+            error(currentToken.getStart(), currentToken.getEnd(), message);
+            panic = true;
+        }
+    }
+
+    private void expected(TokenType expectedType) {
+        syntaxError("Esperado token " + expectedType + " mas encontrado " + currentToken.getType());
+    }
+
+    // Em pânico, descarta tokens até um ponto de sincronização ou até 'expectedType'
+    private void synchronize(TokenType expectedType) {
+        TokenType type;
+        while ((type = currentToken.getType()) != expectedType && !SYNC[type.ordinal()]) {
+            advance();
+        }
+    }
+
+    // Consome 'expectedType'; se o token é outro, sincroniza e consome 'expectedType' se chegar nele, o que
+    // encerra o pânico
     private void eat(TokenType expectedType) {
-        if (currentToken.getType() == expectedType) {
-            currentToken = lexer.nextToken();
-        } else {
-            throw new RuntimeException("Esperado token " + expectedType + " mas encontrado " + currentToken.getType());
+        if (currentToken.getType() != expectedType) {
+            expected(expectedType);
+            synchronize(expectedType);
+            if (currentToken.getType() != expectedType) {
+                return;
+            }
+        }
+        advance();
+        panic = false;
+    }
+
+    // Consome um IDENTIFIER e devolve o id do nome no pool da tabela de símbolos (-1 se não havia um)
+    private int eatIdentifier() {
+        if (currentToken.getType() != TokenType.IDENTIFIER) {
+            expected(TokenType.IDENTIFIER);
+            synchronize(TokenType.IDENTIFIER);
+            if (currentToken.getType() != TokenType.IDENTIFIER) {
+                return -1;
+            }
+        }
+        int nameId = sharedNames ? currentToken.getNameId() : names.intern(currentToken.getLexeme());
+        identifierStart = currentToken.getStart();
+        identifierEnd = currentToken.getEnd();
+        advance();
+        panic = false;
+        return nameId;
+    }
+
+    // Erro de declaração ou de uso do último identificador consumido (não é de sintaxe: sem pânico)
+    private void nameError(String message) {
+        error(identifierStart, identifierEnd, message);
+    }
+
+    // Com Diagnostics, uma unidade que começa sem o ';' que a separa da anterior é analisada mesmo
+    // assim, com o erro que a análise sem recuperação daria ao encerrar a lista em 'closing'
+    private boolean missingSeparator(TokenType unit, TokenType closing) {
+        if (diagnostics == null || currentToken.getType() != unit || !unitStart()) {
+            return false;
+        }
+        expected(closing);
+        panic = false;
+        return true;
+    }
+
+    // Novo nó da árvore (Ast.NONE quando não há árvore)
+    private int node(NodeKind kind, int token, int value) {
+        return ast == null ? Ast.NONE : ast.add(kind, token, value);
+    }
+
+    // Liga 'child' depois de 'last' entre os filhos de 'parent' e devolve o novo último filho
+    private int append(int parent, int last, int child) {
+        return ast == null ? Ast.NONE : ast.append(parent, last, child);
+    }
+
+    private void addUnit(int unit) {
+        if (program != Ast.NONE) {
+            lastUnit = ast.append(program, lastUnit, unit);
         }
     }
 
     public void parseFileProgram() {
+        parseProgramHeader();
+        parseProgramRest();
+        if (diagnostics != null) {
+            parseTrailing();
+        }
+    }
+
+    // Lê o que sobra até o EOF, só para registrar os erros léxicos depois do endProgram
+    void parseTrailing() {
+        while (currentToken.getType() != TokenType.EOF) {
+            advance();
+        }
+    }
+
+    // program, nome e a seção de declarações
+    void parseProgramHeader() {
+        int token = tokenIndex;
         eat(TokenType.PROGRAM);
-        eat(TokenType.IDENTIFIER);
+        int name = eatIdentifier();
+        program = node(NodeKind.PROGRAM, token, name);
+        if (ast != null) {
+            ast.setRoot(program);
+        }
         eat(TokenType.DECLARATIONS);
         parseDeclarationList();
         eat(TokenType.END_DECLARATIONS);
+    }
 
+    // a seção de funções, se houver, e o fim do programa
+    void parseProgramRest() {
         if (currentToken.getType() == TokenType.FUNCTIONS) {
             eat(TokenType.FUNCTIONS);
             parseFunctionList();
-            eat(TokenType.END_FUNCTIONS);
+            parseProgramEnd();
+        } else {
+            eat(TokenType.END_PROGRAM);
         }
+    }
 
+    // o que vem depois da lista de funções
+    void parseProgramEnd() {
+        eat(TokenType.END_FUNCTIONS);
         eat(TokenType.END_PROGRAM);
-        System.out.println("Programa sintaticamente correto!");
-        symbolTable.printTable();
     }
 
-    private void parseDeclarationList() {
-        if (currentToken.getType() == TokenType.VARTYPE) {
-            parseDeclarationVar();
-            while (currentToken.getType() == TokenType.SEMICOLON) {
-                eat(TokenType.SEMICOLON);
-                // somente entra se vier outro varType
-                if (currentToken.getType() != TokenType.VARTYPE) {
+    // Uma função isolada, com o nome já declarado (análise paralela)
+    void parseFunctionUnit() {
+        predeclaredFunctions = true;
+        parseFunctionDeclaration();
+    }
+
+    // Também serve de ponto de entrada para re-analisar a lista a partir de uma declaração qualquer
+    public void parseDeclarationList() {
+        if (currentToken.getType() == TokenType.VARTYPE && unitStart()) {
+            addUnit(parseDeclarationVar());
+            while (true) {
+                if (currentToken.getType() == TokenType.SEMICOLON) {
+                    eat(TokenType.SEMICOLON);
+                    // somente entra se vier outro varType
+                    if (currentToken.getType() != TokenType.VARTYPE || !unitStart()) {
+                        break;
+                    }
+                } else if (!missingSeparator(TokenType.VARTYPE, TokenType.END_DECLARATIONS)) {
                     break;
                 }
-                parseDeclarationVar();
+                addUnit(parseDeclarationVar());
             }
         }
     }
 
-    private void parseDeclarationVar() {
+    private int parseDeclarationVar() {
+        int declaration = node(NodeKind.VAR_DECL, tokenIndex, 0);
         eat(TokenType.VARTYPE);
+        int typeNode = node(NodeKind.TYPE, tokenIndex, currentToken.getType().ordinal());
         TokenType type = parseTypeSpecification();
         eat(TokenType.COLON);
-        parseVariableList(type);
+        parseVariableList(type, declaration, append(declaration, Ast.NONE, typeNode));
+        return declaration;
     }
 
 
@@ -78,177 +319,384 @@ public class ParserImpl {
                 eat(t);
                 return t;
             }
-            default -> throw new RuntimeException("Tipo inválido: " + currentToken.getLexeme());
+            default -> {
+                syntaxError("Tipo inválido: " + currentToken.getLexeme());
+                return t;
+            }
         }
     }
 
-    private void parseVariableList(TokenType type) {
-        declareVariable(type);
+    private void parseVariableList(TokenType type, int declaration, int last) {
+        last = append(declaration, last, declareVariable(type));
         while (currentToken.getType() == TokenType.COMMA) {
             eat(TokenType.COMMA);
-            declareVariable(type);
+            last = append(declaration, last, declareVariable(type));
         }
     }
 
-    private void declareVariable(TokenType type) {
-        String name = currentToken.getLexeme();
-        eat(TokenType.IDENTIFIER);
-        if (symbolTable.exists(name)) {
-            throw new RuntimeException("Identificador já declarado: " + name);
+    private int declareVariable(TokenType type) {
+        int token = tokenIndex;
+        int name = eatIdentifier();
+        if (name >= 0 && !symbolTable.declareIfAbsent(name, type.name(), SymbolType.VARIABLE)) {
+            nameError("Identificador já declarado: " + names.get(name));
         }
-        symbolTable.declare(name, type.name(), SymbolType.VARIABLE);
+        return node(NodeKind.NAME, token, name);
     }
 
-    private void parseFunctionList() {
-        parseFunctionDeclaration();
-        while (currentToken.getType() == TokenType.SEMICOLON) {
-            eat(TokenType.SEMICOLON);
-            if (currentToken.getType() == TokenType.FUNCTYPE) {
-                parseFunctionDeclaration();
-            } else {
+    // Também serve de ponto de entrada para re-analisar a lista a partir de uma função qualquer
+    public void parseFunctionList() {
+        if (!unitStart()) {
+            return;
+        }
+        addUnit(parseFunctionDeclaration());
+        while (true) {
+            if (currentToken.getType() == TokenType.SEMICOLON) {
+                eat(TokenType.SEMICOLON);
+                if (currentToken.getType() != TokenType.FUNCTYPE || !unitStart()) {
+                    break;
+                }
+            } else if (!missingSeparator(TokenType.FUNCTYPE, TokenType.END_FUNCTIONS)) {
                 break;
             }
+            addUnit(parseFunctionDeclaration());
         }
     }
 
-    private void parseFunctionDeclaration() {
+    private int parseFunctionDeclaration() {
+        int token = tokenIndex;
         eat(TokenType.FUNCTYPE);
         TokenType returnType = currentToken.getType();
+        int typeNode = node(NodeKind.TYPE, tokenIndex, returnType.ordinal());
         parseTypeSpecification();
         eat(TokenType.COLON);
-        String functionName = currentToken.getLexeme();
-        eat(TokenType.IDENTIFIER);
-        if (symbolTable.exists(functionName)) {
-            throw new RuntimeException("Função já declarada: " + functionName);
+        int functionName = eatIdentifier();
+        if (functionName >= 0 && !predeclaredFunctions
+                && !symbolTable.declareIfAbsent(functionName, returnType.name(), SymbolType.FUNCTION)) {
+            nameError("Função já declarada: " + names.get(functionName));
         }
-        symbolTable.declare(functionName, returnType.name(), SymbolType.FUNCTION);
+        int function = node(NodeKind.FUNCTION, token, functionName);
+        int last = append(function, Ast.NONE, typeNode);
 
+        // parâmetros e corpo ficam no escopo da função
+        symbolTable.enterScope(functionName >= 0 ? names.get(functionName) : "");
         eat(TokenType.LPAREN);
 
         if (currentToken.getType() != TokenType.RPAREN) {
-            parseParameterList();
+            last = parseParameterList(function, last);
         }
 
         eat(TokenType.RPAREN);
-        parseCommandBlock();
+        append(function, last, parseCommandBlock());
+        symbolTable.exitScope();
         eat(TokenType.IDENTIFIER);
+        return function;
+    }
+
+    private int parseParameterList(int function, int last) {
+        last = append(function, last, parseParameter());
+        while (currentToken.getType() == TokenType.COMMA) {
+            eat(TokenType.COMMA);
+            last = append(function, last, parseParameter());
+        }
+        return last;
     }
 
-    private void parseParameterList() {
+    private int parseParameter() {
         TokenType type = currentToken.getType();
+        int typeNode = node(NodeKind.TYPE, tokenIndex, type.ordinal());
         parseTypeSpecification();
         eat(TokenType.COLON);
-        String name = currentToken.getLexeme();
-        eat(TokenType.IDENTIFIER);
-        if (symbolTable.exists(name)) {
-            throw new RuntimeException("Parâmetro já declarado: " + name);
-        }
-        symbolTable.declare(name, type.name(), SymbolType.PARAMETER);
-
-        while (currentToken.getType() == TokenType.COMMA) {
-            eat(TokenType.COMMA);
-            type = currentToken.getType();
-            parseTypeSpecification();
-            eat(TokenType.COLON);
-            name = currentToken.getLexeme();
-            eat(TokenType.IDENTIFIER);
-            if (symbolTable.exists(name)) {
-                throw new RuntimeException("Parâmetro já declarado: " + name);
-            }
-            symbolTable.declare(name, type.name(), SymbolType.PARAMETER);
+        int token = tokenIndex;
+        int name = eatIdentifier();
+        if (name >= 0 && !symbolTable.declareIfAbsent(name, type.name(), SymbolType.PARAMETER)) {
+            nameError("Parâmetro já declarado: " + names.get(name));
         }
+        int parameter = node(NodeKind.PARAM, token, name);
+        append(parameter, Ast.NONE, typeNode);
+        return parameter;
     }
 
-    private void parseCommandBlock() {
+    private int parseCommandBlock() {
+        int block = node(NodeKind.BLOCK, tokenIndex, 0);
         eat(TokenType.LBRACE);
-        while (currentToken.getType() != TokenType.RBRACE) {
-            currentToken = lexer.nextToken();
+        int last = Ast.NONE;
+        while (true) {
+            TokenType type = currentToken.getType();
+            if (type == TokenType.RBRACE || type == TokenType.EOF) {
+                break;
+            }
+            if (isCommandStart(type)) {
+                last = append(block, last, parseCommand());
+                continue;
+            }
+            boolean synced = panic;
+            syntaxError("Comando inválido: " + currentToken.getLexeme());
+            if (type == TokenType.LBRACE) {
+                // bloco solto: analisado como um bloco, para os erros de dentro e de depois dele aparecerem
+                last = append(block, last, parseCommandBlock());
+            } else if (type == TokenType.SEMICOLON) {
+                // um ';' sobrando encerra o pânico; um em que parou a sincronização de outra construção (o
+                // do if sem '{'), não: o que vem depois dele (o endIf) ainda pode ser dela
+                advance();
+                panic = synced;
+            } else if (SYNC[type.ordinal()]) {
+                // fim de um comando ou unidade de fora (endIf, else, funcType...): o bloco acaba aqui
+                break;
+            } else {
+                // o próximo comando começa depois do ';'
+                synchronize(TokenType.SEMICOLON);
+                if (currentToken.getType() == TokenType.SEMICOLON) {
+                    advance();
+                    panic = false;
+                }
+            }
         }
         eat(TokenType.RBRACE);
+        return block;
+    }
+
+    private static boolean isCommandStart(TokenType type) {
+        return switch (type) {
+            case RETURN, BREAK, PRINT, IF, WHILE, IDENTIFIER -> true;
+            default -> false;
+        };
     }
 
-    private void parseCommand() {
+    private int parseCommand() {
+        int token = tokenIndex;
         switch (currentToken.getType()) {
             case RETURN -> {
                 eat(TokenType.RETURN);
-                parseExpression();
+                int command = node(NodeKind.RETURN, token, 0);
+                append(command, Ast.NONE, parseExpression());
                 eat(TokenType.SEMICOLON);
+                return command;
             }
             case BREAK -> {
                 eat(TokenType.BREAK);
                 eat(TokenType.SEMICOLON);
+                return node(NodeKind.BREAK, token, 0);
             }
             case PRINT -> {
                 eat(TokenType.PRINT);
-                parseExpression();
+                int command = node(NodeKind.PRINT, token, 0);
+                append(command, Ast.NONE, parseExpression());
                 eat(TokenType.SEMICOLON);
+                return command;
+            }
+            case IF -> {
+                return parseIfBlock();
             }
-            case IF -> parseIfBlock();
-            case WHILE -> parseWhileBlock();
-            default -> throw new RuntimeException("Comando inválido: " + currentToken.getLexeme());
+            case WHILE -> {
+                return parseWhileBlock();
+            }
+            case IDENTIFIER -> {
+                int name = lookupIdentifier();
+                int command;
+                if (currentToken.getType() == TokenType.ASSIGN) {
+                    eat(TokenType.ASSIGN);
+                    command = node(NodeKind.ASSIGN, token, name);
+                    append(command, Ast.NONE, parseExpression());
+                } else {
+                    command = parseCall(token, name);
+                }
+                eat(TokenType.SEMICOLON);
+                return command;
+            }
+            default -> throw new IllegalStateException("Comando inválido: " + currentToken.getLexeme());
         }
     }
 
-    private void parseIfBlock() {
+    private int parseIfBlock() {
+        int command = node(NodeKind.IF, tokenIndex, 0);
         eat(TokenType.IF);
         eat(TokenType.LPAREN);
-        parseExpression();
+        int last = append(command, Ast.NONE, parseExpression());
         eat(TokenType.RPAREN);
-        parseCommandBlock();
+        last = append(command, last, parseCommandBlock());
 
         if (currentToken.getType() == TokenType.ELSE) {
             eat(TokenType.ELSE);
-            parseCommandBlock();
+            append(command, last, parseCommandBlock());
         }
 
         eat(TokenType.ENDIF);
+        return command;
     }
 
-    private void parseWhileBlock() {
+    private int parseWhileBlock() {
+        int command = node(NodeKind.WHILE, tokenIndex, 0);
         eat(TokenType.WHILE);
         eat(TokenType.LPAREN);
-        parseExpression();
+        int last = append(command, Ast.NONE, parseExpression());
         eat(TokenType.RPAREN);
-        parseCommandBlock();
+        append(command, last, parseCommandBlock());
         eat(TokenType.ENDWHILE);
+        return command;
     }
 
-    private void parseExpression() {
-        parseAddExp();
-    }
-
-    private void parseAddExp() {
-        parseTerm();
-        while (currentToken.getType() == TokenType.ADD || currentToken.getType() == TokenType.SUB) {
-            eat(currentToken.getType());
-            parseTerm();
+    // nome(argumentos), com o nome já consumido
+    private int parseCall(int token, int name) {
+        int call = node(NodeKind.CALL, token, name);
+        eat(TokenType.LPAREN);
+        if (currentToken.getType() != TokenType.RPAREN) {
+            int last = append(call, Ast.NONE, parseExpression());
+            while (currentToken.getType() == TokenType.COMMA) {
+                eat(TokenType.COMMA);
+                last = append(call, last, parseExpression());
+            }
         }
+        eat(TokenType.RPAREN);
+        return call;
     }
 
-    private void parseTerm() {
-        parseUnaryExp();
-        while (currentToken.getType() == TokenType.MUL || currentToken.getType() == TokenType.DIV || currentToken.getType() == TokenType.MOD) {
-            eat(currentToken.getType());
-            parseUnaryExp();
+    // Consome um IDENTIFIER que precisa estar declarado
+    private int lookupIdentifier() {
+        int name = eatIdentifier();
+        if (symbolTable.lookup(name) == null) {
+            nameError("Identificador não declarado: " + names.get(name));
         }
+        return name;
     }
 
-    private void parseUnaryExp() {
-        switch (currentToken.getType()) {
-            case IDENTIFIER, INT_CONST, REAL_CONST, STRING_CONST, CHAR_CONST, TRUE, FALSE -> {
-                String name = currentToken.getLexeme();
-                if (currentToken.getType() == TokenType.IDENTIFIER && !symbolTable.exists(name)) {
-                    throw new RuntimeException("Identificador não declarado: " + name);
+    // Expressões por precedência (Pratt), com pilhas explícitas de operandos e operadores: parênteses,
+    // prefixos e chamadas aninhados não usam a pilha Java, e cada token entra e sai das pilhas uma vez
+    private int parseExpression() {
+        int opBase = opCount;
+        int operandBase = operandCount;
+        while (true) {
+            // operando, depois de quantos prefixos e parênteses abertos houver
+            int token = tokenIndex;
+            TokenType type = currentToken.getType();
+            switch (type) {
+                case ADD, SUB -> {
+                    eat(type);
+                    pushOperator(OP_UNARY, type, token, Ast.NONE);
+                    continue;
+                }
+                case LPAREN -> {
+                    eat(type);
+                    pushOperator(OP_PAREN, type, token, Ast.NONE);
+                    continue;
+                }
+                case IDENTIFIER -> {
+                    int name = lookupIdentifier();
+                    if (currentToken.getType() != TokenType.LPAREN) {
+                        pushOperand(node(NodeKind.VARIABLE, token, name));
+                    } else {
+                        int call = node(NodeKind.CALL, token, name);
+                        eat(TokenType.LPAREN);
+                        if (currentToken.getType() != TokenType.RPAREN) {
+                            pushOperator(OP_CALL, type, token, call);
+                            continue;
+                        }
+                        eat(TokenType.RPAREN);
+                        pushOperand(call);
+                    }
+                }
+                case INT_CONST, REAL_CONST, STRING_CONST, CHAR_CONST -> {
+                    int literal = ast == null ? 0 : ast.addLiteral(currentToken.getLexeme());
+                    eat(type);
+                    pushOperand(node(literalKind(type), token, literal));
+                }
+                case TRUE, FALSE -> {
+                    eat(type);
+                    pushOperand(node(NodeKind.BOOLEAN_LITERAL, token, type == TokenType.TRUE ? 1 : 0));
+                }
+                default -> {
+                    // a expressão inteira vira um literal qualquer, e quem a pediu sincroniza
+                    syntaxError("Expressão inválida em: " + currentToken.getLexeme());
+                    opCount = opBase;
+                    operandCount = operandBase;
+                    return node(NodeKind.BOOLEAN_LITERAL, token, 0);
                 }
-                eat(currentToken.getType());
             }
-            case LPAREN -> {
-                eat(TokenType.LPAREN);
-                parseExpression();
+
+            // depois de um operando: um operador binário, o fim de parênteses, argumentos ou da expressão
+            while (true) {
+                TokenType next = currentToken.getType();
+                int precedence = PRECEDENCE[next.ordinal()];
+                if (precedence > 0) {
+                    reduce(opBase, precedence);
+                    pushOperator(OP_BINARY, next, tokenIndex, Ast.NONE);
+                    eat(next);
+                    break;
+                }
+                reduce(opBase, 1);
+                if (opCount == opBase) {
+                    return operands[--operandCount];
+                }
+                int open = opCount - 1;
+                if (opKinds[open] == OP_CALL) {
+                    opLast[open] = append(opNodes[open], opLast[open], operands[--operandCount]);
+                    if (next == TokenType.COMMA) {
+                        eat(TokenType.COMMA);
+                        break;
+                    }
+                }
                 eat(TokenType.RPAREN);
+                opCount--;
+                if (opKinds[open] == OP_CALL) {
+                    pushOperand(opNodes[open]);
+                }
+            }
+        }
+    }
+
+    // Aplica os operadores do topo da pilha com precedência >= 'precedence' (até um parêntese ou
+    // chamada aberta, ou até 'opBase')
+    private void reduce(int opBase, int precedence) {
+        while (opCount > opBase) {
+            int top = opCount - 1;
+            int kind = opKinds[top];
+            if (kind == OP_UNARY) {
+                int unary = node(NodeKind.UNARY, opTokens[top], opTypes[top]);
+                append(unary, Ast.NONE, operands[operandCount - 1]);
+                operands[operandCount - 1] = unary;
+            } else if (kind == OP_BINARY && PRECEDENCE[opTypes[top]] >= precedence) {
+                int right = operands[--operandCount];
+                int left = operands[operandCount - 1];
+                int binary = node(NodeKind.BINARY, opTokens[top], opTypes[top]);
+                append(binary, append(binary, Ast.NONE, left), right);
+                operands[operandCount - 1] = binary;
+            } else {
+                return;
             }
-            default -> throw new RuntimeException("Expressão inválida em: " + currentToken.getLexeme());
+            opCount--;
         }
     }
 
+    private void pushOperand(int node) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        }
+        operands[operandCount++] = node;
+    }
+
+    private void pushOperator(int kind, TokenType type, int token, int node) {
+        if (opCount == opKinds.length) {
+            int capacity = opCount * 2;
+            opKinds = Arrays.copyOf(opKinds, capacity);
+            opTypes = Arrays.copyOf(opTypes, capacity);
+            opTokens = Arrays.copyOf(opTokens, capacity);
+            opNodes = Arrays.copyOf(opNodes, capacity);
+            opLast = Arrays.copyOf(opLast, capacity);
+        }
+        opKinds[opCount] = kind;
+        opTypes[opCount] = type.ordinal();
+        opTokens[opCount] = token;
+        opNodes[opCount] = node;
+        opLast[opCount] = Ast.NONE;
+        opCount++;
+    }
+
+    private static NodeKind literalKind(TokenType type) {
+        return switch (type) {
+            case INT_CONST -> NodeKind.INT_LITERAL;
+            case REAL_CONST -> NodeKind.REAL_LITERAL;
+            case STRING_CONST -> NodeKind.STRING_LITERAL;
+            default -> NodeKind.CHAR_LITERAL;
+        };
+    }
+
 }
@@ -0,0 +1,11 @@
+package parser;
+
+import lexer.TokenType;
+
+// Avisado pelo ParserImpl no início de cada declaração (VARTYPE) e de cada função (FUNCTYPE),
+// com o cursor sobre o primeiro token. Devolver false encerra a lista ali, sem consumir nada
+// (usado pela compilação incremental para re-analisar só parte de uma lista).
+@FunctionalInterface
+public interface UnitListener {
+    boolean onUnit(TokenType first);
+}
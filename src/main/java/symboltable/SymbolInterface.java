@@ -0,0 +1,202 @@
+package symboltable;
+
+import symboltable.SymbolTable.Symbol;
+import symboltable.SymbolTable.SymbolType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interface binária de uma tabela de símbolos (.sym, gravada com --sym ao lado do .tab), para outra
+// compilação importá-la com --import em vez de analisar de novo as declarações. O arquivo é mapeado em
+// memória e lido sob demanda: find() só consulta o índice de nomes e cria o Symbol (e as Strings dele) na
+// primeira vez em que é encontrado. Pode ser lido por várias threads (análise paralela). Formato
+// (big-endian):
+//   cabeçalho (HEADER_SIZE bytes): MAGIC, VERSION, número de símbolos, de strings e de posições do
+//       índice; posições da tabela de strings, dos dados das strings e do índice (int cada)
+//   símbolos, na ordem de declaração (RECORD_SIZE bytes cada): nome, tipo de dado e escopo (ids de
+//       string), SymbolType e profundidade do escopo (int cada)
+//   tabela de strings: posição (relativa aos dados) de cada string; os dados têm o comprimento em bytes
+//       (int) e os bytes em UTF-8 de cada uma, na ordem do primeiro uso
+//   índice dos símbolos globais por nome (endereçamento aberto): String.hashCode do nome e índice do
+//       símbolo + 1 (0: posição vazia), int cada
+public final class SymbolInterface {
+    public static final int MAGIC = 0x53594D42; // "SYMB"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 20;
+    private static final SymbolType[] KINDS = SymbolType.values();
+
+    private final ByteBuffer data;
+    private final int symbolCount;
+    private final int slotMask;
+    private final int stringIndex;
+    private final int stringData;
+    private final int hashIndex;
+    // criados na primeira leitura; corridas entre threads só repetem o trabalho
+    private final Symbol[] symbols;
+    private final String[] strings;
+
+    private SymbolInterface(ByteBuffer data, Path path) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Não é uma interface de símbolos: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Versão de interface de símbolos não suportada: " + path);
+        }
+        symbolCount = data.getInt(8);
+        strings = new String[data.getInt(12)];
+        slotMask = data.getInt(16) - 1;
+        stringIndex = data.getInt(20);
+        stringData = data.getInt(24);
+        hashIndex = data.getInt(28);
+        symbols = new Symbol[symbolCount];
+    }
+
+    public static SymbolInterface open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Interface de símbolos grande demais: " + path);
+            }
+            return new SymbolInterface(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), path);
+        }
+    }
+
+    // Número de símbolos (de todos os escopos)
+    public int size() {
+        return symbolCount;
+    }
+
+    // Símbolo na posição 'index' da ordem de declaração; a profundidade é a do escopo na compilação original
+    public Symbol get(int index) {
+        Symbol symbol = symbols[index];
+        if (symbol == null) {
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            symbol = SymbolTable.importedSymbol(getString(data.getInt(record)), getString(data.getInt(record + 4)),
+                    KINDS[data.getInt(record + 12)], getString(data.getInt(record + 8)), data.getInt(record + 16));
+            symbols[index] = symbol;
+        }
+        return symbol;
+    }
+
+    // Símbolo global (variável ou função) com o nome, ou null
+    public Symbol find(String name) {
+        int hash = name.hashCode();
+        for (int slot = spread(hash) & slotMask; ; slot = (slot + 1) & slotMask) {
+            int entry = hashIndex + slot * 8;
+            int index = data.getInt(entry + 4) - 1;
+            if (index < 0) {
+                return null;
+            }
+            if (data.getInt(entry) == hash && nameEquals(index, name)) {
+                return get(index);
+            }
+        }
+    }
+
+    private boolean nameEquals(int index, String name) {
+        Symbol symbol = symbols[index];
+        return symbol != null ? symbol.getName().equals(name)
+                : getString(data.getInt(HEADER_SIZE + index * RECORD_SIZE)).equals(name);
+    }
+
+    private String getString(int id) {
+        String string = strings[id];
+        if (string == null) {
+            int offset = stringData + data.getInt(stringIndex + id * 4);
+            byte[] bytes = new byte[data.getInt(offset)];
+            data.get(offset + 4, bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Grava a interface dos símbolos declarados em 'table' (sem os importados), na ordem de declaração; as
+    // strings são numeradas na ordem do primeiro uso, então o arquivo só depende do fonte
+    public static void write(SymbolTable table, Path path) throws IOException {
+        int count = table.size();
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[count * 5];
+        int globals = 0;
+        for (int i = 0; i < count; i++) {
+            Symbol symbol = table.getDeclared(i);
+            records[i * 5] = stringId(symbol.getName(), ids, strings);
+            records[i * 5 + 1] = stringId(symbol.getDataType(), ids, strings);
+            records[i * 5 + 2] = stringId(symbol.getScope(), ids, strings);
+            records[i * 5 + 3] = symbol.getKind().ordinal();
+            records[i * 5 + 4] = symbol.getDepth();
+            if (symbol.getDepth() == 0) {
+                globals++;
+            }
+        }
+        int slots = Integer.highestOneBit(Math.max(1, globals) * 2) * 2;
+
+        int stringIndex = HEADER_SIZE + count * RECORD_SIZE;
+        int stringData = stringIndex + strings.size() * 4;
+        int stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += 4 + string.length;
+        }
+        int hashIndex = stringData + stringBytes;
+        ByteBuffer out = ByteBuffer.allocate(hashIndex + slots * 8);
+        out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(strings.size()).putInt(slots)
+                .putInt(stringIndex).putInt(stringData).putInt(hashIndex);
+        for (int record : records) {
+            out.putInt(record);
+        }
+        int position = 0;
+        for (byte[] string : strings) {
+            out.putInt(position);
+            position += 4 + string.length;
+        }
+        for (byte[] string : strings) {
+            out.putInt(string.length).put(string);
+        }
+        for (int i = 0; i < count; i++) {
+            Symbol symbol = table.getDeclared(i);
+            if (symbol.getDepth() != 0) {
+                continue;
+            }
+            int hash = symbol.getName().hashCode();
+            int slot = spread(hash) & (slots - 1);
+            while (out.getInt(hashIndex + slot * 8 + 4) != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            out.putInt(hashIndex + slot * 8, hash).putInt(hashIndex + slot * 8 + 4, i + 1);
+        }
+        out.clear();
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+
+    private static int stringId(String string, Map<String, Integer> ids, List<byte[]> strings) {
+        Integer id = ids.get(string);
+        if (id == null) {
+            id = strings.size();
+            ids.put(string, id);
+            strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+}
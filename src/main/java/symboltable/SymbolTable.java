@@ -1,9 +1,13 @@
 package symboltable;
 
+import lexer.NamePool;
+
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 
 public class SymbolTable {
 
@@ -13,15 +17,29 @@ public class SymbolTable {
         PARAMETER
     }
 
+    public static final String GLOBAL_SCOPE = "global";
+
     public static class Symbol {
         private final String name;
         private final String dataType;
         private final SymbolType kind;
+        private final String scope;
+        private final int depth;
+        // posição na ordem de declaração da tabela; mantida quando replaceDeclared() e mergeLocals()
+        // deslocam os símbolos, para uma visão local saber quais globais enxerga
+        private int order;
 
         public Symbol(String name, String dataType, SymbolType kind) {
+            this(name, dataType, kind, GLOBAL_SCOPE, 0, -1);
+        }
+
+        private Symbol(String name, String dataType, SymbolType kind, String scope, int depth, int order) {
             this.name = name;
             this.dataType = dataType;
             this.kind = kind;
+            this.scope = scope;
+            this.depth = depth;
+            this.order = order;
         }
 
         public String getName() {
@@ -35,42 +53,368 @@ public class SymbolTable {
         public SymbolType getKind() {
             return kind;
         }
+
+        // Nome do escopo em que foi declarado ("global", o nome da função, ...)
+        public String getScope() {
+            return scope;
+        }
+
+        // Profundidade do escopo: 0 é o global
+        public int getDepth() {
+            return depth;
+        }
     }
 
-    private final Map<String, Symbol> symbols = new HashMap<>();
+    // símbolos indexados pelo id do nome no NamePool (ids são densos, então um array basta), em páginas
+    // alocadas sob demanda: uma tabela pequena sobre um pool grande não paga pelo tamanho do pool
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final NamePool names;
+    private Symbol[][] pages = new Symbol[16][];
+    // ordem de declaração, usada na impressão da tabela (inclui os símbolos de escopos já fechados)
+    private final List<Symbol> declared = new ArrayList<>();
+    // interfaces importadas (--import): escopo externo ao global, só de leitura, consultado quando o nome
+    // não está declarado na tabela; a primeira que tiver o nome vence
+    private final List<SymbolInterface> imports = new ArrayList<>();
+
+    // Escopos aninhados sem copiar tabelas: o array acima guarda só o símbolo visível de cada nome.
+    // Declarar num escopo interno registra no log (undo) o símbolo que ficou escondido, e sair do
+    // escopo desfaz o log até a marca gravada na entrada.
+    private int[] undoNames = new int[64];
+    private Symbol[] undoSymbols = new Symbol[64];
+    private int undoSize = 0;
+    private int[] scopeMarks = new int[8];
+    private String[] scopeNames = new String[8];
+    private int depth = 0;
+
+    // Tabela congelada: não aceita declarações, e várias visões locais podem lê-la ao mesmo tempo
+    private boolean frozen = false;
+    // Numa visão local, os globais vêm desta tabela congelada, só os 'visibleGlobals' primeiros. A visão
+    // analisa várias unidades (funções) em sequência: posição em 'declared' onde começa cada uma e
+    // quantos globais ela enxerga.
+    private final SymbolTable globals;
+    private int visibleGlobals;
+    private int[] unitStarts;
+    private int[] unitGlobals;
+    private int unitCount;
+
+    public SymbolTable() {
+        this(new NamePool());
+    }
+
+    public SymbolTable(NamePool names) {
+        this(names, null);
+    }
+
+    private SymbolTable(NamePool names, SymbolTable globals) {
+        this.names = names;
+        this.globals = globals;
+    }
+
+    public NamePool getNames() {
+        return names;
+    }
+
+    // Declara o nome no escopo atual; devolve false (sem alterar nada) se ele já existe nesse escopo.
+    // Um nome de escopo externo fica escondido até o escopo atual ser fechado.
+    public boolean declareIfAbsent(int nameId, String dataType, SymbolType kind) {
+        if (frozen) {
+            throw new IllegalStateException("Tabela de símbolos somente leitura");
+        }
+        Symbol visible = lookup(nameId);
+        if (visible != null && visible.depth == depth) {
+            return false;
+        }
+        // numa visão local, um global escondido continua na tabela congelada, e um importado na sua
+        // interface: nada a restaurar aqui
+        Symbol hidden = lookupLocal(nameId);
+        Symbol symbol = new Symbol(names.get(nameId), dataType, kind, getScope(), depth, declared.size());
+        if (depth > 0) {
+            if (undoSize == undoNames.length) {
+                undoNames = Arrays.copyOf(undoNames, undoSize * 2);
+                undoSymbols = Arrays.copyOf(undoSymbols, undoSize * 2);
+            }
+            undoNames[undoSize] = nameId;
+            undoSymbols[undoSize] = hidden;
+            undoSize++;
+        }
+        set(nameId, symbol);
+        declared.add(symbol);
+        return true;
+    }
+
+    // Abre um escopo dentro do atual (função, bloco)
+    public void enterScope(String name) {
+        if (depth == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
+            scopeNames = Arrays.copyOf(scopeNames, depth * 2);
+        }
+        scopeMarks[depth] = undoSize;
+        scopeNames[depth] = name;
+        depth++;
+    }
+
+    // Fecha o escopo atual: os nomes declarados nele deixam de ser visíveis e os que eles escondiam voltam
+    public void exitScope() {
+        if (depth == 0) {
+            throw new IllegalStateException("Nenhum escopo aberto");
+        }
+        depth--;
+        int mark = scopeMarks[depth];
+        while (undoSize > mark) {
+            undoSize--;
+            set(undoNames[undoSize], undoSymbols[undoSize]);
+            undoSymbols[undoSize] = null;
+        }
+        scopeNames[depth] = null;
+    }
+
+    // Profundidade do escopo atual: 0 é o global
+    public int getDepth() {
+        return depth;
+    }
+
+    public String getScope() {
+        return depth == 0 ? GLOBAL_SCOPE : scopeNames[depth - 1];
+    }
+
+    // Símbolo do nome, ou null se não declarado
+    public Symbol lookup(int nameId) {
+        Symbol symbol = lookupLocal(nameId);
+        if (symbol == null && globals != null) {
+            symbol = globals.lookupLocal(nameId);
+            if (symbol != null && symbol.order >= visibleGlobals) {
+                symbol = null;
+            }
+        }
+        return symbol != null ? symbol : lookupImported(names.get(nameId));
+    }
+
+    private Symbol lookupImported(String name) {
+        List<SymbolInterface> sources = globals != null ? globals.imports : imports;
+        for (int i = 0; i < sources.size(); i++) {
+            Symbol symbol = sources.get(i).find(name);
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+        return null;
+    }
+
+    // Torna visíveis os símbolos globais da interface, sem copiá-los: são lidos dela quando procurados.
+    // Declarar de novo um nome importado no escopo global é erro, como qualquer redeclaração.
+    public void addImport(SymbolInterface source) {
+        if (frozen || globals != null) {
+            throw new IllegalStateException("Tabela de símbolos somente leitura");
+        }
+        imports.add(source);
+    }
+
+    // Símbolo lido de uma interface importada; fica fora da ordem de declaração desta tabela
+    static Symbol importedSymbol(String name, String dataType, SymbolType kind, String scope, int depth) {
+        return new Symbol(name, dataType, kind, scope, depth, -1);
+    }
+
+    private Symbol lookupLocal(int nameId) {
+        int page = nameId >>> PAGE_BITS;
+        if (page >= pages.length || pages[page] == null) {
+            return null;
+        }
+        return pages[page][nameId & PAGE_MASK];
+    }
+
+    private void set(int nameId, Symbol symbol) {
+        int page = nameId >>> PAGE_BITS;
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pages.length * 2, page + 1));
+        }
+        if (pages[page] == null) {
+            pages[page] = new Symbol[1 << PAGE_BITS];
+        }
+        pages[page][nameId & PAGE_MASK] = symbol;
+    }
 
     public void declare(String name, String dataType, SymbolType kind) {
-        if (symbols.containsKey(name)) {
+        if (!declareIfAbsent(names.intern(name), dataType, kind)) {
             throw new RuntimeException("Identificador já declarado: " + name);
         }
-        symbols.put(name, new Symbol(name, dataType, kind));
     }
 
     public Symbol lookup(String name) {
-        if (!symbols.containsKey(name)) {
+        int nameId = names.find(name);
+        Symbol symbol = nameId < 0 ? lookupImported(name) : lookup(nameId);
+        if (symbol == null) {
             throw new RuntimeException("Identificador não declarado: " + name);
         }
-        return symbols.get(name);
+        return symbol;
     }
 
     public boolean exists(String name) {
-        return symbols.containsKey(name);
+        int nameId = names.find(name);
+        return (nameId < 0 ? lookupImported(name) : lookup(nameId)) != null;
     }
+
     public void printTable() {
         System.out.println("\nTabela de Símbolos:");
         for (Symbol sym : getAllSymbols()) {
-            System.out.printf("%s : %s (%s)%n", sym.getName(), sym.getDataType(), sym.getKind());
+            System.out.printf("%s : %s (%s) [%s]%n", sym.getName(), sym.getDataType(), sym.getKind(), sym.getScope());
         }
     }
 
     public void printTable(PrintWriter out) {
         out.println("Tabela de Símbolos:");
         for (Symbol sym : getAllSymbols()) {
-            out.printf("%s : %s (%s)%n", sym.getName(), sym.getDataType(), sym.getKind());
+            out.printf("%s : %s (%s) [%s]%n", sym.getName(), sym.getDataType(), sym.getKind(), sym.getScope());
+        }
+    }
+
+    // Impede novas declarações até unfreeze(); a partir daí a tabela pode ser lida por várias threads
+    public void freeze() {
+        if (depth != 0) {
+            throw new IllegalStateException("Há escopos abertos");
+        }
+        frozen = true;
+    }
+
+    public void unfreeze() {
+        frozen = false;
+    }
+
+    // Visão para analisar funções à parte, uma thread por visão: enxerga os símbolos desta tabela
+    // congelada e guarda só os seus próprios (parâmetros e locais; na compilação incremental, também os
+    // globais das unidades re-analisadas)
+    public SymbolTable localView() {
+        if (!frozen) {
+            throw new IllegalStateException("A tabela global precisa estar congelada");
+        }
+        SymbolTable view = new SymbolTable(names, this);
+        view.unitStarts = new int[16];
+        view.unitGlobals = new int[16];
+        return view;
+    }
+
+    // Numa visão local, começa a próxima unidade, que enxerga só os 'visibleGlobals' primeiros símbolos
+    // globais: o último deles é o dono da unidade (a função)
+    public void beginUnit(int visibleGlobals) {
+        if (globals == null || depth != 0) {
+            throw new IllegalStateException("Unidade fora de uma visão local ou com escopos abertos");
+        }
+        if (unitCount == unitStarts.length) {
+            unitStarts = Arrays.copyOf(unitStarts, unitCount * 2);
+            unitGlobals = Arrays.copyOf(unitGlobals, unitCount * 2);
+        }
+        unitStarts[unitCount] = declared.size();
+        unitGlobals[unitCount] = visibleGlobals;
+        unitCount++;
+        this.visibleGlobals = visibleGlobals;
+    }
+
+    // Junta os símbolos das visões locais, na ordem do fonte: cada símbolo a partir da posição 'from'
+    // (uma função) passa a ser seguido dos símbolos da sua unidade, como na análise sequencial
+    public void mergeLocals(int from, List<SymbolTable> views) {
+        List<Symbol> owners = declared.subList(from, declared.size());
+        List<Symbol> merged = new ArrayList<>();
+        int owner = 0;
+        for (SymbolTable view : views) {
+            if (view.globals != this) {
+                throw new IllegalArgumentException("Visão local de outra tabela");
+            }
+            for (int u = 0; u < view.unitCount; u++) {
+                if (owner == owners.size() || view.unitGlobals[u] != from + owner + 1) {
+                    throw new IllegalArgumentException("Unidades fora da ordem dos símbolos a partir de " + from);
+                }
+                int end = u + 1 < view.unitCount ? view.unitStarts[u + 1] : view.declared.size();
+                merged.add(owners.get(owner++));
+                merged.addAll(view.declared.subList(view.unitStarts[u], end));
+            }
+        }
+        if (owner != owners.size()) {
+            throw new IllegalArgumentException("Faltam unidades a partir de " + from);
+        }
+        owners.clear();
+        declared.addAll(merged);
+        renumber(from, declared.size());
+    }
+
+    // Remove os símbolos globais declarados a partir da posição 'size' (desfaz declarações feitas
+    // com todos os escopos fechados)
+    public void truncate(int size) {
+        if (depth != 0 || frozen) {
+            throw new IllegalStateException("Tabela de símbolos com escopos abertos ou congelada");
+        }
+        List<Symbol> removed = declared.subList(size, declared.size());
+        for (Symbol symbol : removed) {
+            if (symbol.depth == 0) {
+                set(names.find(symbol.getName()), null);
+            }
+        }
+        removed.clear();
+    }
+
+    // Troca os símbolos nas posições [from, to) da ordem de declaração pelos de 'replacement', que
+    // precisa usar o mesmo NamePool (compilação incremental). As duas tabelas devem estar com todos os
+    // escopos fechados, então só os símbolos globais estão visíveis. Devolve false, sem alterar nada,
+    // se algum nome global novo já estiver declarado fora do trecho trocado.
+    public boolean replaceDeclared(int from, int to, SymbolTable replacement) {
+        if (replacement.names != names) {
+            throw new IllegalArgumentException("As tabelas precisam compartilhar o NamePool");
+        }
+        if (depth != 0 || replacement.depth != 0) {
+            throw new IllegalStateException("Há escopos abertos");
         }
+        List<Symbol> removed = declared.subList(from, to);
+        for (Symbol symbol : removed) {
+            if (symbol.depth == 0) {
+                set(names.find(symbol.getName()), null);
+            }
+        }
+        for (Symbol symbol : replacement.declared) {
+            if (symbol.depth == 0 && lookup(names.find(symbol.getName())) != null) {
+                for (Symbol old : removed) {
+                    if (old.depth == 0) {
+                        set(names.find(old.getName()), old);
+                    }
+                }
+                return false;
+            }
+        }
+        if (replacement.declared.size() == removed.size()) {
+            // mesmo número de símbolos: troca no lugar, sem deslocar o resto da lista
+            for (int i = 0; i < removed.size(); i++) {
+                removed.set(i, replacement.declared.get(i));
+            }
+            renumber(from, to);
+        } else {
+            removed.clear();
+            declared.addAll(from, replacement.declared);
+            renumber(from, declared.size());
+        }
+        for (Symbol symbol : replacement.declared) {
+            if (symbol.depth == 0) {
+                set(names.find(symbol.getName()), symbol);
+            }
+        }
+        return true;
+    }
+
+    // Acerta a posição dos símbolos em [from, to) da ordem de declaração
+    private void renumber(int from, int to) {
+        for (int i = from; i < to; i++) {
+            declared.get(i).order = i;
+        }
+    }
+
+    public int size() {
+        return declared.size();
+    }
+
+    // Símbolo na posição 'index' da ordem de declaração
+    public Symbol getDeclared(int index) {
+        return declared.get(index);
     }
 
     public Collection<Symbol> getAllSymbols() {
-        return symbols.values();
+        return Collections.unmodifiableList(declared);
     }
 }
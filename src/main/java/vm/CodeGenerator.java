@@ -0,0 +1,397 @@
+package vm;
+
+import ast.Ast;
+import ast.AstVisitor;
+import ast.NodeKind;
+import ast.TypeChecker;
+import lexer.TokenType;
+import symboltable.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Traduz a Ast de um programa, com os tipos do TypeChecker, para o código da máquina de pilha. Cada
+// valor é convertido logo depois de avaliado para o tipo que o nó pai espera (real, string ou o
+// tipo do parâmetro). Os comandos são traduzidos recursivamente e as expressões com Ast.walk.
+public final class CodeGenerator {
+    // função executada pelo Interpreter
+    public static final String MAIN = "main";
+
+    private static final int[] INT_OPS = new int[TokenType.values().length];
+    private static final int[] REAL_OPS = new int[TokenType.values().length];
+
+    static {
+        TokenType[] operators = {TokenType.ADD, TokenType.SUB, TokenType.MUL, TokenType.DIV, TokenType.MOD,
+                TokenType.LT, TokenType.LE, TokenType.GT, TokenType.GE, TokenType.EQ, TokenType.NEQ};
+        int[] ints = {Opcode.IADD, Opcode.ISUB, Opcode.IMUL, Opcode.IDIV, Opcode.IMOD,
+                Opcode.ILT, Opcode.ILE, Opcode.IGT, Opcode.IGE, Opcode.IEQ, Opcode.INE};
+        int[] reals = {Opcode.DADD, Opcode.DSUB, Opcode.DMUL, Opcode.DDIV, Opcode.DMOD,
+                Opcode.DLT, Opcode.DLE, Opcode.DGT, Opcode.DGE, Opcode.DEQ, Opcode.DNE};
+        for (int i = 0; i < operators.length; i++) {
+            INT_OPS[operators[i].ordinal()] = ints[i];
+            REAL_OPS[operators[i].ordinal()] = reals[i];
+        }
+    }
+
+    private final Ast ast;
+    private final TypeChecker types;
+
+    private int[] code = new int[256];
+    private int size = 0;
+    // valores na pilha neste ponto da função e o máximo até aqui
+    private int depth = 0;
+    private int maxDepth = 0;
+    // posição de uma comparação de inteiros que um desvio logo a seguir pode absorver, ou -1
+    private int fusible = -1;
+
+    private long[] constants = new long[16];
+    private int constantCount = 0;
+    private final Map<Long, Integer> constantIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    // função sendo traduzida e desvios de break ainda sem destino
+    private int function;
+    private int[] breaks = new int[16];
+    private int breakCount = 0;
+
+    private final ExpressionVisitor expressions = new ExpressionVisitor();
+
+    private CodeGenerator(TypeChecker types) {
+        this.ast = types.getAst();
+        this.types = types;
+    }
+
+    // Lança RuntimeException com a mensagem para o usuário se o programa tem erro de tipo ou não tem main
+    public static Program generate(Ast ast, SymbolTable symbolTable) {
+        return generate(TypeChecker.check(ast, symbolTable));
+    }
+
+    public static Program generate(TypeChecker types) {
+        return new CodeGenerator(types).generate();
+    }
+
+    private Program generate() {
+        int main = types.findFunction(MAIN);
+        if (main < 0) {
+            throw new RuntimeException("Função " + MAIN + " não encontrada");
+        }
+        if (types.getParamCount(main) > 0) {
+            throw new RuntimeException("A função " + MAIN + " não pode ter parâmetros");
+        }
+
+        int count = types.getFunctionCount();
+        String[] functionNames = new String[count];
+        int[] entries = new int[count];
+        int[] paramCounts = new int[count];
+        int[] localCounts = new int[count];
+        int[] frameSizes = new int[count];
+        for (int f = 0; f < count; f++) {
+            int node = types.getFunctionNode(f);
+            functionNames[f] = ast.getName(node);
+            entries[f] = size;
+            paramCounts[f] = types.getParamCount(f);
+            localCounts[f] = paramCounts[f] + types.getTempCount(f);
+            function(f, node);
+            frameSizes[f] = localCounts[f] + maxDepth;
+        }
+
+        List<Integer> stringGlobals = new ArrayList<>();
+        for (int slot = 0; slot < types.getGlobalCount(); slot++) {
+            if (types.getGlobalType(slot) == TokenType.STRING) {
+                stringGlobals.add(slot);
+            }
+        }
+        return new Program(Arrays.copyOf(code, size), Arrays.copyOf(constants, constantCount),
+                strings.toArray(new String[0]), functionNames, entries, paramCounts, localCounts, frameSizes, types.getGlobalCount(),
+                stringGlobals.stream().mapToInt(Integer::intValue).toArray(), main);
+    }
+
+    private void function(int f, int node) {
+        function = f;
+        depth = 0;
+        maxDepth = 0;
+        int body = Ast.NONE;
+        for (int child = ast.getFirstChild(node); child != Ast.NONE; child = ast.getNextSibling(child)) {
+            if (ast.getKind(child) == NodeKind.BLOCK) {
+                body = child;
+            }
+        }
+        block(body);
+        // sem return no fim: devolve o valor padrão do tipo (0 tem os bits de 0.0)
+        if (types.getReturnType(f) == TokenType.STRING) {
+            emit(Opcode.SCONST, string(""));
+        } else {
+            emit(Opcode.ICONST, 0);
+        }
+        emit(Opcode.RET);
+    }
+
+    private void block(int block) {
+        for (int command = ast.getFirstChild(block); command != Ast.NONE; command = ast.getNextSibling(command)) {
+            command(command);
+        }
+    }
+
+    private void command(int node) {
+        switch (ast.getKind(node)) {
+            case ASSIGN -> {
+                int variable = types.getVariable(node);
+                TokenType type = types.getVariableType(function, variable);
+                expression(ast.getFirstChild(node), type);
+                boolean string = type == TokenType.STRING;
+                if (variable >= 0) {
+                    emit(string ? Opcode.STORE_REF : Opcode.STORE, variable);
+                } else {
+                    emit(string ? Opcode.GSTORE_REF : Opcode.GSTORE, -1 - variable);
+                }
+            }
+            case CALL -> {
+                expression(node, null);
+                emit(Opcode.POP);
+            }
+            case RETURN -> {
+                expression(ast.getFirstChild(node), types.getReturnType(function));
+                emit(Opcode.RET);
+            }
+            case BREAK -> {
+                if (breakCount == breaks.length) {
+                    breaks = Arrays.copyOf(breaks, breakCount * 2);
+                }
+                breaks[breakCount++] = jump(Opcode.JMP);
+            }
+            case PRINT -> {
+                int value = ast.getFirstChild(node);
+                expression(value, null);
+                emit(Opcode.PRINT, types.getType(value).ordinal());
+            }
+            case IF -> {
+                int condition = ast.getFirstChild(node);
+                int then = ast.getNextSibling(condition);
+                int otherwise = ast.getNextSibling(then);
+                int skip = condition(condition);
+                block(then);
+                if (otherwise != Ast.NONE) {
+                    int end = jump(Opcode.JMP);
+                    label(skip);
+                    block(otherwise);
+                    label(end);
+                } else {
+                    label(skip);
+                }
+            }
+            case WHILE -> {
+                int condition = ast.getFirstChild(node);
+                int start = size;
+                int exit = condition(condition);
+                int firstBreak = breakCount;
+                block(ast.getNextSibling(condition));
+                emit(Opcode.JMP, start);
+                label(exit);
+                for (int i = firstBreak; i < breakCount; i++) {
+                    label(breaks[i]);
+                }
+                breakCount = firstBreak;
+            }
+            default -> throw new IllegalStateException("Comando inesperado: " + ast.getKind(node));
+        }
+    }
+
+    // Condição de if ou while seguida do desvio para quando ela é falsa; devolve a posição do destino
+    private int condition(int node) {
+        expression(node, null);
+        if (fusible == size - 1) {
+            code[fusible] = Opcode.JNLT + (code[fusible] - Opcode.ILT);
+            fusible = -1;
+            depth -= 1;
+            return operand(0);
+        }
+        return jump(Opcode.JZ);
+    }
+
+    // Desvio com destino a definir por label()
+    private int jump(int op) {
+        emit(op, 0);
+        return size - 1;
+    }
+
+    // O desvio cujo destino está em 'target' vai para a posição atual
+    private void label(int target) {
+        code[target] = size;
+        fusible = -1;
+    }
+
+    // Traduz a expressão e converte o valor para 'expected' (null: fica com o próprio tipo)
+    private void expression(int node, TokenType expected) {
+        fusible = -1;
+        ast.walk(node, expressions);
+        convert(types.getType(node), expected);
+    }
+
+    // Converte o valor do topo (a verificação de tipos já garantiu que é possível)
+    private void convert(TokenType from, TokenType to) {
+        if (to == null || from == to || to == TokenType.VOID) {
+            return;
+        }
+        if (to == TokenType.STRING) {
+            emit(Opcode.TOSTR, from.ordinal());
+        } else if (to == TokenType.REAL && TypeChecker.isInteger(from)) {
+            emit(Opcode.I2D);
+        } else if (TypeChecker.isInteger(to) && from == TokenType.REAL) {
+            emit(Opcode.D2I);
+        }
+    }
+
+    private void binary(int node) {
+        TokenType operator = ast.getTokenType(node);
+        int op = switch (types.getOperandType(node)) {
+            case STRING -> operator == TokenType.ADD ? Opcode.CONCAT : operator == TokenType.EQ ? Opcode.SEQ : Opcode.SNE;
+            case REAL -> REAL_OPS[operator.ordinal()];
+            default -> INT_OPS[operator.ordinal()];
+        };
+        emit(op);
+        if (op >= Opcode.ILT && op <= Opcode.INE) {
+            fusible = size - 1;
+        }
+    }
+
+    private int literal(int node) {
+        String text = ast.getLiteral(node);
+        return switch (ast.getKind(node)) {
+            case INT_LITERAL -> Integer.parseInt(text);
+            case REAL_LITERAL -> constant(Double.doubleToRawLongBits(Double.parseDouble(text)));
+            case STRING_LITERAL -> string(text);
+            default -> text.isEmpty() ? 0 : text.codePointAt(0);
+        };
+    }
+
+    private int constant(long bits) {
+        Integer index = constantIndexes.get(bits);
+        if (index == null) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount] = bits;
+            index = constantCount++;
+            constantIndexes.put(bits, index);
+        }
+        return index;
+    }
+
+    private int string(String text) {
+        Integer index = stringIndexes.get(text);
+        if (index == null) {
+            index = strings.size();
+            strings.add(text);
+            stringIndexes.put(text, index);
+        }
+        return index;
+    }
+
+    private void emit(int op) {
+        ensureCapacity(1);
+        code[size++] = op;
+        adjustDepth(effect(op));
+    }
+
+    private void emit(int op, int operand) {
+        ensureCapacity(2);
+        code[size++] = op;
+        code[size++] = operand;
+        adjustDepth(effect(op));
+    }
+
+    private int operand(int value) {
+        ensureCapacity(1);
+        code[size++] = value;
+        return size - 1;
+    }
+
+    private void adjustDepth(int effect) {
+        depth += effect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + extra));
+        }
+    }
+
+    // Variação do número de valores na pilha (CALL é tratado à parte)
+    private static int effect(int op) {
+        return switch (op) {
+            case Opcode.ICONST, Opcode.DCONST, Opcode.SCONST, Opcode.LOAD, Opcode.LOAD_REF, Opcode.GLOAD,
+                 Opcode.GLOAD_REF -> 1;
+            case Opcode.INEG, Opcode.DNEG, Opcode.I2D, Opcode.D2I, Opcode.TOSTR, Opcode.JMP, Opcode.CALL, Opcode.TEE,
+                 Opcode.TEE_REF -> 0;
+            default -> -1;
+        };
+    }
+
+    // Emite cada nó ao sair dele, quando os operandos já estão na pilha, e converte o valor para o
+    // tipo que o pai espera
+    private final class ExpressionVisitor implements AstVisitor {
+        // nós abertos e, para cada um, quantos filhos já foram traduzidos
+        private int[] path = new int[16];
+        private int[] done = new int[16];
+        private int pathCount = 0;
+
+        @Override
+        public boolean enter(Ast ast, int node) {
+            if (pathCount == path.length) {
+                path = Arrays.copyOf(path, pathCount * 2);
+                done = Arrays.copyOf(done, pathCount * 2);
+            }
+            path[pathCount] = node;
+            done[pathCount] = 0;
+            pathCount++;
+            return true;
+        }
+
+        @Override
+        public void exit(Ast ast, int node) {
+            pathCount--;
+            TokenType type = types.getType(node);
+            switch (ast.getKind(node)) {
+                case INT_LITERAL, CHAR_LITERAL, BOOLEAN_LITERAL ->
+                        emit(Opcode.ICONST, ast.getKind(node) == NodeKind.BOOLEAN_LITERAL ? ast.getData(node) : literal(node));
+                case REAL_LITERAL -> emit(Opcode.DCONST, literal(node));
+                case STRING_LITERAL -> emit(Opcode.SCONST, literal(node));
+                case VARIABLE -> {
+                    int variable = types.getVariable(node);
+                    boolean string = type == TokenType.STRING;
+                    if (variable >= 0) {
+                        emit(string ? Opcode.LOAD_REF : Opcode.LOAD, variable);
+                    } else {
+                        emit(string ? Opcode.GLOAD_REF : Opcode.GLOAD, -1 - variable);
+                    }
+                }
+                case UNARY -> {
+                    if (ast.getTokenType(node) == TokenType.SUB) {
+                        emit(type == TokenType.REAL ? Opcode.DNEG : Opcode.INEG);
+                    }
+                }
+                case BINARY -> binary(node);
+                // os temporários ficam no quadro depois dos parâmetros
+                case SAVE -> emit(type == TokenType.STRING ? Opcode.TEE_REF : Opcode.TEE,
+                        types.getParamCount(function) + ast.getData(node));
+                case TEMP -> emit(type == TokenType.STRING ? Opcode.LOAD_REF : Opcode.LOAD,
+                        types.getParamCount(function) + ast.getData(node));
+                case CALL -> {
+                    int arguments = done[pathCount];
+                    emit(Opcode.CALL, types.getFunction(node));
+                    adjustDepth(1 - arguments);
+                }
+                default -> throw new IllegalStateException("Expressão inesperada: " + ast.getKind(node));
+            }
+            if (pathCount > 0) {
+                int parent = pathCount - 1;
+                convert(type, types.getExpectedType(path[parent], done[parent]++));
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package vm;
+
+import lexer.TokenType;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Executa um Program a partir da função main num único laço de despacho. A pilha de valores é um
+// long[] (as strings num Object[] paralelo) que também guarda os parâmetros de cada chamada; as
+// chamadas não usam a pilha Java, só os arrays de retorno. Nada é alocado por instrução, exceto
+// as strings criadas por concatenação e por print.
+public final class Interpreter {
+    // limite da pilha de valores, em posições
+    static final int MAX_STACK = 1 << 24;
+    // o que print acumula antes de escrever na saída
+    private static final int OUTPUT_BUFFER = 8192;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final Program program;
+    private final PrintStream out;
+    private final StringBuilder output = new StringBuilder();
+    private long[] stack = new long[256];
+    private Object[] refs = new Object[256];
+    private int[] returnPcs = new int[64];
+    private int[] savedFps = new int[64];
+    private long instructions;
+
+    public Interpreter(Program program, PrintStream out) {
+        this.program = program;
+        this.out = out;
+    }
+
+    // Instruções executadas pela última chamada de run()
+    public long getInstructionCount() {
+        return instructions;
+    }
+
+    // Lança RuntimeException com a mensagem para o usuário em caso de erro de execução
+    public void run() {
+        int[] code = program.code;
+        long[] constants = program.constants;
+        String[] strings = program.strings;
+        long[] globals = new long[program.globalCount];
+        Object[] globalRefs = new Object[program.globalCount];
+        for (int slot : program.stringGlobals) {
+            globalRefs[slot] = "";
+        }
+        ensureStack(program.frameSizes[program.main]);
+        long[] stack = this.stack;
+        Object[] refs = this.refs;
+        int sp = program.localCounts[program.main];
+        int fp = 0;
+        int frames = 0;
+        int pc = program.entries[program.main];
+        long executed = 0;
+        try {
+            while (true) {
+                executed++;
+                switch (code[pc++]) {
+                    case Opcode.ICONST -> stack[sp++] = code[pc++];
+                    case Opcode.DCONST -> stack[sp++] = constants[code[pc++]];
+                    case Opcode.SCONST -> refs[sp++] = strings[code[pc++]];
+                    case Opcode.LOAD -> stack[sp++] = stack[fp + code[pc++]];
+                    case Opcode.LOAD_REF -> refs[sp++] = refs[fp + code[pc++]];
+                    case Opcode.STORE -> stack[fp + code[pc++]] = stack[--sp];
+                    case Opcode.STORE_REF -> refs[fp + code[pc++]] = refs[--sp];
+                    case Opcode.GLOAD -> stack[sp++] = globals[code[pc++]];
+                    case Opcode.GLOAD_REF -> refs[sp++] = globalRefs[code[pc++]];
+                    case Opcode.GSTORE -> globals[code[pc++]] = stack[--sp];
+                    case Opcode.GSTORE_REF -> globalRefs[code[pc++]] = refs[--sp];
+                    case Opcode.POP -> sp--;
+
+                    case Opcode.IADD -> {
+                        sp--;
+                        stack[sp - 1] = (int) stack[sp - 1] + (int) stack[sp];
+                    }
+                    case Opcode.ISUB -> {
+                        sp--;
+                        stack[sp - 1] = (int) stack[sp - 1] - (int) stack[sp];
+                    }
+                    case Opcode.IMUL -> {
+                        sp--;
+                        stack[sp - 1] = (int) stack[sp - 1] * (int) stack[sp];
+                    }
+                    case Opcode.IDIV -> {
+                        sp--;
+                        stack[sp - 1] = (int) stack[sp - 1] / divisor(stack[sp]);
+                    }
+                    case Opcode.IMOD -> {
+                        sp--;
+                        stack[sp - 1] = (int) stack[sp - 1] % divisor(stack[sp]);
+                    }
+                    case Opcode.INEG -> stack[sp - 1] = -(int) stack[sp - 1];
+                    case Opcode.DADD -> {
+                        sp--;
+                        stack[sp - 1] = bits(real(stack[sp - 1]) + real(stack[sp]));
+                    }
+                    case Opcode.DSUB -> {
+                        sp--;
+                        stack[sp - 1] = bits(real(stack[sp - 1]) - real(stack[sp]));
+                    }
+                    case Opcode.DMUL -> {
+                        sp--;
+                        stack[sp - 1] = bits(real(stack[sp - 1]) * real(stack[sp]));
+                    }
+                    case Opcode.DDIV -> {
+                        sp--;
+                        stack[sp - 1] = bits(real(stack[sp - 1]) / real(stack[sp]));
+                    }
+                    case Opcode.DMOD -> {
+                        sp--;
+                        stack[sp - 1] = bits(real(stack[sp - 1]) % real(stack[sp]));
+                    }
+                    case Opcode.DNEG -> stack[sp - 1] = bits(-real(stack[sp - 1]));
+                    case Opcode.I2D -> stack[sp - 1] = bits((int) stack[sp - 1]);
+                    case Opcode.D2I -> stack[sp - 1] = (int) real(stack[sp - 1]);
+                    case Opcode.CONCAT -> {
+                        sp--;
+                        refs[sp - 1] = ((String) refs[sp - 1]).concat((String) refs[sp]);
+                    }
+                    case Opcode.TOSTR -> refs[sp - 1] = text(TYPES[code[pc++]], stack[sp - 1], refs[sp - 1]);
+
+                    case Opcode.ILT -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.ILE -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] <= stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.IGT -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] > stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.IGE -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] >= stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.IEQ -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] == stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.INE -> {
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] != stack[sp] ? 1 : 0;
+                    }
+                    case Opcode.DLT -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) < real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.DLE -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) <= real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.DGT -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) > real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.DGE -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) >= real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.DEQ -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) == real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.DNE -> {
+                        sp--;
+                        stack[sp - 1] = real(stack[sp - 1]) != real(stack[sp]) ? 1 : 0;
+                    }
+                    case Opcode.SEQ -> {
+                        sp--;
+                        stack[sp - 1] = refs[sp - 1].equals(refs[sp]) ? 1 : 0;
+                    }
+                    case Opcode.SNE -> {
+                        sp--;
+                        stack[sp - 1] = refs[sp - 1].equals(refs[sp]) ? 0 : 1;
+                    }
+
+                    case Opcode.JMP -> pc = code[pc];
+                    case Opcode.JZ -> pc = stack[--sp] == 0 ? code[pc] : pc + 1;
+                    case Opcode.JNLT -> {
+                        sp -= 2;
+                        pc = stack[sp] < stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+                    case Opcode.JNLE -> {
+                        sp -= 2;
+                        pc = stack[sp] <= stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+                    case Opcode.JNGT -> {
+                        sp -= 2;
+                        pc = stack[sp] > stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+                    case Opcode.JNGE -> {
+                        sp -= 2;
+                        pc = stack[sp] >= stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+                    case Opcode.JNEQ -> {
+                        sp -= 2;
+                        pc = stack[sp] == stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+                    case Opcode.JNNE -> {
+                        sp -= 2;
+                        pc = stack[sp] != stack[sp + 1] ? pc + 1 : code[pc];
+                    }
+
+                    case Opcode.CALL -> {
+                        int function = code[pc++];
+                        int callee = sp - program.paramCounts[function];
+                        if (callee + program.frameSizes[function] > stack.length) {
+                            ensureStack(callee + program.frameSizes[function]);
+                            stack = this.stack;
+                            refs = this.refs;
+                        }
+                        if (frames == returnPcs.length) {
+                            returnPcs = Arrays.copyOf(returnPcs, frames * 2);
+                            savedFps = Arrays.copyOf(savedFps, frames * 2);
+                        }
+                        returnPcs[frames] = pc;
+                        savedFps[frames] = fp;
+                        frames++;
+                        fp = callee;
+                        sp = callee + program.localCounts[function];
+                        pc = program.entries[function];
+                    }
+                    case Opcode.RET -> {
+                        long value = stack[sp - 1];
+                        Object ref = refs[sp - 1];
+                        // solta as strings do quadro
+                        Arrays.fill(refs, fp, sp, null);
+                        sp = fp;
+                        stack[sp] = value;
+                        refs[sp] = ref;
+                        sp++;
+                        if (frames == 0) {
+                            return;
+                        }
+                        frames--;
+                        pc = returnPcs[frames];
+                        fp = savedFps[frames];
+                    }
+                    case Opcode.PRINT -> {
+                        sp--;
+                        output.append(text(TYPES[code[pc++]], stack[sp], refs[sp])).append('\n');
+                        if (output.length() >= OUTPUT_BUFFER) {
+                            flush();
+                        }
+                    }
+                    case Opcode.TEE -> stack[fp + code[pc++]] = stack[sp - 1];
+                    case Opcode.TEE_REF -> refs[fp + code[pc++]] = refs[sp - 1];
+                    default -> throw new IllegalStateException("Instrução inválida: " + code[pc - 1]);
+                }
+            }
+        } finally {
+            instructions = executed;
+            flush();
+        }
+    }
+
+    private static int divisor(long value) {
+        if (value == 0) {
+            throw new RuntimeException("Divisão por zero");
+        }
+        return (int) value;
+    }
+
+    private static double real(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private static String text(TokenType type, long value, Object ref) {
+        return switch (type) {
+            case REAL -> Double.toString(real(value));
+            case BOOLEAN -> value != 0 ? "true" : "false";
+            case CHARACTER -> Character.toString((int) value);
+            case STRING -> (String) ref;
+            default -> Long.toString(value);
+        };
+    }
+
+    private void ensureStack(int capacity) {
+        if (capacity > MAX_STACK) {
+            throw new RuntimeException("Pilha de execução estourou (recursão profunda demais)");
+        }
+        if (capacity > stack.length) {
+            int grown = (int) Math.min(MAX_STACK, Math.max(stack.length * 2L, capacity));
+            stack = Arrays.copyOf(stack, grown);
+            refs = Arrays.copyOf(refs, grown);
+        }
+    }
+
+    private void flush() {
+        if (output.length() > 0) {
+            out.append(output);
+            out.flush();
+            output.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package vm;
+
+// Instruções da máquina de pilha. Cada uma ocupa um int do código, seguido dos operandos indicados.
+// Os valores vivem em long sem boxing (inteiros, caracteres e booleanos direto, reais pelos bits do
+// double); as strings ficam num array de referências paralelo, na mesma posição da pilha.
+final class Opcode {
+    static final int ICONST = 0;      // valor
+    static final int DCONST = 1;      // índice da constante real
+    static final int SCONST = 2;      // índice da string
+    static final int LOAD = 3;        // posição no quadro da função
+    static final int LOAD_REF = 4;    // posição no quadro da função
+    static final int STORE = 5;       // posição no quadro da função
+    static final int STORE_REF = 6;   // posição no quadro da função
+    static final int GLOAD = 7;       // posição global
+    static final int GLOAD_REF = 8;   // posição global
+    static final int GSTORE = 9;      // posição global
+    static final int GSTORE_REF = 10; // posição global
+    static final int POP = 11;
+
+    static final int IADD = 12;
+    static final int ISUB = 13;
+    static final int IMUL = 14;
+    static final int IDIV = 15;
+    static final int IMOD = 16;
+    static final int INEG = 17;
+    static final int DADD = 18;
+    static final int DSUB = 19;
+    static final int DMUL = 20;
+    static final int DDIV = 21;
+    static final int DMOD = 22;
+    static final int DNEG = 23;
+    static final int I2D = 24;
+    static final int D2I = 25;
+    static final int CONCAT = 26;
+    static final int TOSTR = 27;      // TokenType do valor
+
+    // comparações: deixam 1 (verdadeiro) ou 0
+    static final int ILT = 28;
+    static final int ILE = 29;
+    static final int IGT = 30;
+    static final int IGE = 31;
+    static final int IEQ = 32;
+    static final int INE = 33;
+    static final int DLT = 34;
+    static final int DLE = 35;
+    static final int DGT = 36;
+    static final int DGE = 37;
+    static final int DEQ = 38;
+    static final int DNE = 39;
+    static final int SEQ = 40;
+    static final int SNE = 41;
+
+    static final int JMP = 42;        // destino
+    static final int JZ = 43;         // destino: desvia se o topo é 0
+    // comparação de inteiros seguida de JZ numa só instrução (condições de if e while): desvia para
+    // o destino se a comparação é falsa
+    static final int JNLT = 44;
+    static final int JNLE = 45;
+    static final int JNGT = 46;
+    static final int JNGE = 47;
+    static final int JNEQ = 48;
+    static final int JNNE = 49;
+
+    static final int CALL = 50;       // índice da função
+    static final int RET = 51;
+    static final int PRINT = 52;      // TokenType do valor
+
+    // guarda o topo no quadro sem tirá-lo da pilha (temporários das subexpressões comuns)
+    static final int TEE = 53;        // posição no quadro da função
+    static final int TEE_REF = 54;    // posição no quadro da função
+
+    private Opcode() {
+    }
+}
@@ -0,0 +1,44 @@
+package vm;
+
+// Programa traduzido para a máquina de pilha: o código de todas as funções num só array, as
+// constantes reais (em bits) e strings, e por função o início no código, o número de parâmetros, o
+// de posições locais (parâmetros mais temporários das subexpressões comuns) e o maior tamanho de
+// quadro (posições locais mais valores na pilha).
+public final class Program {
+    final int[] code;
+    final long[] constants;
+    final String[] strings;
+    final String[] functionNames;
+    final int[] entries;
+    final int[] paramCounts;
+    final int[] localCounts;
+    final int[] frameSizes;
+    // posições globais e quais delas guardam strings (começam com "")
+    final int globalCount;
+    final int[] stringGlobals;
+    final int main;
+
+    Program(int[] code, long[] constants, String[] strings, String[] functionNames, int[] entries, int[] paramCounts,
+            int[] localCounts, int[] frameSizes, int globalCount, int[] stringGlobals, int main) {
+        this.code = code;
+        this.constants = constants;
+        this.strings = strings;
+        this.functionNames = functionNames;
+        this.entries = entries;
+        this.paramCounts = paramCounts;
+        this.localCounts = localCounts;
+        this.frameSizes = frameSizes;
+        this.globalCount = globalCount;
+        this.stringGlobals = stringGlobals;
+        this.main = main;
+    }
+
+    // Tamanho do código em ints
+    public int getCodeSize() {
+        return code.length;
+    }
+
+    public int getFunctionCount() {
+        return functionNames.length;
+    }
+}
@@ -0,0 +1,103 @@
+package lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Linhas e colunas de cada token, com acentos e caracteres fora do BMP antes dele na linha: a coluna conta
+// caracteres, seja a fonte indexada por char (String) ou por byte (arquivo)
+class LineIndexTest {
+    private static final String TEXT = """
+            program Colunas
+            declarations
+            varType string: ação;
+            endDeclararions
+            functions
+            funcType integer: f(integer: a) {
+                print "çççç"; b := zz;
+                ação := "𝄞é"; /* comentário
+            com ã */ a := 1;
+                c := '
+            ';
+                return a;
+            } endFunction
+            endFunctions
+            endProgram
+            """;
+
+    @Test
+    void columnsCountCharacters() throws Exception {
+        Path file = Files.createTempFile("colunas", ".251");
+        try {
+            Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+            try (Source bytes = Source.open(file)) {
+                assertPositions(Source.of(TEXT), TEXT);
+                assertPositions(bytes, TEXT);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Com a coluna anterior guardada, uma posição antes dela ou em outra linha recomeça do início da linha
+    @Test
+    void columnsInAnyOrder() {
+        TokenBuffer tokens = new Lexer(Source.of(TEXT), new NamePool()).tokenizeToBuffer();
+        LineIndex lines = tokens.getLines();
+        for (int i = tokens.size() - 1; i >= 0; i--) {
+            assertEquals(column(TEXT, tokens.getStart(i)), lines.getColumn(tokens.getStart(i)), "token " + i);
+        }
+    }
+
+    // Numa fonte em fluxo as linhas são anotadas pelo Lexer; a coluna conta chars
+    @Test
+    void streamRecordsLines() {
+        TokenBuffer expected = new Lexer(Source.of(TEXT), new NamePool()).tokenizeToBuffer();
+        Lexer stream = new Lexer(new StringReader(TEXT));
+        LineIndex lines = stream.getLines();
+        for (int i = 0; i < expected.size(); i++) {
+            stream.next();
+            int start = stream.getStart();
+            assertEquals(expected.getLines().getLine(start), lines.getLine(start), "token " + i);
+        }
+        assertEquals(expected.getLines().getLineCount(), lines.getLineCount());
+
+        Lexer late = new Lexer(new StringReader(TEXT));
+        late.next();
+        assertThrows(IllegalStateException.class, late::getLines);
+    }
+
+    private static void assertPositions(Source source, String text) {
+        Lexer lexer = new Lexer(source);
+        LineIndex lines = lexer.getLines();
+        // posição de cada token em chars, para comparar com o texto
+        int chars = 0;
+        int units = 0;
+        while (lexer.next() != TokenType.EOF) {
+            while (units < lexer.getStart()) {
+                int c = text.codePointAt(chars);
+                chars += Character.charCount(c);
+                units += source instanceof ByteSource ? Character.toString(c).getBytes(StandardCharsets.UTF_8).length
+                        : Character.charCount(c);
+            }
+            String where = lexer.getLexeme() + " em " + chars;
+            assertEquals(line(text, chars), lines.getLine(lexer.getStart()), where);
+            assertEquals(column(text, chars), lines.getColumn(lexer.getStart()), where);
+        }
+    }
+
+    private static int line(String text, int position) {
+        return (int) text.substring(0, position).chars().filter(c -> c == '\n').count() + 1;
+    }
+
+    private static int column(String text, int position) {
+        int lineStart = text.lastIndexOf('\n', position - 1) + 1;
+        return text.codePointCount(lineStart, position) + 1;
+    }
+}
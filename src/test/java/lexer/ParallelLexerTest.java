@@ -0,0 +1,87 @@
+package lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A análise paralela precisa dar exatamente os tokens de Lexer.tokenizeToBuffer(), com os mesmos ids de
+// nome e as mesmas linhas e colunas. Os blocos só são cortados no início de uma linha, então os textos
+// põem inícios de linha dentro de uma string, de um comentário de bloco e de uma constante de caractere
+// com quebra de linha, e logo antes de operadores de dois caracteres (um corte nunca cai no meio deles).
+class ParallelLexerTest {
+    private static final String CUTS = """
+            program Cortes
+            declarations
+            varType string: s;
+            varType char: c;
+            endDeclararions
+            functions
+            funcType integer: f(integer: a) {
+                s := "uma string
+            := que atravessa ' linhas /* sem fechar
+            e termina aqui";
+                /* comentário de bloco
+            "aspas dentro
+            'x' := <= >=
+            */ a := a + 1;
+                c := '
+            ';
+            <= a >= 10 && a != 3 || a == 2;
+            := ação;
+                // comentário de linha com " e ' e /*
+                return a;
+            } endFunction
+            endFunctions
+            endProgram
+            """;
+
+    @Test
+    void cutsInsideStringsCommentsAndCharacters() throws Exception {
+        assertSameTokens(CUTS);
+    }
+
+    @Test
+    void errorTokensAndUnterminatedString() throws Exception {
+        assertSameTokens(CUTS + "# @\n'\n\"sem fim\n:= x\n");
+    }
+
+    @Test
+    void unterminatedBlockComment() throws Exception {
+        assertSameTokens(CUTS + "/* até o fim\nx := 1;\n\"não é string\n");
+    }
+
+    private static void assertSameTokens(String text) throws Exception {
+        TokenBuffer expected = new Lexer(Source.of(text), new NamePool()).tokenizeToBuffer();
+        int lines = expected.getLines().getLineCount();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // com até três blocos por linha, todo início de linha vira corte em alguma rodada
+            for (int chunks = 2; chunks <= 3 * lines; chunks++) {
+                TokenBuffer actual = ParallelLexer.tokenize(Source.of(text), new NamePool(), executor, chunks, 1);
+                assertSame(expected, actual, chunks);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSame(TokenBuffer expected, TokenBuffer actual, int chunks) {
+        String where = chunks + " blocos, token ";
+        assertEquals(expected.size(), actual.size(), chunks + " blocos: número de tokens");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getType(i), actual.getType(i), where + i);
+            assertEquals(expected.getStart(i), actual.getStart(i), where + i);
+            assertEquals(expected.getEnd(i), actual.getEnd(i), where + i);
+            assertEquals(expected.getNameId(i), actual.getNameId(i), where + i);
+            assertEquals(expected.getLexeme(i), actual.getLexeme(i), where + i);
+            int start = expected.getStart(i);
+            assertEquals(expected.getLines().getLine(start), actual.getLines().getLine(start), where + i);
+            assertEquals(expected.getLines().getColumn(start), actual.getLines().getColumn(start), where + i);
+        }
+        assertEquals(expected.getLines().getLineCount(), actual.getLines().getLineCount(), chunks + " blocos: linhas");
+        assertEquals(expected.getNames().size(), actual.getNames().size(), chunks + " blocos: nomes");
+    }
+}
@@ -0,0 +1,204 @@
+package main;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cada edição precisa deixar a compilação incremental no mesmo estado de uma compilação do texto
+// inteiro, e uma edição dentro de uma unidade não pode cair na análise completa.
+class IncrementalCompilerTest {
+    private static final String PROGRAM = """
+            program Incremental
+            declarations
+            varType integer: g, h;
+            varType real: r;
+            endDeclararions
+            functions
+            funcType integer: um(integer: p) {
+                return p + 1;
+            } endFunction;
+            funcType integer: dois(integer: q) {
+                g := um(q) + h;
+                return q + g;
+            } endFunction;
+            funcType integer: tres(integer: s, real: t) {
+                print t * r;
+                return s + dois(s);
+            } endFunction
+            endFunctions
+            endProgram
+            """;
+
+    @Test
+    void editUsingOnlyParameters() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        replace(compiler, "p + 1", "p + 2");
+        assertIncremental(compiler);
+    }
+
+    // O corpo usa globais e chama uma função anterior: a região re-analisada precisa enxergá-los
+    @Test
+    void editUsingGlobals() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        replace(compiler, "q + g", "q + h");
+        assertIncremental(compiler);
+        replace(compiler, "um(q) + h", "um(q) + r");
+        assertIncremental(compiler);
+        replace(compiler, "s + dois(s)", "um(s) + dois(g)");
+        assertIncremental(compiler);
+    }
+
+    // Um parâmetro a mais desloca os símbolos seguintes; as funções depois dele continuam enxergando
+    // só os globais anteriores a elas
+    @Test
+    void editAfterSymbolsMoved() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        replace(compiler, "um(integer: p)", "um(integer: p, integer: extra)");
+        assertIncremental(compiler);
+        replace(compiler, "um(q) + h", "um(q, g) + h");
+        assertIncremental(compiler);
+        replace(compiler, "print t * r", "print t * r + g");
+        assertIncremental(compiler);
+    }
+
+    // Um erro dentro da região é o da compilação normal, sem re-analisar tudo; a edição seguinte, que
+    // parte de um estado com erro, re-analisa. Sem o funcType (ou varType), a análise completa encerra a
+    // lista no ';' antes da unidade e o erro é outro: ela não pode ser analisada como unidade.
+    @Test
+    void errorsInsideUnits() {
+        String[][] edits = {
+                {"return q + g", "return q + tres(q, r)"}, // chama uma função posterior
+                {"return p + 1", "return p + x"},          // nome não declarado
+                {"print t * r;", "print t * r"},           // erro de sintaxe
+                {"integer: s, real: t", "integer: s, real: s"},
+                {"funcType integer: dois", "funcType integer: um"},
+        };
+        for (String[] edit : edits) {
+            IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+            replace(compiler, edit[0], edit[1]);
+            assertFalse(compiler.isSuccess(), edit[1]);
+            assertEquals(IncrementalCompiler.FullReparse.NONE, compiler.getFullReparse(), edit[1]);
+            assertSameAsFullParse(compiler);
+
+            replace(compiler, edit[1], edit[0]);
+            assertEquals(IncrementalCompiler.FullReparse.PREVIOUS_ERROR, compiler.getFullReparse());
+            assertTrue(compiler.isSuccess(), compiler.getError());
+            assertSameAsFullParse(compiler);
+        }
+
+        for (String name : new String[]{"um", "dois", "tres"}) {
+            IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+            replace(compiler, "ncType integer: " + name, "nc<= integer: " + name);
+            assertEquals(IncrementalCompiler.FullReparse.SECTION_END, compiler.getFullReparse(), name);
+            assertSameAsFullParse(compiler);
+        }
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        replace(compiler, "rType real", "rTyp real");
+        assertEquals(IncrementalCompiler.FullReparse.SECTION_END, compiler.getFullReparse());
+        assertSameAsFullParse(compiler);
+    }
+
+    // Edições aleatórias de trechos de tokens: com ou sem erro, o resultado é sempre o da compilação do
+    // texto inteiro
+    @Test
+    void randomEdits() {
+        String[] pieces = {"funcType", "varType", "integer", ":", ";", ",", "(", ")", "{", "}", ":=", "<=", "+",
+                "g", "h", "um", "dois", "x", "1", " ", "\n", "endFunction", "endFunctions", "return", "print"};
+        Random random = new Random(251);
+        for (int round = 0; round < 200; round++) {
+            IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+            for (int i = 0; i < 5; i++) {
+                int offset = random.nextInt(compiler.getText().length() + 1);
+                int removed = Math.min(random.nextInt(4), compiler.getText().length() - offset);
+                compiler.edit(offset, removed, pieces[random.nextInt(pieces.length)]);
+                assertSameAsFullParse(compiler);
+            }
+        }
+    }
+
+    // Só as edições que saem das unidades ou mexem nos globais de outras re-analisam tudo
+    @Test
+    void fullReparseReasons() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        assertEquals(IncrementalCompiler.FullReparse.INITIAL, compiler.getFullReparse());
+        assertReason(compiler, "program Incremental", "program Outro", IncrementalCompiler.FullReparse.OUTSIDE_UNITS);
+        assertReason(compiler, "} endFunction\nendFunctions", "} endFunction\nendFunction",
+                IncrementalCompiler.FullReparse.SECTION_END);
+        assertReason(compiler, "endFunction\nendFunction\n", "endFunction\nendFunctions\n",
+                IncrementalCompiler.FullReparse.PREVIOUS_ERROR);
+        // 'dois' colide com a função declarada depois
+        assertReason(compiler, "varType real: r;", "varType real: r, dois;", IncrementalCompiler.FullReparse.GLOBALS);
+        assertReason(compiler, "r, dois;", "r, w;", IncrementalCompiler.FullReparse.PREVIOUS_ERROR);
+        // um global removido, mesmo sem uso
+        assertReason(compiler, "r, w;", "r;", IncrementalCompiler.FullReparse.GLOBALS);
+        // 'r' ainda é usado em tres
+        assertReason(compiler, "varType real: r;", "varType real: x;", IncrementalCompiler.FullReparse.GLOBALS);
+        assertReason(compiler, "varType real: x;", "varType real: r;", IncrementalCompiler.FullReparse.PREVIOUS_ERROR);
+        assertReason(compiler, "p + 1", "p + 2", IncrementalCompiler.FullReparse.NONE);
+    }
+
+    // Uma sequência de edições, com e sem erro, sempre igual à compilação do texto inteiro
+    @Test
+    void editSequence() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        String[][] edits = {
+                {"p + 1", "p * 3 - h"},
+                {"return q + g;", "return q + g;\n    print \"dois\";"},
+                {"endFunction;\nfuncType integer: tres", "endFunction;\nfuncType real: meio(real: m) {\n"
+                        + "    return m / 2.0;\n} endFunction;\nfuncType integer: tres"},
+                {"print t * r;", "print meio(t * r);"},
+                {"varType real: r;", "varType real: r;\nvarType integer: k;"},
+                {"return m / 2.0;", "return m / 2.0 + k;"},
+                {"return m / 2.0 + k;", "return m / 2.0 + r;"},
+                {"meio(t * r)", "meio(t * r, 1)"},
+                {"meio(t * r, 1)", "meio(t * r)"},
+                {"um(q) + h", "um(q) + "},
+                {"um(q) + ", "um(q) + h"},
+        };
+        for (String[] edit : edits) {
+            replace(compiler, edit[0], edit[1]);
+            assertSameAsFullParse(compiler);
+        }
+        assertTrue(compiler.isSuccess(), compiler.getError());
+    }
+
+    private static void assertReason(IncrementalCompiler compiler, String from, String to,
+                                     IncrementalCompiler.FullReparse reason) {
+        replace(compiler, from, to);
+        assertEquals(reason, compiler.getFullReparse(), compiler.getText());
+        assertSameAsFullParse(compiler);
+    }
+
+    private static void assertIncremental(IncrementalCompiler compiler) {
+        assertFalse(compiler.isFullReparse(), "análise completa depois de editar " + compiler.getText());
+        assertTrue(compiler.getReparsedTokens() < compiler.getTokens().size());
+        assertSameAsFullParse(compiler);
+    }
+
+    static void assertSameAsFullParse(IncrementalCompiler compiler) {
+        IncrementalCompiler full = new IncrementalCompiler(compiler.getText());
+        assertEquals(full.getError(), compiler.getError(), compiler.getText());
+        if (full.isSuccess()) {
+            assertEquals(table(full), table(compiler), compiler.getText());
+        }
+    }
+
+    private static String table(IncrementalCompiler compiler) {
+        StringWriter out = new StringWriter();
+        compiler.getSymbolTable().printTable(new PrintWriter(out, true));
+        return out.toString();
+    }
+
+    // Troca a primeira ocorrência de 'from' no texto atual
+    static void replace(IncrementalCompiler compiler, String from, String to) {
+        int offset = compiler.getText().indexOf(from);
+        assertTrue(offset >= 0, from);
+        compiler.edit(offset, from.length(), to);
+    }
+}
@@ -0,0 +1,160 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Source;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import symboltable.SymbolTable;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A análise paralela das funções precisa dar a mesma tabela de símbolos (o .tab) e os mesmos erros da
+// análise sequencial. Com tarefas de um token, cada função vira um grupo e é analisada numa visão local.
+class ParallelParserTest {
+    private static final int FUNCTIONS = 60;
+
+    @Test
+    void sameTableAsSequential() throws Exception {
+        String text = program(ParallelParserTest::function);
+        Result sequential = sequential(text);
+        assertTrue(sequential.errors().isEmpty(), sequential.errors());
+        assertEquals(sequential, parallel(text));
+    }
+
+    // Um parâmetro esconde o global de mesmo nome só dentro da sua função
+    @Test
+    void parameterHidesGlobal() throws Exception {
+        String text = program(n -> n % 2 == 0
+                ? "funcType integer: f" + n + "(integer: g0, real: r) {\n    g0 := g0 + g1;\n    return g0;\n} endFunction"
+                : function(n));
+        Result sequential = sequential(text);
+        assertTrue(sequential.errors().isEmpty(), sequential.errors());
+        assertEquals(sequential, parallel(text));
+    }
+
+    // Uma função só enxerga as anteriores: chamar uma posterior é erro, como na análise sequencial
+    @Test
+    void callToLaterFunction() throws Exception {
+        assertSameErrors(program(n -> n == 30 ? call(n, 45) : function(n)));
+    }
+
+    @Test
+    void duplicateFunction() throws Exception {
+        assertSameErrors(program(n -> n == 40 ? function(n).replace("f40(", "f10(") : function(n)));
+    }
+
+    @Test
+    void duplicateParameter() throws Exception {
+        assertSameErrors(program(n -> n == 25 ? function(n).replace("real: b", "real: a") : function(n)));
+    }
+
+    @Test
+    void syntaxErrorInsideFunction() throws Exception {
+        assertSameErrors(program(n -> n == 20 ? function(n).replace("    return", "    print a\n    return") : function(n)));
+    }
+
+    private static void assertSameErrors(String text) throws Exception {
+        Result sequential = sequential(text);
+        assertFalse(sequential.errors().isEmpty(), "o programa deveria ter erro");
+        assertEquals(sequential, parallel(text));
+
+        // sem Diagnostics, a primeira exceção
+        SymbolTable table = new SymbolTable();
+        String expected = message(() -> new ParserImpl(tokens(text, table).cursor(), table).parseFileProgram());
+        SymbolTable parallelTable = new SymbolTable();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            String actual = message(() -> ParallelParser.parse(tokens(text, parallelTable), parallelTable, null, executor, FUNCTIONS, 1));
+            assertEquals(expected, actual);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String message(Runnable parse) {
+        try {
+            parse.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String program(IntFunction<String> function) {
+        StringBuilder text = new StringBuilder("program Paralelo\ndeclarations\n");
+        text.append("varType integer: g0, g1, g2;\n");
+        text.append("varType real: r;\n");
+        text.append("endDeclararions\nfunctions\n");
+        for (int n = 0; n < FUNCTIONS; n++) {
+            text.append(n > 0 ? ";\n" : "").append(function.apply(n));
+        }
+        return text.append("\nendFunctions\nendProgram\n").toString();
+    }
+
+    // Usa os globais e chama a função anterior
+    private static String function(int n) {
+        return n == 0
+                ? "funcType integer: f0(integer: a, real: b) {\n    g0 := a + g2;\n    print b * 2.5;\n    return a;\n} endFunction"
+                : call(n, n - 1);
+    }
+
+    private static String call(int n, int callee) {
+        return "funcType integer: f" + n + "(integer: a, real: b) {\n    g1 := f" + callee + "(a, b) + g0;\n"
+                + "    print r + b;\n    return a;\n} endFunction";
+    }
+
+    private static TokenBuffer tokens(String text, SymbolTable table) {
+        return new Lexer(Source.of(text), table.getNames()).tokenizeToBuffer();
+    }
+
+    private static Result sequential(String text) {
+        SymbolTable table = new SymbolTable();
+        TokenBuffer tokens = tokens(text, table);
+        Diagnostics diagnostics = new Diagnostics();
+        new ParserImpl(tokens.cursor(), table, null, diagnostics).parseFileProgram();
+        return new Result(table, diagnostics);
+    }
+
+    private static Result parallel(String text) throws Exception {
+        SymbolTable table = new SymbolTable();
+        TokenBuffer tokens = tokens(text, table);
+        Diagnostics diagnostics = new Diagnostics();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ParallelParser.parse(tokens, table, diagnostics, executor, FUNCTIONS, 1);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(table, diagnostics);
+    }
+
+    // O .tab e os erros (posição e mensagem) de uma análise
+    private record Result(String table, String errors) {
+        Result(SymbolTable symbols, Diagnostics diagnostics) {
+            this(print(symbols), describe(diagnostics));
+        }
+
+        private static String print(SymbolTable symbols) {
+            StringWriter out = new StringWriter();
+            symbols.printTable(new PrintWriter(out, true));
+            return out.toString();
+        }
+
+        private static String describe(Diagnostics diagnostics) {
+            StringBuilder errors = new StringBuilder();
+            for (int i = 0; i < diagnostics.size(); i++) {
+                errors.append(diagnostics.getStart(i)).append('-').append(diagnostics.getEnd(i)).append(": ")
+                        .append(diagnostics.getMessage(i)).append('\n');
+            }
+            return errors.toString();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Source;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import symboltable.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Com Diagnostics, uma única passada registra todos os erros, sem erros a mais causados pela recuperação
+class ParserRecoveryTest {
+    private static final String HEADER = """
+            program Recuperacao
+            declarations
+            varType integer: g;
+            endDeclararions
+            functions
+            """;
+
+    // Um '{' solto dentro de um bloco não esconde os erros seguintes
+    @Test
+    void strayBraceInsideBlock() {
+        assertErrors(HEADER + """
+                funcType integer: um(integer: p) {
+                    g := 1 { g := 2; }
+                    return p;
+                } endFunction;
+                funcType integer: dois(integer: q, integer: q) {
+                    return zz;
+                } endFunction
+                endFunctions
+                endProgram
+                """,
+                "7:12 Esperado token SEMICOLON mas encontrado LBRACE",
+                "10:45 Parâmetro já declarado: q",
+                "11:12 Identificador não declarado: zz");
+    }
+
+    @Test
+    void strayBlockAfterCommand() {
+        assertErrors(HEADER + """
+                funcType integer: um(integer: p) {
+                    g := 1;
+                    { g := yy; }
+                    return zz;
+                } endFunction
+                endFunctions
+                endProgram
+                """,
+                "8:5 Comando inválido: {",
+                "8:12 Identificador não declarado: yy",
+                "9:12 Identificador não declarado: zz");
+    }
+
+    // O ';' em que parou a sincronização do if sem '{' não encerra o pânico: o endIf é do if, e não um
+    // comando inválido
+    @Test
+    void ifWithoutBrace() {
+        assertErrors(HEADER + """
+                funcType integer: um(integer: p) {
+                    if (g < 1) g := 2; endIf
+                    return yy;
+                } endFunction
+                endFunctions
+                endProgram
+                """,
+                "7:16 Esperado token LBRACE mas encontrado IDENTIFIER",
+                "8:12 Identificador não declarado: yy");
+    }
+
+    // Cada comando inválido é registrado, e um ';' sobrando também
+    @Test
+    void invalidCommands() {
+        assertErrors(HEADER + """
+                funcType integer: um(integer: p) {
+                    5;
+                    ;
+                    6 7;
+                    return yy;
+                } endFunction
+                endFunctions
+                endProgram
+                """,
+                "7:5 Comando inválido: 5",
+                "8:5 Comando inválido: ;",
+                "9:5 Comando inválido: 6",
+                "10:12 Identificador não declarado: yy");
+    }
+
+    private static void assertErrors(String text, String... expected) {
+        SymbolTable table = new SymbolTable();
+        TokenBuffer tokens = new Lexer(Source.of(text), table.getNames()).tokenizeToBuffer();
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.setLines(tokens.getLines());
+        new ParserImpl(tokens.cursor(), table, null, diagnostics).parseFileProgram();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < diagnostics.size(); i++) {
+            errors.add(diagnostics.getLine(i) + ":" + diagnostics.getColumn(i) + " " + diagnostics.getMessage(i));
+        }
+        assertEquals(List.of(expected), errors);
+    }
+}